@@ -0,0 +1,75 @@
+package de.binarytree.plugins.qualitygates;
+
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.binarytree.plugins.qualitygates.result.QualityLineReport;
+
+/**
+ * Measures evaluating a quality line of {@link StubStep}s, that is the overhead of scheduling gates and steps and
+ * collecting their reports. Gates depend on their predecessor in every second line, so that both independent and
+ * dependent gates are covered.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualityLineEvaluatorBenchmark {
+
+    @Param({ "10", "100" })
+    private int numberOfGates;
+
+    @Param({ "10" })
+    private int stepsPerGate;
+
+    @Param({ "false", "true" })
+    private boolean parallel;
+
+    @Param({ "false", "true" })
+    private boolean dependent;
+
+    private List<Gate> gates;
+
+    private BuildListener listener;
+
+    @Setup
+    public void createGates() {
+        gates = new ArrayList<Gate>();
+        for (int gate = 0; gate < numberOfGates; gate++) {
+            List<GateStep> steps = new ArrayList<GateStep>();
+            for (int step = 0; step < stepsPerGate; step++) {
+                steps.add(new StubStep("Step " + step + " of gate " + gate));
+            }
+            String dependsOn = dependent && gate > 0 ? "Gate " + (gate - 1) : null;
+            gates.add(new AndGate("Gate " + gate, steps, parallel, dependsOn));
+        }
+        listener = new StreamBuildListener(new NullOutputStream());
+    }
+
+    @Benchmark
+    public QualityLineReport evaluate() {
+        return new QualityLineEvaluator(gates).evaluate(null, null, listener);
+    }
+}
@@ -0,0 +1,46 @@
+package de.binarytree.plugins.qualitygates;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import de.binarytree.plugins.qualitygates.result.GateStepReport;
+
+/**
+ * A step which succeeds at once, so that benchmarks measure the code evaluating steps instead of the steps
+ * themselves. Its descriptor is created without Jenkins.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class StubStep extends GateStep {
+
+    private static final GateStepDescriptor DESCRIPTOR = new GateStepDescriptor(StubStep.class) {
+        @Override
+        public String getDisplayName() {
+            return "Stub Step";
+        }
+    };
+
+    private final String description;
+
+    public StubStep(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public void doStep(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener,
+            GateStepReport stepReport) {
+        stepReport.setResult(Result.SUCCESS);
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public GateStepDescriptor getDescriptor() {
+        return DESCRIPTOR;
+    }
+}
@@ -0,0 +1,72 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.binarytree.plugins.qualitygates.AndGate;
+import de.binarytree.plugins.qualitygates.GateStep;
+import de.binarytree.plugins.qualitygates.StubStep;
+
+/**
+ * Measures {@link ListContainer#addOrReplaceItem(Object)} by filling a gate report with the reports of its steps and
+ * replacing all of them afterwards, as done when a gate is re-evaluated.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListContainerBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    private int numberOfItems;
+
+    private AndGate gate;
+
+    private List<GateStepReport> stepReports;
+
+    private List<GateStepReport> replacingStepReports;
+
+    @Setup
+    public void createStepReports() {
+        List<GateStep> steps = new ArrayList<GateStep>();
+        stepReports = new ArrayList<GateStepReport>();
+        replacingStepReports = new ArrayList<GateStepReport>();
+        for (int i = 0; i < numberOfItems; i++) {
+            GateStep step = new StubStep("Step " + i);
+            steps.add(step);
+            stepReports.add(new GateStepReport(step));
+            replacingStepReports.add(new GateStepReport(step));
+        }
+        gate = new AndGate("Gate", steps);
+    }
+
+    @Benchmark
+    public GateReport addAndReplaceItems() {
+        GateReport gateReport = new GateReport(gate);
+        for (GateStepReport stepReport : stepReports) {
+            gateReport.addStepReport(stepReport);
+        }
+        for (GateStepReport stepReport : replacingStepReports) {
+            gateReport.addStepReport(stepReport);
+        }
+        return gateReport;
+    }
+}
@@ -0,0 +1,81 @@
+package de.binarytree.plugins.qualitygates.steps;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures evaluating an expression on a synthetic checkstyle report, once on a DOM by
+ * {@link XMLCheck#getMatchingNodes(java.io.InputStream)} and once by
+ * {@link XMLCheck#countMatchingNodes(java.io.InputStream)}, which streams through the report if the expression allows
+ * it. The size of the report is given by the number of files and errors per file, e.g.
+ * <code>-p numberOfFiles=100000</code> for a large one.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XMLCheckBenchmark {
+
+    private static final String[] SEVERITIES = { "error", "warning", "info" };
+
+    @Param({ "100", "1000", "10000" })
+    private int numberOfFiles;
+
+    @Param({ "10" })
+    private int errorsPerFile;
+
+    @Param({ "/checkstyle/file/error", "//error[@severity='error']" })
+    private String expression;
+
+    private byte[] report;
+
+    private XMLCheck check;
+
+    @Setup
+    public void createReport() throws UnsupportedEncodingException {
+        StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<checkstyle version=\"5.6\">\n");
+        for (int file = 0; file < numberOfFiles; file++) {
+            builder.append("<file name=\"/var/lib/jenkins/workspace/src/main/java/Class").append(file)
+                    .append(".java\">\n");
+            for (int error = 0; error < errorsPerFile; error++) {
+                builder.append("<error line=\"").append(error + 1).append("\" column=\"").append(error % 80)
+                        .append("\" severity=\"").append(SEVERITIES[error % SEVERITIES.length])
+                        .append("\" message=\"Line is longer than 120 characters.\"")
+                        .append(" source=\"com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck\"/>\n");
+            }
+            builder.append("</file>\n");
+        }
+        builder.append("</checkstyle>\n");
+        report = builder.toString().getBytes("UTF-8");
+        check = new XPathExpressionCountCheck("checkstyle-result.xml", expression, 0, 0);
+    }
+
+    @Benchmark
+    public int getMatchingNodes() throws Exception {
+        return check.getMatchingNodes(new ByteArrayInputStream(report)).getLength();
+    }
+
+    @Benchmark
+    public int countMatchingNodes() throws Exception {
+        return check.countMatchingNodes(new ByteArrayInputStream(report));
+    }
+}
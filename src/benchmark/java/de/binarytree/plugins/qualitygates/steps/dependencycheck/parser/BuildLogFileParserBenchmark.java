@@ -0,0 +1,120 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
+
+/**
+ * Compares parsing a synthetic build log line by line with parsing it through a memory mapped window. The size of the
+ * log is given in megabytes, e.g. <code>-p sizeInMegabytes=64</code> for a quick run.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BuildLogFileParserBenchmark {
+
+    private static final String[] MODULE_LOG = {
+            "[INFO] ------------------------------------------------------------------------",
+            "[INFO] Building module %d 1.0-SNAPSHOT",
+            "[INFO] ------------------------------------------------------------------------",
+            "[INFO] --- maven-resources-plugin:2.6:resources (default-resources) @ module%d ---",
+            "[INFO] Using 'UTF-8' encoding to copy filtered resources.",
+            "[INFO] --- maven-compiler-plugin:3.1:compile (default-compile) @ module%d ---",
+            "[INFO] Compiling 42 source files to /var/lib/jenkins/workspace/module%d/target/classes",
+            "[INFO] --- maven-surefire-plugin:2.16:test (default-test) @ module%d ---",
+            "Running de.binarytree.module%d.SomeTest",
+            "Tests run: 12, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.042 sec",
+            "[INFO] --- maven-enforcer-plugin:1.2:enforce (enforce-banned) @ module%d ---",
+            "[INFO] --- maven-dependency-plugin:2.8:analyze (default-cli) @ module%d ---",
+            "[WARNING] Used undeclared dependencies found:",
+            "[WARNING]    commons-io:commons-io:jar:2.4:compile",
+            "[WARNING] Unused declared dependencies found:",
+            "[WARNING]    junit:junit:jar:4.11:test",
+            "[INFO] --- maven-jar-plugin:2.4:jar (default-jar) @ module%d ---",
+            "[INFO] Building jar: /var/lib/jenkins/workspace/module%d/target/module.jar", };
+
+    private static final String FILLER = "[DEBUG] Adding project dependency artifact: some-artifact to classpath";
+
+    @Param({ "1024" })
+    private int sizeInMegabytes;
+
+    private File logFile;
+
+    @Setup(Level.Trial)
+    public void createLogFile() throws IOException {
+        logFile = File.createTempFile("synthetic_build", ".log");
+        long size = sizeInMegabytes * 1024L * 1024L;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), "UTF-8"));
+        try {
+            long written = 0;
+            for (int module = 0; written < size; module++) {
+                for (String line : MODULE_LOG) {
+                    written += writeLine(writer, String.format(line, module));
+                }
+                for (int i = 0; i < 200; i++) {
+                    written += writeLine(writer, FILLER);
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static int writeLine(Writer writer, String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        return line.length() + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLogFile() {
+        logFile.delete();
+    }
+
+    @Benchmark
+    public BuildLogFileParser parseLineByLine() throws IOException {
+        BuildLogFileParser parser = new BuildLogFileParser(Goal.DEPENDENCY_ANALYSE);
+        parser.parseLogFile(logFile, false);
+        return parser;
+    }
+
+    @Benchmark
+    public BuildLogFileParser parseMemoryMapped() throws IOException {
+        BuildLogFileParser parser = new BuildLogFileParser(Goal.DEPENDENCY_ANALYSE);
+        parser.parseLogFile(logFile, true);
+        return parser;
+    }
+
+    @Benchmark
+    public BuildLogFileParser parseAllGoalsMemoryMapped() throws IOException {
+        BuildLogFileParser parser = new BuildLogFileParser();
+        parser.parseLogFile(logFile, true);
+        return parser;
+    }
+}
@@ -0,0 +1,97 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.DependencyAnalysisParser.DependencyProblemTypesDetection;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.result.DependencyProblemType;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.result.MavenDependencyAnalysisResult;
+
+/**
+ * Measures parsing the dependency:analyze section of a reactor build with many modules, each reporting the same
+ * violations. Parsing the section in place is compared to splitting it into lines and deduplicating the violations in
+ * lists, as done before. The allocation rate is reported by the gc profiler of the benchmark profile.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependencyAnalysisParserBenchmark {
+
+    private static final Pattern ARTIFACT_PATTERN = Pattern.compile(".*:.*:.*:.*:.*");
+
+    @Param({ "10", "100", "1000" })
+    private int numberOfModules;
+
+    @Param({ "20" })
+    private int violationsPerModule;
+
+    private String section;
+
+    @Setup
+    public void createSection() {
+        StringBuilder builder = new StringBuilder();
+        for (int module = 0; module < numberOfModules; module++) {
+            builder.append("[WARNING] Used undeclared dependencies found:\n");
+            for (int i = 0; i < violationsPerModule; i++) {
+                builder.append("[WARNING]    org.example.module").append(module % 50).append(":artifact-").append(i)
+                        .append(":jar:1.").append(i).append(":compile\n");
+            }
+            builder.append("[WARNING] Unused declared dependencies found:\n");
+            for (int i = 0; i < violationsPerModule; i++) {
+                builder.append("[WARNING]    junit:junit-").append(i).append(":jar:4.11:test\n");
+            }
+            builder.append("[INFO] \n");
+        }
+        section = builder.toString();
+    }
+
+    @Benchmark
+    public MavenDependencyAnalysisResult parseInPlace() throws IOException {
+        return DependencyAnalysisParser.parseDependencyAnalyzeSection(section);
+    }
+
+    @Benchmark
+    public int parseWithLineCopies() throws IOException {
+        List<String> undeclared = new LinkedList<String>();
+        List<String> unused = new LinkedList<String>();
+        List<String> violations = null;
+        for (String line : IOUtils.readLines(new StringReader(section))) {
+            if (!StringUtils.isBlank(line)) {
+                DependencyProblemType problemType = DependencyProblemTypesDetection.matchAny(line);
+                if (problemType != null) {
+                    violations = problemType == DependencyProblemType.UNUSED ? unused : undeclared;
+                } else if (violations != null && ARTIFACT_PATTERN.matcher(line).matches()) {
+                    String violatingDependency = line.substring(line.lastIndexOf(']') + 1).trim();
+                    if (!violations.contains(violatingDependency)) {
+                        violations.add(violatingDependency);
+                    }
+                }
+            }
+        }
+        return undeclared.size() + unused.size();
+    }
+}
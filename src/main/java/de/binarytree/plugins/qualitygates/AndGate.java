@@ -6,14 +6,24 @@ import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
 import de.binarytree.plugins.qualitygates.result.GateReport;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
+import de.binarytree.plugins.qualitygates.result.Timing;
 
 /**
  * This class represents a gate consisting of multiple steps, which can be set
@@ -21,6 +31,20 @@ import de.binarytree.plugins.qualitygates.result.GateStepReport;
  * gate report which holds all performed checks and the result of the gate
  * itself. The gate always has the worst result of all of its checks.
  * 
+ * In parallel mode, steps are performed concurrently unless they are
+ * {@link GateStep#isSequentialOnly() sequential-only}. A sequential-only step
+ * waits for all steps before it and is finished before any following step
+ * starts. The report is assembled in configuration order nevertheless.
+ * 
+ * The time of each step and of the whole gate can be limited. Steps of a gate
+ * having a time limit are performed on the {@link TimedStepExecutor}, so that
+ * the evaluating thread stops waiting for a step which exceeds the limit. The
+ * time limit of a step starts when the step starts. A step exceeding a limit
+ * is interrupted and fails, steps not started before the time limit of the
+ * gate has passed are reported as not built. A step which ignores the
+ * interruption keeps its thread until it returns, the executor replaces the
+ * thread meanwhile and the report of the step is discarded.
+ * 
  * @author Marcel von Maltitz
  * 
  */
@@ -28,6 +52,12 @@ public class AndGate extends Gate {
 
     private List<GateStep> steps = new LinkedList<GateStep>();
 
+    private boolean parallel;
+
+    private int stepTimeout;
+
+    private int gateTimeout;
+
     /**
      * Creates a new AndGate containing the given steps and having the given
      * name
@@ -37,19 +67,89 @@ public class AndGate extends Gate {
      * @param steps
      *            the steps the gate shall perform
      */
-    @DataBoundConstructor
     public AndGate(String name, Collection<GateStep> steps) {
-        super(name);
+        this(name, steps, false, null);
+    }
+
+    /**
+     * Creates a new AndGate containing the given steps and having the given
+     * name
+     * 
+     * @param name
+     *            the name of the gate
+     * @param steps
+     *            the steps the gate shall perform
+     * @param parallel
+     *            whether or not steps may be performed concurrently
+     * @param dependsOn
+     *            the comma separated names of the gates this gate depends on
+     */
+    public AndGate(String name, Collection<GateStep> steps, boolean parallel,
+            String dependsOn) {
+        this(name, steps, parallel, dependsOn, 0, 0);
+    }
+
+    /**
+     * Creates a new AndGate containing the given steps and having the given
+     * name, whose steps and evaluation are limited in time.
+     * 
+     * @param name
+     *            the name of the gate
+     * @param steps
+     *            the steps the gate shall perform
+     * @param parallel
+     *            whether or not steps may be performed concurrently
+     * @param dependsOn
+     *            the comma separated names of the gates this gate depends on
+     * @param stepTimeout
+     *            the seconds each step may take from being started, 0 for no
+     *            limit
+     * @param gateTimeout
+     *            the seconds all steps together may take, 0 for no limit
+     */
+    @DataBoundConstructor
+    public AndGate(String name, Collection<GateStep> steps, boolean parallel,
+            String dependsOn, int stepTimeout, int gateTimeout) {
+        super(name, dependsOn);
         if (steps != null) {
             this.steps.addAll(steps);
         }
-
+        this.parallel = parallel;
+        this.stepTimeout = Math.max(0, stepTimeout);
+        this.gateTimeout = Math.max(0, gateTimeout);
     }
 
     public List<GateStep> getSteps() {
         return this.steps;
     }
 
+    public boolean isParallel() {
+        return this.parallel;
+    }
+
+    /**
+     * Returns the seconds each step may take from being started.
+     * 
+     * @return the time limit of each step or 0, if the steps are not limited
+     */
+    public int getStepTimeout() {
+        return this.stepTimeout;
+    }
+
+    /**
+     * Returns the seconds the steps of an evaluation of this gate may take
+     * together.
+     * 
+     * @return the time limit of the gate or 0, if the gate is not limited
+     */
+    public int getGateTimeout() {
+        return this.gateTimeout;
+    }
+
+    private boolean isTimeLimited() {
+        return this.stepTimeout > 0 || this.gateTimeout > 0;
+    }
+
     /**
      * Adds the given step at the end of the sequence of already existing steps
      * 
@@ -84,12 +184,58 @@ public class AndGate extends Gate {
         listener.getLogger().println("Processing gate " + this.getName());
         if (stepsAreAvailable()) {
             initializeReportWithSuccessResult(gateReport);
-            evaluateSteps(build, launcher, listener, gateReport);
+            evaluateSteps(build, launcher, listener, gateReport, this.steps);
         } else {
             reportGateAsEmpty(gateReport);
         }
     }
 
+    /**
+     * Resumes the evaluation at the first step which has not been built
+     * before, e.g. a manual check awaiting approval. The reports of all steps
+     * preceding it are taken over from the former report, the step itself and
+     * all following steps are performed again.
+     */
+    @Override
+    public void doResumedEvaluation(AbstractBuild<?, ?> build,
+            Launcher launcher, BuildListener listener, GateReport gateReport,
+            GateReport formerReport) {
+        List<GateStepReport> finishedStepReports = getFinishedStepReports(formerReport);
+        if (finishedStepReports.isEmpty()) {
+            doEvaluation(build, launcher, listener, gateReport);
+            return;
+        }
+        listener.getLogger().println(
+                "Resuming gate " + this.getName() + " after "
+                        + finishedStepReports.size() + " finished steps");
+        initializeReportWithSuccessResult(gateReport);
+        for (GateStepReport stepReport : finishedStepReports) {
+            addStepReportToGateReport(gateReport, stepReport);
+        }
+        evaluateSteps(build, launcher, listener, gateReport, this.steps
+                .subList(finishedStepReports.size(), this.steps.size()));
+    }
+
+    /**
+     * Returns the reports of the leading steps, which have been built
+     * according to the given report. Reports are matched with the steps by
+     * their position and, since the report may have been read again, by the
+     * type, name and description of their step.
+     */
+    private List<GateStepReport> getFinishedStepReports(GateReport formerReport) {
+        List<GateStepReport> finishedStepReports = new ArrayList<GateStepReport>();
+        List<GateStepReport> formerStepReports = formerReport.getStepReports();
+        for (int i = 0; i < this.steps.size() && i < formerStepReports.size(); i++) {
+            GateStepReport stepReport = formerStepReports.get(i);
+            if (!stepReport.isReportOf(this.steps.get(i))
+                    || stepReport.getResult().equals(Result.NOT_BUILT)) {
+                break;
+            }
+            finishedStepReports.add(stepReport);
+        }
+        return finishedStepReports;
+    }
+
     private void initializeReportWithSuccessResult(GateReport gateReport) {
         gateReport.setResult(Result.SUCCESS);
     }
@@ -99,14 +245,139 @@ public class AndGate extends Gate {
     }
 
     private void evaluateSteps(AbstractBuild<?, ?> build, Launcher launcher,
-            BuildListener listener, GateReport gateReport) {
-        for (GateStep step : this.steps) {
-            GateStepReport stepReport = processStep(build, launcher, listener,
-                    step);
+            BuildListener listener, GateReport gateReport,
+            List<GateStep> stepsToEvaluate) {
+        Deadline gateDeadline = Deadline.after(this.gateTimeout,
+                "Cancelled, gate exceeded its time limit of "
+                        + this.gateTimeout + " s");
+        for (GateStep step : stepsToEvaluate) {
+            step.announce(build);
+        }
+        if (this.parallel) {
+            evaluateStepsInParallel(build, launcher, listener, gateReport,
+                    stepsToEvaluate, gateDeadline);
+        } else {
+            for (GateStep step : stepsToEvaluate) {
+                GateStepReport stepReport = performStep(build, launcher,
+                        listener, step, gateDeadline);
+                addStepReportToGateReport(gateReport, stepReport);
+            }
+        }
+    }
+
+    private void evaluateStepsInParallel(final AbstractBuild<?, ?> build,
+            final Launcher launcher, final BuildListener listener,
+            GateReport gateReport, List<GateStep> stepsToEvaluate,
+            Deadline gateDeadline) {
+        List<RunningStep> runningSteps = new ArrayList<RunningStep>();
+        List<GateStepReport> stepReports = new ArrayList<GateStepReport>();
+        for (final GateStep step : stepsToEvaluate) {
+            if (step.isSequentialOnly()) {
+                collectStepReports(stepsToEvaluate, runningSteps, stepReports);
+                stepReports.add(performStep(build, launcher, listener, step,
+                        gateDeadline));
+            } else if (gateDeadline != null && gateDeadline.isExceeded()) {
+                runningSteps.add(null);
+            } else {
+                runningSteps.add(submitStep(build, launcher, listener, step,
+                        gateDeadline));
+            }
+        }
+        collectStepReports(stepsToEvaluate, runningSteps, stepReports);
+        for (GateStepReport stepReport : stepReports) {
             addStepReportToGateReport(gateReport, stepReport);
         }
     }
 
+    /**
+     * Performs the given step and waits for it. A step of a gate without time
+     * limits is performed by the calling thread.
+     */
+    private GateStepReport performStep(AbstractBuild<?, ?> build,
+            Launcher launcher, BuildListener listener, GateStep step,
+            Deadline gateDeadline) {
+        if (!isTimeLimited()) {
+            return processStep(build, launcher, listener, step);
+        }
+        if (gateDeadline != null && gateDeadline.isExceeded()) {
+            return reportStepAsNotStarted(step);
+        }
+        return awaitStepReport(
+                submitStep(build, launcher, listener, step, gateDeadline), step);
+    }
+
+    private RunningStep submitStep(AbstractBuild<?, ?> build,
+            Launcher launcher, BuildListener listener, GateStep step,
+            Deadline gateDeadline) {
+        RunningStep runningStep = new RunningStep(build, launcher, listener,
+                step, gateDeadline);
+        runningStep.future = (isTimeLimited() ? TimedStepExecutor.get()
+                : GateStepExecutor.get()).submit(runningStep);
+        return runningStep;
+    }
+
+    private GateStepReport reportStepAsNotStarted(GateStep step) {
+        GateStepReport stepReport = step.createEmptyGateStepReport();
+        stepReport.setResult(Result.NOT_BUILT,
+                "Not evaluated, gate exceeded its time limit of "
+                        + this.gateTimeout + " s");
+        return stepReport;
+    }
+
+    private void collectStepReports(List<GateStep> stepsToEvaluate,
+            List<RunningStep> runningSteps, List<GateStepReport> stepReports) {
+        for (RunningStep runningStep : runningSteps) {
+            GateStep step = stepsToEvaluate.get(stepReports.size());
+            if (runningStep == null) {
+                stepReports.add(reportStepAsNotStarted(step));
+            } else {
+                stepReports.add(awaitStepReport(runningStep, step));
+            }
+        }
+        runningSteps.clear();
+    }
+
+    private GateStepReport awaitStepReport(RunningStep runningStep,
+            GateStep step) {
+        GateStepReport stepReport;
+        try {
+            if (!runningStep.awaitStart()) {
+                return reportStepAsNotStarted(step);
+            }
+            stepReport = runningStep.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stepReport = reportStepAsAbandoned(runningStep, step,
+                    "Evaluation has been interrupted");
+        } catch (ExecutionException e) {
+            stepReport = step.createEmptyGateStepReport();
+            stepReport.setResult(Result.FAILURE, String.valueOf(e.getCause()));
+        } catch (TimeoutException e) {
+            stepReport = reportStepAsAbandoned(runningStep, step,
+                    runningStep.deadline.reasonIfExceeded);
+        }
+        return stepReport;
+    }
+
+    /**
+     * Gives up waiting for the given step and reports it as failed. The step
+     * itself does not record its result, once it has been given up.
+     */
+    private GateStepReport reportStepAsAbandoned(RunningStep runningStep,
+            GateStep step, String reason) {
+        runningStep.abandon();
+        GateStepReport stepReport = step.createEmptyGateStepReport();
+        stepReport.setResult(Result.FAILURE, reason);
+        if (runningStep.startTime != 0) {
+            Timing timing = new Timing(System.nanoTime()
+                    - runningStep.startTime, Timing.UNKNOWN, 0);
+            stepReport.setTiming(timing);
+            QualityLineMetrics.getInstance().recordStep(step,
+                    stepReport.getResult(), timing);
+        }
+        return stepReport;
+    }
+
     private void addStepReportToGateReport(GateReport gateReport,
             GateStepReport stepReport) {
         gateReport.addStepReport(stepReport);
@@ -150,6 +421,160 @@ public class AndGate extends Gate {
         return this.getNumberOfSteps() != 0;
     }
 
+    /**
+     * A step being performed by an executor. Its deadline is determined when
+     * it starts, so that the time it waits for a thread does not count
+     * towards its time limit.
+     */
+    private final class RunningStep implements Callable<GateStepReport> {
+        private static final int QUEUED = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int FINISHED = 2;
+
+        private static final int CANCELLED = 3;
+
+        private static final int ABANDONED = 4;
+
+        private final AbstractBuild<?, ?> build;
+
+        private final Launcher launcher;
+
+        private final BuildListener listener;
+
+        private final GateStep step;
+
+        private final Deadline gateDeadline;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private Future<GateStepReport> future;
+
+        private volatile Deadline deadline;
+
+        private volatile long startTime;
+
+        RunningStep(AbstractBuild<?, ?> build, Launcher launcher,
+                BuildListener listener, GateStep step, Deadline gateDeadline) {
+            this.build = build;
+            this.launcher = launcher;
+            this.listener = listener;
+            this.step = step;
+            this.gateDeadline = gateDeadline;
+        }
+
+        public GateStepReport call() {
+            if (!this.state.compareAndSet(QUEUED, RUNNING)) {
+                return null;
+            }
+            this.startTime = System.nanoTime();
+            this.deadline = Deadline.earlier(Deadline.after(stepTimeout,
+                    "Cancelled after exceeding the time limit of "
+                            + stepTimeout + " s"), this.gateDeadline);
+            this.started.countDown();
+            GateStep.setDeadlineOfCurrentThread(this.deadline == null ? null
+                    : Long.valueOf(this.deadline.time));
+            try {
+                return processStep(this.build, this.launcher, this.listener,
+                        this.step);
+            } finally {
+                GateStep.setDeadlineOfCurrentThread(null);
+                if (!this.state.compareAndSet(RUNNING, FINISHED)) {
+                    TimedStepExecutor.releaseThread();
+                }
+            }
+        }
+
+        /**
+         * Waits until the step has started, at most until the deadline of the
+         * gate has passed.
+         * 
+         * @return whether the step has started, false if it has been withdrawn
+         *         before
+         */
+        boolean awaitStart() throws InterruptedException {
+            if (this.gateDeadline == null) {
+                this.started.await();
+                return true;
+            }
+            if (!this.started.await(this.gateDeadline.getRemainingNanos(),
+                    TimeUnit.NANOSECONDS)) {
+                if (this.state.compareAndSet(QUEUED, CANCELLED)) {
+                    this.future.cancel(false);
+                    return false;
+                }
+                this.started.await();
+            }
+            return true;
+        }
+
+        GateStepReport await() throws InterruptedException,
+                ExecutionException, TimeoutException {
+            if (this.deadline == null) {
+                return this.future.get();
+            }
+            return this.future.get(this.deadline.getRemainingNanos(),
+                    TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Interrupts the step. If it is still running, its thread is replaced
+         * by the {@link TimedStepExecutor} until it returns.
+         */
+        void abandon() {
+            this.state.compareAndSet(QUEUED, CANCELLED);
+            this.future.cancel(true);
+            if (isTimeLimited()
+                    && this.state.compareAndSet(RUNNING, ABANDONED)) {
+                TimedStepExecutor.abandonThread();
+            }
+        }
+    }
+
+    /**
+     * A point in time measured by {@link System#nanoTime()} together with the
+     * reason given to a step which is cancelled when it has passed. No
+     * deadline is represented by null.
+     */
+    private static final class Deadline {
+        private final long time;
+
+        private final String reasonIfExceeded;
+
+        private Deadline(long time, String reasonIfExceeded) {
+            this.time = time;
+            this.reasonIfExceeded = reasonIfExceeded;
+        }
+
+        static Deadline after(int seconds, String reasonIfExceeded) {
+            if (seconds <= 0) {
+                return null;
+            }
+            return new Deadline(System.nanoTime()
+                    + TimeUnit.SECONDS.toNanos(seconds), reasonIfExceeded);
+        }
+
+        static Deadline earlier(Deadline first, Deadline second) {
+            if (first == null) {
+                return second;
+            } else if (second == null) {
+                return first;
+            }
+            return first.time - second.time <= 0 ? first : second;
+        }
+
+        long getRemainingNanos() {
+            return this.time - System.nanoTime();
+        }
+
+        boolean isExceeded() {
+            return getRemainingNanos() <= 0;
+        }
+    }
+
     @Extension
     public static class DescriptorImpl extends QualityGateDescriptor {
         @Override
@@ -0,0 +1,140 @@
+package de.binarytree.plugins.qualitygates;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * SHA-1 digests of the files examined during one evaluation of a quality line. Files in a workspace are hashed on the
+ * node holding the workspace, so that only the digest is transferred. Digests are memoized by the path, length and
+ * modification time of the file, so that several checks examining the same file read it only once per evaluation.
+ * The bytes read are counted for the current thread by {@link ReadCounter}.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class ContentDigest {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ConcurrentMap<String, String> digests = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the digest of the content of a file in the workspace of the given build.
+     *
+     * @param build
+     *            the build being evaluated
+     * @param file
+     *            the file, possibly located on another node
+     * @return the hexadecimal SHA-1 digest of the content or null, if the file does not exist
+     * @throws IOException
+     *             when the file cannot be read
+     * @throws InterruptedException
+     *             when the access to the node is interrupted
+     */
+    public static String of(AbstractBuild<?, ?> build, FilePath file) throws IOException, InterruptedException {
+        long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            return null;
+        }
+        ContentDigest memo = forBuild(build);
+        String key = keyOf(file.getRemote(), file.length(), lastModified);
+        String digest = memo == null ? null : memo.digests.get(key);
+        if (digest == null) {
+            digest = file.act(new DigestOfFile());
+            if (file.isRemote() && digest != null) {
+                ReadCounter.countRead(file.length());
+            }
+            if (memo != null && digest != null) {
+                memo.digests.putIfAbsent(key, digest);
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Returns the digest of the content of a file on the master, e.g. the log of the given build.
+     *
+     * @param build
+     *            the build being evaluated
+     * @param file
+     *            the file on the master
+     * @return the hexadecimal SHA-1 digest of the content or null, if the file does not exist
+     * @throws IOException
+     *             when the file cannot be read
+     */
+    public static String of(AbstractBuild<?, ?> build, File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        ContentDigest memo = forBuild(build);
+        String key = keyOf(file.getPath(), file.length(), file.lastModified());
+        String digest = memo == null ? null : memo.digests.get(key);
+        if (digest == null) {
+            digest = digestOf(file);
+            if (memo != null) {
+                memo.digests.putIfAbsent(key, digest);
+            }
+        }
+        return digest;
+    }
+
+    private static ContentDigest forBuild(AbstractBuild<?, ?> build) {
+        EvaluationScope scope = EvaluationScope.of(build);
+        if (scope == null) {
+            return null;
+        }
+        ContentDigest memo = scope.getAttachment(ContentDigest.class);
+        if (memo == null) {
+            memo = scope.attachIfAbsent(ContentDigest.class, new ContentDigest());
+        }
+        return memo;
+    }
+
+    private static String keyOf(String path, long length, long lastModified) {
+        return path + '@' + length + '@' + lastModified;
+    }
+
+    private static String digestOf(File file) throws IOException {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+        }
+        InputStream in = ReadCounter.count(new FileInputStream(file));
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                sha1.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return Util.toHexString(sha1.digest());
+    }
+
+    /**
+     * Computes the digest of a file on the node it is located on.
+     */
+    private static final class DigestOfFile implements FileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        public String invoke(File file, VirtualChannel channel) throws IOException {
+            return file.isFile() ? digestOf(file) : null;
+        }
+    }
+}
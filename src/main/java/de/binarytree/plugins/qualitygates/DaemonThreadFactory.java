@@ -0,0 +1,34 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads for the pools of the quality line, so that a running gate or step never prevents
+ * Jenkins from shutting down.
+ * 
+ * @author Marcel von Maltitz
+ * 
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String namePrefix;
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    /**
+     * Creates a factory for threads whose names start with the given prefix.
+     * 
+     * @param namePrefix
+     *            the prefix of the names of the created threads
+     */
+    public DaemonThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, this.namePrefix + " #" + this.threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,69 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed pool of daemon threads which is created on first use. Each kind of task of the quality line has a pool of
+ * its own, e.g. gates, their steps and re-evaluations, so that tasks waiting for nested tasks never occupy the threads
+ * these need. The size of a pool is read from the system property <code>&lt;owner&gt;.poolSize</code>, where
+ * <code>&lt;owner&gt;</code> is the name of the class holding the pool.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class DaemonThreadPool {
+
+    private final int size;
+
+    private final String threadNamePrefix;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Creates a pool, which does not start any thread before its first use.
+     *
+     * @param owner
+     *            the class holding the pool, which names the system property setting its size
+     * @param defaultSize
+     *            the size of the pool if the system property is not set
+     * @param threadNamePrefix
+     *            the prefix of the names of the threads of the pool
+     */
+    public DaemonThreadPool(Class<?> owner, int defaultSize, String threadNamePrefix) {
+        this.size = Math.max(1, Integer.getInteger(owner.getName() + ".poolSize", defaultSize));
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Returns the pool, creating it on first use.
+     *
+     * @return the pool
+     */
+    public synchronized ThreadPoolExecutor get() {
+        if (this.executor == null) {
+            this.executor = new ThreadPoolExecutor(this.size, this.size, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(this.threadNamePrefix));
+        }
+        return this.executor;
+    }
+
+    /**
+     * Returns the pool if it has been used before.
+     *
+     * @return the pool or null, if it has not been created yet
+     */
+    public synchronized ThreadPoolExecutor getIfCreated() {
+        return this.executor;
+    }
+
+    /**
+     * Returns the configured number of threads of the pool.
+     *
+     * @return the size of the pool
+     */
+    public int getSize() {
+        return this.size;
+    }
+}
@@ -0,0 +1,103 @@
+package de.binarytree.plugins.qualitygates;
+
+import hudson.model.AbstractBuild;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * State shared by all gates and steps while a quality line is evaluated for a build. A scope is opened by the
+ * {@link QualityLineEvaluator} when an evaluation starts and is discarded together with everything attached to it when
+ * the evaluation ends. Steps can use it to share expensive intermediate results, e.g. parsed documents.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class EvaluationScope {
+
+    private static final Map<AbstractBuild<?, ?>, EvaluationScope> ACTIVE_SCOPES = new IdentityHashMap<AbstractBuild<?, ?>, EvaluationScope>();
+
+    private final AbstractBuild<?, ?> build;
+
+    private final ConcurrentMap<Class<?>, Object> attachments = new ConcurrentHashMap<Class<?>, Object>();
+
+    private int openEvaluations;
+
+    private EvaluationScope(AbstractBuild<?, ?> build) {
+        this.build = build;
+    }
+
+    /**
+     * Opens the scope for an evaluation of the given build. If an evaluation of the build is already running, its scope
+     * is joined. Every call has to be paired with a call to {@link #close()}.
+     *
+     * @param build
+     *            the build to be evaluated
+     * @return the scope of the evaluation
+     */
+    public static EvaluationScope open(AbstractBuild<?, ?> build) {
+        synchronized (ACTIVE_SCOPES) {
+            EvaluationScope scope = ACTIVE_SCOPES.get(build);
+            if (scope == null) {
+                scope = new EvaluationScope(build);
+                ACTIVE_SCOPES.put(build, scope);
+            }
+            scope.openEvaluations++;
+            return scope;
+        }
+    }
+
+    /**
+     * Returns the scope of the currently running evaluation of the given build.
+     *
+     * @param build
+     *            the build being evaluated
+     * @return the scope of the evaluation or null, if the build is not being evaluated
+     */
+    public static EvaluationScope of(AbstractBuild<?, ?> build) {
+        synchronized (ACTIVE_SCOPES) {
+            return ACTIVE_SCOPES.get(build);
+        }
+    }
+
+    /**
+     * Ends the evaluation which opened this scope. When the last evaluation of the build ends, all attachments are
+     * discarded.
+     */
+    public void close() {
+        synchronized (ACTIVE_SCOPES) {
+            this.openEvaluations--;
+            if (this.openEvaluations == 0) {
+                ACTIVE_SCOPES.remove(this.build);
+                this.attachments.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the attachment of the given type.
+     *
+     * @param type
+     *            the type of the attachment
+     * @return the attachment or null, if none has been attached
+     */
+    public <T> T getAttachment(Class<T> type) {
+        return type.cast(this.attachments.get(type));
+    }
+
+    /**
+     * Attaches the given object to this scope, unless an attachment of the same type exists.
+     *
+     * @param type
+     *            the type of the attachment
+     * @param attachment
+     *            the object to attach
+     * @return the attachment of the given type which is valid in this scope
+     */
+    public <T> T attachIfAbsent(Class<T> type, T attachment) {
+        Object existing = this.attachments.putIfAbsent(type, attachment);
+        return existing == null ? attachment : type.cast(existing);
+    }
+}
@@ -7,7 +7,12 @@ import hudson.model.BuildListener;
 import hudson.model.Describable;
 import hudson.model.AbstractBuild;
 import hudson.model.Hudson;
+
+import java.util.LinkedList;
+import java.util.List;
+
 import de.binarytree.plugins.qualitygates.result.GateReport;
+import de.binarytree.plugins.qualitygates.result.Timing;
 
 /**
  * This class represents a single gate of the {@link QualityLine}.
@@ -23,6 +28,11 @@ import de.binarytree.plugins.qualitygates.result.GateReport;
  * {@link hudson.model.Result#NOT_BUILT} itself leads to a temporary
  * interruption of the line.
  * 
+ * A gate may declare the gates it depends on by their names. Such a gate is
+ * evaluated as soon as all of these gates have been evaluated successfully and
+ * is not affected by the failure of other gates. A gate without declared
+ * dependencies depends on the gate preceding it in the {@link QualityLine}.
+ * 
  * 
  * @author Marcel von Maltitz
  * 
@@ -31,6 +41,8 @@ public abstract class Gate implements Describable<Gate>, ExtensionPoint {
 
     private String name;
 
+    private String dependsOn;
+
     /**
      * Creates a new gate with the given name.
      * 
@@ -38,13 +50,28 @@ public abstract class Gate implements Describable<Gate>, ExtensionPoint {
      *            the name of the gate
      */
     public Gate(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Creates a new gate with the given name depending on the given gates.
+     * 
+     * @param name
+     *            the name of the gate
+     * @param dependsOn
+     *            the comma separated names of the gates this gate depends on.
+     *            When empty, the gate depends on its predecessor.
+     */
+    public Gate(String name, String dependsOn) {
         this.name = name;
+        this.dependsOn = dependsOn;
     }
 
     /**
      * Performs the evaluation implemented by
      * {@link #doEvaluation(AbstractBuild, Launcher, BuildListener, GateReport)}
-     * and returns a report about it.
+     * and returns a report about it. The time taken is recorded in the report
+     * together with the CPU time and bytes read by the steps of the gate.
      * 
      * @param build
      *            the build as given by Jenkins
@@ -56,8 +83,38 @@ public abstract class Gate implements Describable<Gate>, ExtensionPoint {
      */
     public GateReport evaluate(AbstractBuild<?, ?> build, Launcher launcher,
             BuildListener listener) {
+        return this.evaluate(build, launcher, listener, null);
+    }
+
+    /**
+     * Performs the evaluation like
+     * {@link #evaluate(AbstractBuild, Launcher, BuildListener)}, but resumes
+     * the evaluation documented by the given former report instead of
+     * starting over.
+     * 
+     * @param build
+     *            the build as given by Jenkins
+     * @param launcher
+     *            the launcher as given by Jenkins
+     * @param listener
+     *            the listener as given by Jenkins
+     * @param formerReport
+     *            the report of the former evaluation of this gate or null, if
+     *            the gate has not been evaluated before
+     * @return the gate report about the performed evaluation
+     */
+    public GateReport evaluate(AbstractBuild<?, ?> build, Launcher launcher,
+            BuildListener listener, GateReport formerReport) {
         GateReport gateReport = this.createEmptyGateReport();
-        this.doEvaluation(build, launcher, listener, gateReport);
+        long startTime = System.nanoTime();
+        if (formerReport == null) {
+            this.doEvaluation(build, launcher, listener, gateReport);
+        } else {
+            this.doResumedEvaluation(build, launcher, listener, gateReport,
+                    formerReport);
+        }
+        gateReport.setTiming(Timing.ofSteps(System.nanoTime() - startTime,
+                gateReport.getStepReports()));
         return gateReport;
     }
 
@@ -101,6 +158,26 @@ public abstract class Gate implements Describable<Gate>, ExtensionPoint {
     abstract void doEvaluation(AbstractBuild<?, ?> build, Launcher launcher,
             BuildListener listener, GateReport gateReport);
 
+    /**
+     * Resumes the evaluation documented by the given former report. Results of
+     * the former evaluation may be copied into the new report instead of
+     * being determined again. By default, the gate is evaluated from scratch
+     * using
+     * {@link #doEvaluation(AbstractBuild, Launcher, BuildListener, GateReport)}
+     * .
+     * 
+     * @param gateReport
+     *            the report where the gate has to document, whether its
+     *            evaluation has been successful
+     * @param formerReport
+     *            the report of the former evaluation of this gate
+     */
+    void doResumedEvaluation(AbstractBuild<?, ?> build, Launcher launcher,
+            BuildListener listener, GateReport gateReport,
+            GateReport formerReport) {
+        this.doEvaluation(build, launcher, listener, gateReport);
+    }
+
     public QualityGateDescriptor getDescriptor() {
         return (QualityGateDescriptor) Hudson.getInstance().getDescriptor(
                 getClass());
@@ -110,6 +187,28 @@ public abstract class Gate implements Describable<Gate>, ExtensionPoint {
         return this.name;
     }
 
+    public String getDependsOn() {
+        return this.dependsOn;
+    }
+
+    /**
+     * Returns the names of the gates this gate depends on.
+     * 
+     * @return the names of the gates this gate depends on, an empty list if
+     *         the gate depends on its predecessor
+     */
+    public List<String> getNamesOfDependencies() {
+        List<String> names = new LinkedList<String>();
+        if (this.dependsOn != null) {
+            for (String dependency : this.dependsOn.split(",")) {
+                if (dependency.trim().length() > 0) {
+                    names.add(dependency.trim());
+                }
+            }
+        }
+        return names;
+    }
+
     public static DescriptorExtensionList<Gate, QualityGateDescriptor> all() {
         return Hudson.getInstance()
                 .<Gate, QualityGateDescriptor> getDescriptorList(Gate.class);
@@ -0,0 +1,31 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds the bounded thread pool on which quality lines evaluate independent gates concurrently. It is separate from the
+ * pool of the {@link GateStepExecutor}, so that gates waiting for their steps never starve them. As gates mostly wait
+ * for their steps or the workspace, its size defaults to the number of available processors but at least four. It
+ * can be set with the system property
+ * <code>de.binarytree.plugins.qualitygates.GateExecutor.poolSize</code>.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class GateExecutor {
+
+    private static final DaemonThreadPool POOL = new DaemonThreadPool(GateExecutor.class, Math.max(4, Runtime
+            .getRuntime().availableProcessors()), "Quality gate executor");
+
+    private GateExecutor() {
+    }
+
+    /**
+     * Returns the pool shared by all quality lines, creating it on first use.
+     *
+     * @return the shared pool
+     */
+    public static ExecutorService get() {
+        return POOL.get();
+    }
+}
@@ -9,9 +9,14 @@ import hudson.model.Result;
 import hudson.model.AbstractBuild;
 import hudson.model.Hudson;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
+import de.binarytree.plugins.qualitygates.result.Timing;
 
 /**
  * This class represents a single step of a {@link Gate Gate}.
@@ -32,8 +37,17 @@ import de.binarytree.plugins.qualitygates.result.GateStepReport;
  * 
  */
 public abstract class GateStep implements Describable<GateStep>, ExtensionPoint {
+    public static final Logger LOGGER = Logger.getLogger(GateStep.class.getName());
+
+    private static final ThreadLocal<Long> DEADLINE_OF_CURRENT_THREAD = new ThreadLocal<Long>();
+
     /**
-     * Performs the evaluation of this step
+     * Performs the evaluation of this step. The time taken and bytes read by it are recorded in the returned report.
+     * If this step has already been performed on the same input, see {@link #getResultCacheKey(AbstractBuild)}, its
+     * former result is taken over from the {@link StepResultCache} instead. Results are only cached if they have not
+     * been caused by an exception and the evaluation has been neither interrupted nor exceeded its deadline, see
+     * {@link #setDeadlineOfCurrentThread(Long)}. The result of such an evaluation is not recorded in the
+     * {@link QualityLineMetrics} either, since the gate records the failure it has reported instead.
      * 
      * @param build the build provided by Jenkins
      * @param listener the listener provided by Jenkins
@@ -45,12 +59,96 @@ public abstract class GateStep implements Describable<GateStep>, ExtensionPoint
     public GateStepReport step(AbstractBuild<?, ?> build,
             BuildListener listener, Launcher launcher) {
         GateStepReport stepReport = this.createEmptyGateStepReport();
+        String cacheKey = obtainResultCacheKey(build);
+        Timing.Measurement measurement = Timing.start();
+        if (cacheKey == null || !StepResultCache.getDefault().restore(cacheKey, stepReport)) {
+            try {
+                this.doStep(build, launcher, listener, stepReport);
+            } catch (Exception e) {
+                failStepWithExceptionAsReason(stepReport, e);
+            }
+            if (cacheKey != null && stepReport.isCacheable() && !isAbandoned()) {
+                StepResultCache.getDefault().store(cacheKey, stepReport);
+            }
+        }
+        Timing timing = measurement.stop();
+        stepReport.setTiming(timing);
+        if (!isAbandoned()) {
+            QualityLineMetrics.getInstance().recordStep(this, stepReport.getResult(), timing);
+        }
+        return stepReport;
+    }
+
+    /**
+     * Whether the evaluation on the current thread has been given up by the gate waiting for it, because it has been
+     * interrupted or its deadline has passed.
+     */
+    private static boolean isAbandoned() {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        Long deadline = DEADLINE_OF_CURRENT_THREAD.get();
+        return deadline != null && deadline.longValue() - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Sets the point in time, measured by {@link System#nanoTime()}, after which the gate does not wait for the step
+     * performed by the current thread anymore. Has to be reset to null when the step has been performed.
+     * 
+     * @param deadline
+     *            the deadline of the current thread or null, if it has none
+     */
+    static void setDeadlineOfCurrentThread(Long deadline) {
+        if (deadline == null) {
+            DEADLINE_OF_CURRENT_THREAD.remove();
+        } else {
+            DEADLINE_OF_CURRENT_THREAD.set(deadline);
+        }
+    }
+
+    private String obtainResultCacheKey(AbstractBuild<?, ?> build) {
+        if (!StepResultCache.getDefault().isEnabled()) {
+            return null;
+        }
         try {
-            this.doStep(build, launcher, listener, stepReport);
+            return this.getResultCacheKey(build);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            failStepWithExceptionAsReason(stepReport, e);
+            LOGGER.log(Level.FINE, "Cannot determine the input of " + getClass().getName(), e);
         }
-        return stepReport;
+        return null;
+    }
+
+    /**
+     * Returns the key under which the result of this step is cached. Steps whose result only depends on their
+     * configuration and on an input, such as a report file, return a key identifying both, e.g. the class, the
+     * configuration and the path, length and modification time of the input. The key is determined before each
+     * evaluation and outside of its timing, so it must not read the input. If it cannot be determined, the step is
+     * performed as usual.
+     * 
+     * @param build
+     *            the build provided by Jenkins
+     * @return the key identifying this step and its input or null, if the result of this step must not be cached
+     * @throws IOException
+     *             when the input cannot be accessed
+     * @throws InterruptedException
+     *             when the access to the input is interrupted
+     */
+    protected String getResultCacheKey(AbstractBuild<?, ?> build) throws IOException, InterruptedException {
+        return null;
+    }
+
+    /**
+     * Announces that this step is about to be performed for the given build.
+     * Gates announce all their steps before performing the first one, so that
+     * steps examining the same input, e.g. a file on an agent, can examine it
+     * for all of them at once. The default implementation does nothing.
+     * 
+     * @param build
+     *            the build provided by Jenkins
+     */
+    protected void announce(AbstractBuild<?, ?> build) {
     }
 
     /**
@@ -67,13 +165,15 @@ public abstract class GateStep implements Describable<GateStep>, ExtensionPoint
      * {@link #doStep(AbstractBuild, Launcher, BuildListener, GateStepReport)}
      * the exception is caught and handled by this method. Based on the
      * exception information it can adjust the {@link GateStepReport}
-     * accordingly.
+     * accordingly. Steps catching exceptions themselves should use it as well,
+     * as it marks the report as not cacheable.
      * 
      * @param stepReport the stepReport for this step 
      * @param e the exception which has been thrown by {@link #doStep(AbstractBuild, Launcher, BuildListener, GateStepReport)}
      */
     protected void failStepWithExceptionAsReason(GateStepReport stepReport,
             Exception e) {
+        stepReport.markAsNotCacheable();
         stepReport.setResult(Result.FAILURE,
                 e.getMessage() + Arrays.toString(e.getStackTrace()));
     }
@@ -105,6 +205,19 @@ public abstract class GateStep implements Describable<GateStep>, ExtensionPoint
     public abstract void doStep(AbstractBuild<?, ?> build, Launcher launcher,
             BuildListener listener, GateStepReport stepReport);
 
+    /**
+     * Whether this step has to be performed on its own. Steps having side
+     * effects on the build or its workspace return true, so that a gate never
+     * performs them concurrently with other steps. Read-only analyses may be
+     * performed in parallel.
+     * 
+     * @return whether or not this step must not run concurrently with other
+     *         steps
+     */
+    public boolean isSequentialOnly() {
+        return false;
+    }
+
     /**
      * Returns a short textual description of this step.
      * 
@@ -0,0 +1,29 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds the bounded thread pool on which gates evaluate steps concurrently. Its size defaults to the number of
+ * available processors and can be set with the system property
+ * <code>de.binarytree.plugins.qualitygates.GateStepExecutor.poolSize</code>.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class GateStepExecutor {
+
+    private static final DaemonThreadPool POOL = new DaemonThreadPool(GateStepExecutor.class, Runtime.getRuntime()
+            .availableProcessors(), "Quality gate step executor");
+
+    private GateStepExecutor() {
+    }
+
+    /**
+     * Returns the pool shared by all gates, creating it on first use.
+     *
+     * @return the shared pool
+     */
+    public static ExecutorService get() {
+        return POOL.get();
+    }
+}
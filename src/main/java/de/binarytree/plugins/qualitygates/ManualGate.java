@@ -22,9 +22,21 @@ public class ManualGate extends AndGate {
      * @param name the name of the gate
      * 
      */
-    @DataBoundConstructor
     public ManualGate(String name) {
-        super(name, null);
+        this(name, null);
+    }
+
+    /**
+     * Creates a new ManualGate with the given name depending on the given
+     * gates.
+     * 
+     * @param name the name of the gate
+     * @param dependsOn the comma separated names of the gates this gate depends on
+     * 
+     */
+    @DataBoundConstructor
+    public ManualGate(String name, String dependsOn) {
+        super(name, null, false, dependsOn);
         this.setUpSingleManualCheck();
     }
 
@@ -0,0 +1,55 @@
+package de.binarytree.plugins.qualitygates;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
+
+/**
+ * The root of the quality gates plugin below the root of Jenkins. It has no page of its own and is not shown in the
+ * side panel, but serves the metrics of all quality lines at <code>qualitygates/metrics</code>.
+ * 
+ * @author Marcel von Maltitz
+ * 
+ */
+@Extension
+public class QualityGatesRootAction implements RootAction {
+
+    public static final String URL = "qualitygates";
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "Quality Gates";
+    }
+
+    public String getUrlName() {
+        return URL;
+    }
+
+    /**
+     * Returns the metrics of all quality lines in the plain text format of Prometheus, see
+     * {@link QualityLineMetrics#writeTo(java.io.Writer)}.
+     * 
+     * @param req
+     *            the stapler request provided by Jenkins
+     * @param res
+     *            the stapler response provided by Jenkins
+     * @throws IOException
+     *             when the response cannot be written
+     */
+    public void doMetrics(StaplerRequest req, StaplerResponse res) throws IOException {
+        res.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        PrintWriter writer = res.getWriter();
+        QualityLineMetrics.getInstance().writeTo(writer);
+        writer.flush();
+    }
+}
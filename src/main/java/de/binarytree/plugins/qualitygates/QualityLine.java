@@ -70,11 +70,30 @@ public class QualityLine extends Recorder implements Saveable {
         listener.getLogger().println("Starting QualityLine");
         QualityLineEvaluator gateEvaluator = getGateEvaluatorForGates();
         gateEvaluator.evaluate(build, launcher, listener);
-        build.addAction(new BuildResultAction(gateEvaluator));
+        BuildResultAction action = new BuildResultAction(build, gateEvaluator);
+        build.addAction(action);
+        saveResults(action, listener);
         listener.getLogger().println("Stopping QualityLine");
         return true;
     }
 
+    /**
+     * Saves the results of the evaluation next to the build. A failure is only reported, since the results are still
+     * available until the build is loaded again.
+     * 
+     * @param action
+     *            the action holding the results
+     * @param listener
+     *            the listener of the build
+     */
+    protected void saveResults(BuildResultAction action, BuildListener listener) {
+        try {
+            action.save();
+        } catch (IOException e) {
+            listener.getLogger().println("Saving the results of the quality line failed: " + e.getMessage());
+        }
+    }
+
     /**
      * Returns the object which does the actual evaluation of the gates and collection of reports.
      * 
@@ -5,8 +5,16 @@ import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 import de.binarytree.plugins.qualitygates.result.GateReport;
 import de.binarytree.plugins.qualitygates.result.QualityLineReport;
@@ -14,17 +22,29 @@ import de.binarytree.plugins.qualitygates.result.QualityLineReport;
 /**
  * This class holds the evaluation algorithm of the quality line. Each gate is
  * evaluated and the report built is saved. When a gate fails, the evaluation
- * normally happening after this gate is skipped. Nevertheless these gates,
- * which have not been executed are saved in the reported. 
- * 
+ * of the gates depending on it is skipped. Nevertheless these gates,
+ * which have not been executed are saved in the reported.
+ *
+ * Gates depend on their predecessor unless they declare their dependencies
+ * explicitly. Gates whose dependencies have all been evaluated at the same
+ * time are evaluated concurrently. The report always lists the gates in the
+ * order of the quality line.
+ *
+ * A gate which has not been fully executed before, e.g. because of a manual
+ * check awaiting approval, resumes its former evaluation, so that finished
+ * steps are not performed again.
+ *
  * @author Marcel von Maltitz
- * 
+ *
  */
 public class QualityLineEvaluator {
     private List<Gate> gates = new LinkedList<Gate>();
-    private boolean executeGates;
     private QualityLineReport qualityLineReport;
 
+    private enum DependencyState {
+        SATISFIED, PENDING, VIOLATED;
+    }
+
     public QualityLineEvaluator(List<Gate> gates) {
         this(gates, new QualityLineReport());
     }
@@ -39,57 +59,200 @@ public class QualityLineEvaluator {
 
     public QualityLineReport evaluate(AbstractBuild<?, ?> build, Launcher launcher,
             BuildListener listener) {
-        executeGates = true;
-        for (Gate gate : this.gates) {
-            evaluateGate(build, launcher, listener, gate);
+        EvaluationScope scope = EvaluationScope.open(build);
+        try {
+            reserveReportsInLineOrder();
+            evaluateGates(build, launcher, listener);
+        } finally {
+            scope.close();
         }
         return qualityLineReport;
     }
 
-    protected void evaluateGate(AbstractBuild<?, ?> build, Launcher launcher,
-            BuildListener listener, Gate gate) {
-        GateReport gateReport;
-        if (hasNotFullyBeenExecuted(gate)) {
-            gateReport = processGateAndReport(build, launcher, listener, gate);
-        } else {
-            gateReport = getFormerGateResultFor(gate);
+    private void reserveReportsInLineOrder() {
+        for (Gate gate : this.gates) {
+            if (this.qualityLineReport.getGateReportFor(gate) == null) {
+                this.qualityLineReport.addGateReport(gate.createEmptyGateReport());
+            }
         }
-        if (shouldStopExecutionDueTo(gateReport)) {
-            executeGates = false;
+    }
+
+    private void evaluateGates(final AbstractBuild<?, ?> build,
+            final Launcher launcher, final BuildListener listener) {
+        Map<Gate, List<Gate>> dependencies = resolveDependencies(listener);
+        Map<Gate, GateReport> evaluatedGates = new IdentityHashMap<Gate, GateReport>();
+        List<Gate> pendingGates = new LinkedList<Gate>(this.gates);
+        CompletionService<GateReport> gateExecution = new ExecutorCompletionService<GateReport>(
+                GateExecutor.get());
+        Map<Future<GateReport>, Gate> runningGates = new IdentityHashMap<Future<GateReport>, Gate>();
+        while (!pendingGates.isEmpty() || !runningGates.isEmpty()) {
+            List<Gate> executableGates = new LinkedList<Gate>();
+            boolean gatesHaveBeenSettled = false;
+            for (Iterator<Gate> iterator = pendingGates.iterator(); iterator.hasNext();) {
+                Gate gate = iterator.next();
+                DependencyState state = getStateOfDependencies(dependencies.get(gate), evaluatedGates);
+                if (state != DependencyState.PENDING) {
+                    iterator.remove();
+                    if (state == DependencyState.VIOLATED) {
+                        evaluatedGates.put(gate, addNotBuiltGateDocumentationToReport(gate));
+                        gatesHaveBeenSettled = true;
+                    } else if (hasNotFullyBeenExecuted(gate)) {
+                        executableGates.add(gate);
+                    } else {
+                        evaluatedGates.put(gate, getFormerGateResultFor(gate));
+                        gatesHaveBeenSettled = true;
+                    }
+                }
+            }
+            if (executableGates.isEmpty() && !gatesHaveBeenSettled && runningGates.isEmpty()) {
+                return;
+            } else if (executableGates.size() == 1 && runningGates.isEmpty()) {
+                Gate gate = executableGates.get(0);
+                evaluatedGates.put(gate, executeGateAndAddToReport(build, launcher, listener, gate));
+            } else {
+                for (final Gate gate : executableGates) {
+                    runningGates.put(gateExecution.submit(new Callable<GateReport>() {
+                        public GateReport call() {
+                            return executeGateAndAddToReport(build, launcher, listener, gate);
+                        }
+                    }), gate);
+                }
+                if (!gatesHaveBeenSettled && !runningGates.isEmpty()) {
+                    Future<GateReport> evaluation = awaitNextGate(gateExecution);
+                    if (evaluation == null) {
+                        cancel(runningGates);
+                        listener.getLogger().println("Evaluation of quality line has been interrupted");
+                        return;
+                    }
+                    Gate gate = runningGates.remove(evaluation);
+                    evaluatedGates.put(gate, getReportOf(evaluation, runningGates));
+                }
+            }
         }
     }
 
-    protected boolean hasNotFullyBeenExecuted(Gate gate) {
-        Result result = this.qualityLineReport.getResultFor(gate);
-        return result.equals(Result.NOT_BUILT);
+    private Future<GateReport> awaitNextGate(CompletionService<GateReport> gateExecution) {
+        try {
+            return gateExecution.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
 
-    private GateReport processGateAndReport(AbstractBuild<?, ?> build,
-            Launcher launcher, BuildListener listener, Gate gate) {
-        GateReport gateReport;
-        if (executeGates) {
-            gateReport = executeGateAndAddToReport(build, launcher, listener,
-                    gate);
-        } else {
-            gateReport = addNotBuiltGateDocumentationToReport(gate);
+    private GateReport getReportOf(Future<GateReport> evaluation, Map<Future<GateReport>, Gate> runningGates) {
+        try {
+            return evaluation.get();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("Completed evaluation cannot be interrupted", e);
+        } catch (ExecutionException e) {
+            cancel(runningGates);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void cancel(Map<Future<GateReport>, Gate> runningGates) {
+        for (Future<GateReport> evaluation : runningGates.keySet()) {
+            evaluation.cancel(true);
         }
-        return gateReport;
     }
 
+    /**
+     * Determines for every gate the gates it depends on. A dependency may only
+     * reference a gate placed before the depending gate. Gates with a
+     * dependency which cannot be resolved are mapped to null.
+     */
+    private Map<Gate, List<Gate>> resolveDependencies(BuildListener listener) {
+        Map<Gate, List<Gate>> dependencies = new IdentityHashMap<Gate, List<Gate>>();
+        List<Gate> predecessors = new LinkedList<Gate>();
+        for (Gate gate : this.gates) {
+            List<Gate> dependenciesOfGate = new LinkedList<Gate>();
+            List<String> names = gate.getNamesOfDependencies();
+            if (names.isEmpty() && !predecessors.isEmpty()) {
+                dependenciesOfGate.add(predecessors.get(0));
+            }
+            for (String name : names) {
+                Gate dependency = findGateNamed(name, predecessors);
+                if (dependency == null) {
+                    listener.getLogger().println(
+                            "Gate " + gate.getName() + " depends on " + name
+                                    + ", which is no preceding gate. Skipping it.");
+                    dependenciesOfGate = null;
+                    break;
+                }
+                dependenciesOfGate.add(dependency);
+            }
+            dependencies.put(gate, dependenciesOfGate);
+            predecessors.add(0, gate);
+        }
+        return dependencies;
+    }
+
+    private static Gate findGateNamed(String name, List<Gate> candidates) {
+        for (Gate candidate : candidates) {
+            if (name.equals(candidate.getName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private DependencyState getStateOfDependencies(List<Gate> dependencies,
+            Map<Gate, GateReport> evaluatedGates) {
+        if (dependencies == null) {
+            return DependencyState.VIOLATED;
+        }
+        DependencyState state = DependencyState.SATISFIED;
+        for (Gate dependency : dependencies) {
+            GateReport report = evaluatedGates.get(dependency);
+            if (report == null) {
+                state = DependencyState.PENDING;
+            } else if (shouldStopExecutionDueTo(report)) {
+                return DependencyState.VIOLATED;
+            }
+        }
+        return state;
+    }
+
+    protected boolean hasNotFullyBeenExecuted(Gate gate) {
+        Result result;
+        synchronized (this.qualityLineReport) {
+            result = this.qualityLineReport.getResultFor(gate);
+        }
+        return result.equals(Result.NOT_BUILT);
+    }
+
+    /**
+     * Evaluates the given gate and adds its report to the report of the line.
+     * Gates evaluated concurrently call it on the threads of the
+     * {@link GateExecutor}, so the report of the line is only accessed while
+     * holding its lock.
+     */
     protected GateReport executeGateAndAddToReport(AbstractBuild<?, ?> build,
             Launcher launcher, BuildListener listener, Gate gate) {
-        GateReport gateReport = gate.evaluate(build, launcher, listener);
-        qualityLineReport.addGateReport(gateReport);
+        GateReport gateReport = gate.evaluate(build, launcher, listener, getFormerGateResultFor(gate));
+        synchronized (this.qualityLineReport) {
+            qualityLineReport.addGateReport(gateReport);
+        }
         return gateReport;
     }
 
     private GateReport getFormerGateResultFor(Gate gate) {
-        return this.qualityLineReport.getGateReportFor(gate);
+        synchronized (this.qualityLineReport) {
+            return this.qualityLineReport.getGateReportFor(gate);
+        }
     }
 
     protected GateReport addNotBuiltGateDocumentationToReport(Gate gate) {
         GateReport gateReport = gate.createEmptyGateReport();
-        qualityLineReport.addGateReport(gateReport);
+        synchronized (this.qualityLineReport) {
+            qualityLineReport.addGateReport(gateReport);
+        }
         return gateReport;
     }
 
@@ -101,4 +264,4 @@ public class QualityLineEvaluator {
     public QualityLineReport getLatestResults() {
         return this.qualityLineReport;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.binarytree.plugins.qualitygates.metrics.Counter;
+
+/**
+ * Counts the bytes read by the current thread, so that the bytes read by a step can be determined as the difference of
+ * the counts before and after it. Steps run on a single thread each, even if a gate runs them in parallel. Only reads
+ * which are passed through {@link #count(InputStream)} or reported by {@link #countRead(long)} are counted.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class ReadCounter {
+
+    private static final ThreadLocal<long[]> BYTES_READ = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private ReadCounter() {
+    }
+
+    /**
+     * Returns the number of bytes read by the current thread so far.
+     *
+     * @return the number of bytes read
+     */
+    public static long getBytesReadByCurrentThread() {
+        return BYTES_READ.get()[0];
+    }
+
+    /**
+     * Adds the given number of bytes to the bytes read by the current thread.
+     *
+     * @param bytes
+     *            the number of bytes read
+     */
+    public static void countRead(long bytes) {
+        BYTES_READ.get()[0] += bytes;
+    }
+
+    /**
+     * Wraps the given stream, so that the bytes read from it are counted for the thread calling this method.
+     *
+     * @param stream
+     *            the stream to be counted
+     * @return a stream counting the bytes read from the given stream
+     */
+    public static InputStream count(InputStream stream) {
+        return new CountingInputStream(stream, BYTES_READ.get(), null);
+    }
+
+    /**
+     * Wraps the given stream like {@link #count(InputStream)}, but adds the bytes read to the given counter of all
+     * threads as well.
+     *
+     * @param stream
+     *            the stream to be counted
+     * @param total
+     *            the counter of all threads
+     * @return a stream counting the bytes read from the given stream
+     */
+    public static InputStream count(InputStream stream, Counter total) {
+        return new CountingInputStream(stream, BYTES_READ.get(), total);
+    }
+
+    /**
+     * Adds the bytes read to the counter of the thread which has created it. The counter is looked up once, so that
+     * reading single bytes does not look up the thread local. Skipped bytes are not counted, marks are not supported
+     * to not count bytes read again.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final long[] bytesRead;
+
+        private final Counter total;
+
+        private CountingInputStream(InputStream stream, long[] bytesRead, Counter total) {
+            super(stream);
+            this.bytesRead = bytesRead;
+            this.total = total;
+        }
+
+        private void countRead(int count) {
+            this.bytesRead[0] += count;
+            if (this.total != null) {
+                this.total.add(count);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int nextByte = super.read();
+            if (nextByte >= 0) {
+                countRead(1);
+            }
+            return nextByte;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                countRead(count);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+    }
+}
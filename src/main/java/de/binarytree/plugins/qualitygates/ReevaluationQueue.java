@@ -0,0 +1,205 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queues the re-evaluations of one quality line, e.g. after a manual check has been approved, and performs them one
+ * after another in the background. The re-evaluations of all builds share a bounded thread pool, whose size defaults
+ * to two and can be set with the system property
+ * <code>de.binarytree.plugins.qualitygates.ReevaluationQueue.poolSize</code>.
+ *
+ * Every submitted re-evaluation is represented by a {@link Ticket}, which can be used to poll its state. The most
+ * recent tickets are kept for this purpose.
+ *
+ * The queues of builds are kept by {@link #ofBuild(String, boolean)}. Only the most recently used idle queues are kept,
+ * so that the queues of builds which are not re-evaluated anymore are released.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class ReevaluationQueue {
+
+    private static final DaemonThreadPool POOL = new DaemonThreadPool(ReevaluationQueue.class, 2,
+            "Quality line reevaluation");
+
+    private static final int NUMBER_OF_KEPT_TICKETS = 16;
+
+    private static final int NUMBER_OF_KEPT_QUEUES = 64;
+
+    private static final AtomicLong TICKET_IDS = new AtomicLong();
+
+    private static final Map<String, ReevaluationQueue> QUEUES_OF_BUILDS = new LinkedHashMap<String, ReevaluationQueue>(
+            16, 0.75f, true);
+
+    private final LinkedList<Runnable> pendingReevaluations = new LinkedList<Runnable>();
+
+    private final LinkedList<Ticket> tickets = new LinkedList<Ticket>();
+
+    private boolean running;
+
+    /**
+     * The states a re-evaluation passes through.
+     */
+    public enum State {
+        QUEUED, RUNNING, FINISHED, FAILED;
+    }
+
+    /**
+     * Documents the state of a single submitted re-evaluation.
+     */
+    public static final class Ticket {
+        private final long id = TICKET_IDS.incrementAndGet();
+
+        private volatile State state = State.QUEUED;
+
+        private volatile String reason;
+
+        public long getId() {
+            return this.id;
+        }
+
+        public State getState() {
+            return this.state;
+        }
+
+        /**
+         * Returns the reason why the re-evaluation failed.
+         *
+         * @return the reason of the failure or null, if the re-evaluation has not failed
+         */
+        public String getReason() {
+            return this.reason;
+        }
+
+        /**
+         * Whether or not the re-evaluation has been performed, be it successfully or not.
+         *
+         * @return whether or not the re-evaluation is done
+         */
+        public boolean isDone() {
+            return this.state == State.FINISHED || this.state == State.FAILED;
+        }
+    }
+
+    /**
+     * Returns the queue shared by all re-evaluations of the given build.
+     *
+     * @param buildId
+     *            the externalizable id of the build
+     * @param create
+     *            whether or not the queue shall be created, if the build has none
+     * @return the queue of the build or null, if it has none and none shall be created
+     */
+    public static ReevaluationQueue ofBuild(String buildId, boolean create) {
+        synchronized (QUEUES_OF_BUILDS) {
+            ReevaluationQueue queue = QUEUES_OF_BUILDS.get(buildId);
+            if (queue == null && create) {
+                queue = new ReevaluationQueue();
+                QUEUES_OF_BUILDS.put(buildId, queue);
+                releaseIdleQueues(queue);
+            }
+            return queue;
+        }
+    }
+
+    private static void releaseIdleQueues(ReevaluationQueue queueInUse) {
+        Iterator<ReevaluationQueue> iterator = QUEUES_OF_BUILDS.values().iterator();
+        while (QUEUES_OF_BUILDS.size() > NUMBER_OF_KEPT_QUEUES && iterator.hasNext()) {
+            ReevaluationQueue queue = iterator.next();
+            if (queue != queueInUse && !queue.isBusy()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Queues the given re-evaluation. It is performed after all re-evaluations submitted before have been performed.
+     *
+     * @param reevaluation
+     *            the re-evaluation to be performed
+     * @return the ticket documenting the state of the re-evaluation
+     */
+    public synchronized Ticket submit(final Callable<?> reevaluation) {
+        final Ticket ticket = new Ticket();
+        this.keep(ticket);
+        this.pendingReevaluations.add(new Runnable() {
+            public void run() {
+                ticket.state = State.RUNNING;
+                try {
+                    reevaluation.call();
+                    ticket.state = State.FINISHED;
+                } catch (Exception e) {
+                    ticket.reason = String.valueOf(e);
+                    ticket.state = State.FAILED;
+                } finally {
+                    if (!ticket.isDone()) {
+                        ticket.reason = "Re-evaluation has been aborted";
+                        ticket.state = State.FAILED;
+                    }
+                    performNextReevaluation();
+                }
+            }
+        });
+        if (!this.running) {
+            this.performNextReevaluation();
+        }
+        return ticket;
+    }
+
+    private synchronized void performNextReevaluation() {
+        Runnable nextReevaluation = this.pendingReevaluations.poll();
+        this.running = nextReevaluation != null;
+        if (this.running) {
+            POOL.get().execute(nextReevaluation);
+        }
+    }
+
+    private void keep(Ticket ticket) {
+        this.tickets.addLast(ticket);
+        Iterator<Ticket> iterator = this.tickets.iterator();
+        while (this.tickets.size() > NUMBER_OF_KEPT_TICKETS && iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the ticket with the given id, as long as it is one of the recent tickets of this queue.
+     *
+     * @param id
+     *            the id of the ticket
+     * @return the ticket or null, if it is unknown
+     */
+    public synchronized Ticket getTicket(long id) {
+        for (Ticket ticket : this.tickets) {
+            if (ticket.getId() == id) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether or not a re-evaluation is running or waiting to be performed.
+     *
+     * @return whether or not this queue is busy
+     */
+    public synchronized boolean isBusy() {
+        return this.running;
+    }
+
+    /**
+     * Returns the number of re-evaluations waiting for the running one to finish.
+     *
+     * @return the number of waiting re-evaluations
+     */
+    public synchronized int getNumberOfPendingReevaluations() {
+        return this.pendingReevaluations.size();
+    }
+}
@@ -0,0 +1,181 @@
+package de.binarytree.plugins.qualitygates;
+
+import hudson.model.Result;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.binarytree.plugins.qualitygates.result.GateStepReport;
+
+/**
+ * A bounded cache of the results of steps keyed by their input, see {@link GateStep#getResultCacheKey(
+ * hudson.model.AbstractBuild)}. When a rebuild leaves the input of a step unchanged, the step takes over its former
+ * result and reason instead of being performed again. The least recently used result is evicted when the cache is
+ * full. Its size defaults to {@value #DEFAULT_MAXIMUM_SIZE} and can be set with the system property
+ * <code>de.binarytree.plugins.qualitygates.StepResultCache.maximumSize</code>, 0 disables the cache.
+ *
+ * The results are not persisted, they are kept until Jenkins is stopped.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class StepResultCache {
+
+    /**
+     * Number of results kept by default.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private static final StepResultCache DEFAULT_INSTANCE = new StepResultCache(Integer.getInteger(
+            StepResultCache.class.getName() + ".maximumSize", DEFAULT_MAXIMUM_SIZE));
+
+    private final int maximumSize;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final CachedResults cachedResults;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumSize
+     *            the number of results the cache may keep, 0 to keep none
+     */
+    public StepResultCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        this.cachedResults = new CachedResults(maximumSize);
+    }
+
+    /**
+     * Returns the cache shared by all steps.
+     *
+     * @return the shared cache
+     */
+    public static StepResultCache getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Whether or not this cache keeps any results.
+     *
+     * @return false, if the maximum size is 0
+     */
+    public boolean isEnabled() {
+        return this.maximumSize > 0;
+    }
+
+    /**
+     * Sets the result and reason cached for the given key in the given report.
+     *
+     * @param key
+     *            the key identifying the step and its input
+     * @param stepReport
+     *            the report to take over the cached result
+     * @return whether or not a result has been cached for the key
+     */
+    public boolean restore(String key, GateStepReport stepReport) {
+        CachedResult cachedResult;
+        synchronized (this.cachedResults) {
+            cachedResult = this.cachedResults.get(key);
+        }
+        if (cachedResult == null) {
+            this.misses.incrementAndGet();
+            return false;
+        }
+        this.hits.incrementAndGet();
+        stepReport.setResult(cachedResult.result, cachedResult.reason);
+        return true;
+    }
+
+    /**
+     * Caches the result and reason of the given report for the given key.
+     *
+     * @param key
+     *            the key identifying the step and its input
+     * @param stepReport
+     *            the report of the step performed on the input
+     */
+    public void store(String key, GateStepReport stepReport) {
+        if (!isEnabled()) {
+            return;
+        }
+        CachedResult cachedResult = new CachedResult(stepReport.getResult(), stepReport.getReason());
+        synchronized (this.cachedResults) {
+            this.cachedResults.put(key, cachedResult);
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Returns the number of results currently cached.
+     *
+     * @return the number of cached results
+     */
+    public int size() {
+        synchronized (this.cachedResults) {
+            return this.cachedResults.size();
+        }
+    }
+
+    /**
+     * Drops all cached results and resets the counters.
+     */
+    public void clear() {
+        synchronized (this.cachedResults) {
+            this.cachedResults.clear();
+        }
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * The result and reason of a step.
+     */
+    private static final class CachedResult {
+        private final Result result;
+
+        private final String reason;
+
+        CachedResult(Result result, String reason) {
+            this.result = result;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * The cached results, evicting the least recently used one when full.
+     */
+    private static final class CachedResults extends LinkedHashMap<String, CachedResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        CachedResults(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > this.maximumSize;
+        }
+    }
+}
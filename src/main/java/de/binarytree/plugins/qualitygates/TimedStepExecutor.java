@@ -0,0 +1,84 @@
+package de.binarytree.plugins.qualitygates;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Holds the thread pool on which gates having a time limit perform their steps. A step exceeding its limit is
+ * interrupted, but keeps its thread until it returns. The pool grows by one thread for every such abandoned step, so
+ * that it does not starve the steps evaluated after it, and shrinks again when the step returns. The number of
+ * additional threads is limited by the system property
+ * <code>de.binarytree.plugins.qualitygates.TimedStepExecutor.maxAbandonedThreads</code>, which defaults to 16. The
+ * regular size of the pool defaults to the number of available processors and can be set with the system property
+ * <code>de.binarytree.plugins.qualitygates.TimedStepExecutor.poolSize</code>.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class TimedStepExecutor {
+
+    private static final DaemonThreadPool POOL = new DaemonThreadPool(TimedStepExecutor.class, Runtime.getRuntime()
+            .availableProcessors(), "Quality gate timed step executor");
+
+    private static final int MAX_ABANDONED_THREADS = Math.max(0, Integer.getInteger(TimedStepExecutor.class.getName()
+            + ".maxAbandonedThreads", 16));
+
+    private static int abandonedThreads;
+
+    private TimedStepExecutor() {
+    }
+
+    /**
+     * Returns the pool shared by all gates having a time limit, creating it on first use.
+     *
+     * @return the shared pool
+     */
+    public static synchronized ExecutorService get() {
+        boolean firstUse = POOL.getIfCreated() == null;
+        ExecutorService executor = POOL.get();
+        if (firstUse) {
+            resize();
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the number of threads kept by steps which have exceeded their time limit and have not returned yet.
+     *
+     * @return the number of abandoned threads
+     */
+    public static synchronized int getNumberOfAbandonedThreads() {
+        return Math.max(0, abandonedThreads);
+    }
+
+    /**
+     * Replaces the thread of a step which has exceeded its time limit and is still running.
+     */
+    static synchronized void abandonThread() {
+        abandonedThreads++;
+        resize();
+    }
+
+    /**
+     * Gives up the replacement of a thread, because its abandoned step has returned.
+     */
+    static synchronized void releaseThread() {
+        abandonedThreads--;
+        resize();
+    }
+
+    private static void resize() {
+        ThreadPoolExecutor executor = POOL.getIfCreated();
+        if (executor == null) {
+            return;
+        }
+        int size = POOL.getSize() + Math.min(Math.max(0, abandonedThreads), MAX_ABANDONED_THREADS);
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.binarytree.plugins.qualitygates.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A metric which only increases, e.g. the number of bytes parsed.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class Counter {
+
+    private final AtomicLong value = new AtomicLong();
+
+    Counter() {
+    }
+
+    public void increment() {
+        this.value.incrementAndGet();
+    }
+
+    /**
+     * Adds the given amount to this counter.
+     *
+     * @param amount
+     *            the amount to be added, must not be negative
+     */
+    public void add(long amount) {
+        this.value.addAndGet(amount);
+    }
+
+    public long get() {
+        return this.value.get();
+    }
+}
@@ -0,0 +1,21 @@
+package de.binarytree.plugins.qualitygates.metrics;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Stops counting the manual checks of a deleted build as pending in the {@link QualityLineMetrics}, since they cannot
+ * be approved anymore.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@Extension
+public class DeletedBuildListener extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onDeleted(Run<?, ?> build) {
+        QualityLineMetrics.getInstance().buildDeleted(build.getExternalizableId());
+    }
+}
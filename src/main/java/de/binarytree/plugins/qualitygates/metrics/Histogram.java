@@ -0,0 +1,76 @@
+package de.binarytree.plugins.qualitygates.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets of fixed upper bounds, together with their number and sum. Observing a duration only
+ * increments counters, so that it can be done for every evaluation of a step.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class Histogram {
+
+    private static final long NANOS_PER_MILLISECOND = 1000000L;
+
+    /**
+     * The upper bounds of the buckets in milliseconds. Durations above the last bound are only counted in total.
+     */
+    static final long[] BOUNDS_IN_MILLISECONDS = { 1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 30000, 60000, 300000 };
+
+    private final AtomicLongArray countsOfBuckets = new AtomicLongArray(BOUNDS_IN_MILLISECONDS.length);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    Histogram() {
+    }
+
+    /**
+     * Counts the given duration.
+     *
+     * @param nanos
+     *            the duration in nanoseconds
+     */
+    public void observe(long nanos) {
+        for (int i = 0; i < BOUNDS_IN_MILLISECONDS.length; i++) {
+            if (nanos <= BOUNDS_IN_MILLISECONDS[i] * NANOS_PER_MILLISECOND) {
+                this.countsOfBuckets.incrementAndGet(i);
+                break;
+            }
+        }
+        this.count.incrementAndGet();
+        this.sum.addAndGet(nanos);
+    }
+
+    /**
+     * Returns the number of durations up to the upper bound of the given bucket, including those of all smaller
+     * buckets.
+     *
+     * @param bucket
+     *            the index of the bucket in {@link #BOUNDS_IN_MILLISECONDS}
+     * @return the cumulative count of the bucket
+     */
+    long getCumulativeCount(int bucket) {
+        long cumulativeCount = 0;
+        for (int i = 0; i <= bucket; i++) {
+            cumulativeCount += this.countsOfBuckets.get(i);
+        }
+        return cumulativeCount;
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the sum of all durations in nanoseconds.
+     *
+     * @return the sum of all durations
+     */
+    public long getSum() {
+        return this.sum.get();
+    }
+}
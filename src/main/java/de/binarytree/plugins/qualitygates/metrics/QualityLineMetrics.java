@@ -0,0 +1,245 @@
+package de.binarytree.plugins.qualitygates.metrics;
+
+import hudson.model.Result;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.binarytree.plugins.qualitygates.GateStep;
+import de.binarytree.plugins.qualitygates.StepResultCache;
+import de.binarytree.plugins.qualitygates.result.Timing;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathExpressionCache;
+
+/**
+ * Collects metrics about the evaluation of quality lines since Jenkins has been started: the duration of steps by their
+ * type, the results of steps, the bytes parsed by the parsers of XML files and build logs, the number of manual
+ * checks waiting for approval and the hits and misses of the {@link StepResultCache}. The metrics are written in the plain text format scraped by Prometheus, see
+ * {@link #writeTo(Writer)}.
+ *
+ * Metrics are looked up by class or result, never by names built while evaluating, so that recording them is cheap.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class QualityLineMetrics {
+
+    /**
+     * The parser of XML files, used by {@link de.binarytree.plugins.qualitygates.steps.XMLCheck}.
+     */
+    public static final String XML_PARSER = "XMLCheck";
+
+    /**
+     * The parser of build logs, used by the dependency checks.
+     */
+    public static final String BUILD_LOG_PARSER = "BuildLogFileParser";
+
+    private static final QualityLineMetrics INSTANCE = new QualityLineMetrics();
+
+    private final ConcurrentMap<Class<?>, Histogram> durationsOfSteps = new ConcurrentHashMap<Class<?>, Histogram>();
+
+    private final ConcurrentMap<Result, Counter> resultsOfSteps = new ConcurrentHashMap<Result, Counter>();
+
+    private final Counter bytesParsedFromXml = new Counter();
+
+    private final Counter bytesParsedFromBuildLogs = new Counter();
+
+    // The builds which have requested the pending manual approvals, by the hashes of the requests
+    private final ConcurrentMap<String, String> pendingManualApprovals = new ConcurrentHashMap<String, String>();
+
+    QualityLineMetrics() {
+    }
+
+    /**
+     * Returns the metrics of this Jenkins.
+     *
+     * @return the metrics
+     */
+    public static QualityLineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the evaluation of the given step.
+     *
+     * @param step
+     *            the step which has been evaluated
+     * @param result
+     *            the result of the step
+     * @param timing
+     *            the timing of the step
+     */
+    public void recordStep(GateStep step, Result result, Timing timing) {
+        getDurationsOf(step.getClass()).observe(timing.getWallTime());
+        getCounterOf(result).increment();
+    }
+
+    private Histogram getDurationsOf(Class<?> typeOfStep) {
+        Histogram durations = this.durationsOfSteps.get(typeOfStep);
+        if (durations == null) {
+            Histogram newDurations = new Histogram();
+            durations = this.durationsOfSteps.putIfAbsent(typeOfStep, newDurations);
+            if (durations == null) {
+                durations = newDurations;
+            }
+        }
+        return durations;
+    }
+
+    private Counter getCounterOf(Result result) {
+        Counter counter = this.resultsOfSteps.get(result);
+        if (counter == null) {
+            Counter newCounter = new Counter();
+            counter = this.resultsOfSteps.putIfAbsent(result, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the counter of the bytes parsed from XML files.
+     *
+     * @return the counter of bytes parsed by the {@link #XML_PARSER}
+     */
+    public Counter getBytesParsedFromXml() {
+        return this.bytesParsedFromXml;
+    }
+
+    /**
+     * Returns the counter of the bytes parsed from build logs.
+     *
+     * @return the counter of bytes parsed by the {@link #BUILD_LOG_PARSER}
+     */
+    public Counter getBytesParsedFromBuildLogs() {
+        return this.bytesParsedFromBuildLogs;
+    }
+
+    /**
+     * Counts a request of a manual check which has started to wait for approval.
+     *
+     * @param build
+     *            the externalizable id of the build which has requested the approval, may be null
+     * @param hash
+     *            the hash identifying the request, may be null
+     */
+    public void manualApprovalRequested(String build, String hash) {
+        if (hash != null) {
+            this.pendingManualApprovals.put(hash, build == null ? "" : build);
+        }
+    }
+
+    /**
+     * Stops counting a request of a manual check, because it has been (dis)approved or replaced by another request.
+     * Requests which have not been counted are ignored.
+     *
+     * @param hash
+     *            the hash identifying the request, may be null
+     */
+    public void manualApprovalGiven(String hash) {
+        if (hash != null) {
+            this.pendingManualApprovals.remove(hash);
+        }
+    }
+
+    /**
+     * Stops counting the requests of the given build, because it has been deleted.
+     *
+     * @param build
+     *            the externalizable id of the build
+     */
+    public void buildDeleted(String build) {
+        this.pendingManualApprovals.values().removeAll(Collections.singleton(build));
+    }
+
+    public int getPendingManualApprovals() {
+        return this.pendingManualApprovals.size();
+    }
+
+    /**
+     * Writes all metrics in the plain text exposition format of Prometheus, version 0.0.4.
+     *
+     * @param writer
+     *            the writer to write the metrics to
+     * @throws IOException
+     *             when writing fails
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writeHeader(writer, "qualitygates_step_duration_seconds", "histogram",
+                "Duration of the evaluation of steps by their type.");
+        for (Map.Entry<String, Histogram> durations : sortByName(this.durationsOfSteps).entrySet()) {
+            writeHistogram(writer, "qualitygates_step_duration_seconds", "step", durations.getKey(),
+                    durations.getValue());
+        }
+        writeHeader(writer, "qualitygates_step_results_total", "counter", "Number of evaluated steps by their result.");
+        for (Map.Entry<Result, Counter> counter : this.resultsOfSteps.entrySet()) {
+            writeSample(writer, "qualitygates_step_results_total{result=\"" + counter.getKey() + "\"}", counter
+                    .getValue().get());
+        }
+        writeHeader(writer, "qualitygates_parsed_bytes_total", "counter", "Number of bytes parsed by the parsers.");
+        writeSample(writer, "qualitygates_parsed_bytes_total{parser=\"" + XML_PARSER + "\"}",
+                this.bytesParsedFromXml.get());
+        writeSample(writer, "qualitygates_parsed_bytes_total{parser=\"" + BUILD_LOG_PARSER + "\"}",
+                this.bytesParsedFromBuildLogs.get());
+        writeHeader(writer, "qualitygates_pending_manual_approvals", "gauge",
+                "Number of manual checks waiting for approval.");
+        writeSample(writer, "qualitygates_pending_manual_approvals", getPendingManualApprovals());
+        StepResultCache stepResultCache = StepResultCache.getDefault();
+        writeHeader(writer, "qualitygates_step_result_cache_hits_total", "counter",
+                "Number of steps whose result has been taken from the cache.");
+        writeSample(writer, "qualitygates_step_result_cache_hits_total", stepResultCache.getHits());
+        writeHeader(writer, "qualitygates_step_result_cache_misses_total", "counter",
+                "Number of cacheable steps which have been performed.");
+        writeSample(writer, "qualitygates_step_result_cache_misses_total", stepResultCache.getMisses());
+        XPathExpressionCache xpathCache = XPathExpressionCache.getDefault();
+        writeHeader(writer, "qualitygates_xpath_cache_hits_total", "counter",
+                "Number of XPath expressions which have been taken from the cache.");
+        writeSample(writer, "qualitygates_xpath_cache_hits_total", xpathCache.getHits());
+        writeHeader(writer, "qualitygates_xpath_cache_misses_total", "counter",
+                "Number of XPath expressions which have been compiled.");
+        writeSample(writer, "qualitygates_xpath_cache_misses_total", xpathCache.getMisses());
+    }
+
+    private static Map<String, Histogram> sortByName(Map<Class<?>, Histogram> durationsOfSteps) {
+        Map<String, Histogram> sortedDurations = new TreeMap<String, Histogram>();
+        for (Map.Entry<Class<?>, Histogram> durations : durationsOfSteps.entrySet()) {
+            sortedDurations.put(nameOf(durations.getKey()), durations.getValue());
+        }
+        return sortedDurations;
+    }
+
+    /**
+     * Returns the simple name of the given type of step. Anonymous types are named by their fully qualified name.
+     */
+    private static String nameOf(Class<?> typeOfStep) {
+        String name = typeOfStep.getSimpleName();
+        return name.length() == 0 ? typeOfStep.getName() : name;
+    }
+
+    private static void writeHeader(Writer writer, String name, String type, String help) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void writeHistogram(Writer writer, String name, String labelName, String labelValue,
+            Histogram histogram) throws IOException {
+        String label = labelName + "=\"" + labelValue + "\"";
+        for (int i = 0; i < Histogram.BOUNDS_IN_MILLISECONDS.length; i++) {
+            String bound = Double.toString(Histogram.BOUNDS_IN_MILLISECONDS[i] / 1000.0);
+            writeSample(writer, name + "_bucket{" + label + ",le=\"" + bound + "\"}", histogram.getCumulativeCount(i));
+        }
+        long count = histogram.getCount();
+        writeSample(writer, name + "_bucket{" + label + ",le=\"+Inf\"}", count);
+        writer.write(name + "_sum{" + label + "} " + histogram.getSum() / 1e9 + "\n");
+        writeSample(writer, name + "_count{" + label + "}", count);
+    }
+
+    private static void writeSample(Writer writer, String sample, long value) throws IOException {
+        writer.write(sample + " " + value + "\n");
+    }
+}
@@ -1,44 +1,267 @@
 package de.binarytree.plugins.qualitygates.result;
 
 import hudson.Launcher;
+import hudson.XmlFile;
+import hudson.model.Api;
 import hudson.model.BuildListener;
 import hudson.model.ProminentProjectAction;
+import hudson.model.Run;
+import hudson.model.RunAction;
 import hudson.model.StreamBuildListener;
 import hudson.model.AbstractBuild;
+import hudson.model.Hudson;
 
+import hudson.security.ACL;
+
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletResponse;
 
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import de.binarytree.plugins.qualitygates.QualityLineEvaluator;
+import de.binarytree.plugins.qualitygates.ReevaluationQueue;
+import de.binarytree.plugins.qualitygates.ReevaluationQueue.Ticket;
 import de.binarytree.plugins.qualitygates.steps.manualcheck.ManualCheckFinder;
 import de.binarytree.plugins.qualitygates.steps.manualcheck.ManualCheckFinder.ManualCheckManipulator;
 
 /**
  * This class realizes publishing the gate report via a dedicated URL-subspace /qualitygates/
  * 
+ * Approving or disapproving a manual check triggers a re-evaluation of the quality line, which is performed in the
+ * background by a {@link ReevaluationQueue}. Its state can be polled as JSON via /qualitygates/status. Of concurrent
+ * requests for the same manual check only the first one takes effect and triggers a re-evaluation. The queue is shared
+ * by all actions of the same build, so that it survives the build being loaded again.
+ * 
+ * The results are not saved in the build.xml, which is read whenever the build is loaded, but in files of their own
+ * next to it, see {@link #save()}. Only a {@link QualityLineSummary} is saved in the build.xml, which suffices for the
+ * page of the build. The report is read when the page of the quality line or its API is opened and only held softly
+ * afterwards, so that it may be collected and read again on demand. This also holds for the build which has just been
+ * evaluated, as soon as its results have been saved. Actions saved before, which keep their results in the build.xml,
+ * are still read from there.
+ * 
+ * The owning build is not saved with the action but only its externalizable id. The build is set when the action is
+ * attached to it and otherwise looked up by its id when first needed.
+ * 
+ * The summary and the report, including the timing of all gates and steps, are available through the remote API at
+ * /qualitygates/api.
+ * 
  * @author Marcel von Maltitz
  * 
  */
-public class BuildResultAction implements ProminentProjectAction {
+@ExportedBean
+public class BuildResultAction implements ProminentProjectAction, RunAction {
 
     public static final String URL = "qualitygates";
 
     private static final String ICONS_PREFIX = "/plugin/qualitygates/images/24x24/";
 
+    public static final String STATUS_HEADER = "X-Quality-Gates-Status";
+
+    public static final Logger LOGGER = Logger.getLogger(BuildResultAction.class.getName());
+
+    static final String REPORT_FILE_NAME = "qualitygates-report.bin";
+
+    static final String EVALUATOR_FILE_NAME = "qualitygates-evaluator.xml";
+
+    // Reported by builds no re-evaluation has been submitted for, never receives one itself
+    private static final ReevaluationQueue NO_REEVALUATIONS = new ReevaluationQueue();
+
+    private transient AbstractBuild<?, ?> owner;
+
+    private String ownerId;
+
+    // Only saved in the build.xml by actions without owner
     private QualityLineEvaluator gateEvaluator;
 
+    private QualityLineSummary summary;
+
+    private transient QualityLineEvaluator evaluator;
+
+    private transient SoftReference<QualityLineReport> report;
+
+    // Only used by actions without owner, which cannot share their queue
+    private transient ReevaluationQueue reevaluationQueue;
+
+    /**
+     * Creates an action whose results are saved in files of their own next to the build.xml of the given build.
+     * 
+     * @param owner
+     *            the build whose quality line has been evaluated
+     * @param gateEvaluator
+     *            the evaluator holding the results
+     */
+    public BuildResultAction(AbstractBuild<?, ?> owner, QualityLineEvaluator gateEvaluator) {
+        this.owner = owner;
+        this.ownerId = owner.getExternalizableId();
+        this.evaluator = gateEvaluator;
+        this.summary = new QualityLineSummary(gateEvaluator.getLatestResults());
+    }
+
+    /**
+     * Creates an action without owner, whose results are saved in the build.xml together with the action.
+     * 
+     * @param gateEvaluator
+     *            the evaluator holding the results
+     */
     public BuildResultAction(QualityLineEvaluator gateEvaluator) {
         this.gateEvaluator = gateEvaluator;
+        this.summary = new QualityLineSummary(gateEvaluator.getLatestResults());
+    }
+
+    public synchronized void onAttached(Run r) {
+        this.owner = (AbstractBuild<?, ?>) r;
+        this.ownerId = r.getExternalizableId();
+    }
+
+    public void onLoad() {
+        // The owner is not passed when loading, it is looked up when first needed
+    }
+
+    public void onBuildComplete() {
+    }
+
+    /**
+     * Returns the build this action belongs to. If the action has been loaded together with the build, the build is
+     * looked up by its id.
+     */
+    private synchronized AbstractBuild<?, ?> getOwner() {
+        if (this.owner == null && this.ownerId != null) {
+            this.owner = (AbstractBuild<?, ?>) Run.fromExternalizableId(this.ownerId);
+        }
+        return this.owner;
+    }
+
+    /**
+     * Whether or not the results are kept in the build.xml together with the action instead of files of their own.
+     */
+    private boolean isOwnerless() {
+        return this.gateEvaluator != null;
+    }
+
+    /**
+     * Returns the summary of the latest evaluation of the quality line, which is available without reading the
+     * report.
+     * 
+     * @return the summary of the latest evaluation
+     */
+    @Exported
+    public synchronized QualityLineSummary getSummary() {
+        if (this.summary == null) {
+            this.summary = new QualityLineSummary(getQualityLineReport());
+        }
+        return this.summary;
+    }
+
+    /**
+     * Returns the report of the latest evaluation of the quality line. If the quality line has not been evaluated
+     * since the build has been loaded, it is read from its file when first used or after it has been collected.
+     * 
+     * @return the report of the latest evaluation
+     */
+    @Exported
+    public synchronized QualityLineReport getQualityLineReport() {
+        if (isOwnerless()) {
+            return this.gateEvaluator.getLatestResults();
+        } else if (this.evaluator != null) {
+            return this.evaluator.getLatestResults();
+        }
+        QualityLineReport loadedReport = this.report == null ? null : this.report.get();
+        if (loadedReport == null) {
+            loadedReport = loadReport();
+            this.report = new SoftReference<QualityLineReport>(loadedReport);
+        }
+        return loadedReport;
+    }
+
+    private QualityLineReport loadReport() {
+        QualityLineReportFile reportFile = getReportFile();
+        if (reportFile.exists()) {
+            try {
+                return reportFile.read();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot read the report of the quality line of " + this.ownerId, e);
+            }
+        }
+        return new QualityLineReport();
     }
 
-    public QualityLineReport getQualityLineReport() {
-        return this.gateEvaluator.getLatestResults();
+    /**
+     * Returns the evaluator of the quality line. If the quality line has not been evaluated since the build has been
+     * loaded, it is read from its file.
+     */
+    private synchronized QualityLineEvaluator getGateEvaluator() throws IOException {
+        if (isOwnerless()) {
+            return this.gateEvaluator;
+        } else if (this.evaluator == null) {
+            XmlFile evaluatorFile = getEvaluatorFile();
+            if (!evaluatorFile.exists()) {
+                throw new FileNotFoundException("Evaluator of the quality line not found: " + evaluatorFile);
+            }
+            this.evaluator = (QualityLineEvaluator) evaluatorFile.read();
+            this.report = null;
+        }
+        return this.evaluator;
+    }
+
+    /**
+     * Saves the results of the latest evaluation next to the build.xml of the owning build. The report is saved in a
+     * compact binary file, which is read to display it. The evaluator, together with the gates, is saved in an XML
+     * file, which is only read to re-evaluate the quality line. Actions without owner are saved together with their
+     * build instead. In both cases the summary is updated, which is saved together with the build. Once saved, the
+     * evaluator is released and the report is only held softly, like after loading the build. The evaluator is kept
+     * as long as re-evaluations are waiting, since the (dis)approvals they perform are not saved with it.
+     * 
+     * @throws IOException
+     *             when writing one of the files fails
+     */
+    public synchronized void save() throws IOException {
+        if (isOwnerless()) {
+            this.summary = new QualityLineSummary(this.gateEvaluator.getLatestResults());
+            return;
+        } else if (this.evaluator == null) {
+            return;
+        }
+        QualityLineReport latestReport = this.evaluator.getLatestResults();
+        this.summary = new QualityLineSummary(latestReport);
+        getEvaluatorFile().write(this.evaluator);
+        getReportFile().write(latestReport);
+        if (getReevaluationQueue(false).getNumberOfPendingReevaluations() == 0) {
+            this.evaluator = null;
+            this.report = new SoftReference<QualityLineReport>(latestReport);
+        }
+    }
+
+    private QualityLineReportFile getReportFile() {
+        return new QualityLineReportFile(new File(getRootDirOfOwner(), REPORT_FILE_NAME));
+    }
+
+    private XmlFile getEvaluatorFile() {
+        return new XmlFile(Hudson.XSTREAM, new File(getRootDirOfOwner(), EVALUATOR_FILE_NAME));
+    }
+
+    private File getRootDirOfOwner() {
+        AbstractBuild<?, ?> build = getOwner();
+        if (build == null) {
+            throw new IllegalStateException("Build of the quality line not found: " + this.ownerId);
+        }
+        return build.getRootDir();
     }
 
     public String getIconFileName() {
@@ -54,28 +277,41 @@ public class BuildResultAction implements ProminentProjectAction {
     }
 
     /**
-     * Approves the next not_build manual check as long as it has the id provided by the request parameter "id".
+     * Returns the remote API of the quality line.
+     * 
+     * @return the remote API
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Approves the next not_build manual check as long as it has the id provided by the request parameter "id". The
+     * quality line is then re-evaluated in the background. The URL to poll its state is returned in the header
+     * {@value #STATUS_HEADER}.
      * 
      * @param req
      *            the stapler request provided by Jenkins
      * @param res
      *            the stapler response provided by Jenkins
      * @throws IOException
-     *             when saving the build fails or the redirection by stapler is not possible
+     *             when reading the evaluator or saving the build fails or the redirection by stapler is not possible
      */
     public void doApprove(StaplerRequest req, StaplerResponse res) throws IOException {
         manipulateManualCheck(req, res, true);
     }
 
     /**
-     * Disapproves the next not_build manual check as long as it has the id provided by the request parameter "id".
+     * Disapproves the next not_build manual check as long as it has the id provided by the request parameter "id". The
+     * quality line is then re-evaluated in the background. The URL to poll its state is returned in the header
+     * {@value #STATUS_HEADER}.
      * 
      * @param req
      *            the stapler request provided by Jenkins
      * @param res
      *            the stapler response provided by Jenkins
      * @throws IOException
-     *             when saving the build fails or the redirection by stapler is not possible
+     *             when reading the evaluator or saving the build fails or the redirection by stapler is not possible
      */
 
     public void doDisapprove(StaplerRequest req, StaplerResponse res) throws IOException {
@@ -86,26 +322,139 @@ public class BuildResultAction implements ProminentProjectAction {
             throws IOException {
         if (req.hasParameter("id")) {
             String hashIdOfCheck = req.getParameter("id");
-            ManualCheckFinder finder = new ManualCheckFinder(this.getQualityLineReport());
-            ManualCheckManipulator manipulator = finder.findCheckForGivenHash(hashIdOfCheck);
-            if (manipulator.hasItem()) {
-                if (manualCheckShallBeApproved) {
-                    manipulator.approve();
-                } else {
-                    manipulator.disapprove();
-                }
-                rerunQualityLineEvaluation(req);
+            Ticket ticket = manipulateAndReevaluate(req, hashIdOfCheck, manualCheckShallBeApproved);
+            if (ticket != null) {
+                res.setHeader(STATUS_HEADER, "status?ticket=" + ticket.getId());
             }
         }
         res.sendRedirect(".");
     }
 
-    private void rerunQualityLineEvaluation(StaplerRequest req) throws IOException {
-        AbstractBuild<?, ?> build = getFormerBuild(req);
-        BuildListener listener = new StreamBuildListener(getLogfileAppender(build));
-        Launcher launcher = this.getLauncher(listener);
-        this.gateEvaluator.evaluate(build, launcher, listener);
-        build.save();
+    /**
+     * Approves or disapproves the manual check with the given id and queues the re-evaluation. Both happen while
+     * holding the lock of this action, so that the evaluator holding the decision is not released by saving in
+     * between, see {@link #save()}.
+     * 
+     * @return the ticket of the re-evaluation or null, if the check has not been found or has already been decided
+     */
+    private synchronized Ticket manipulateAndReevaluate(StaplerRequest req, String hashIdOfCheck,
+            boolean manualCheckShallBeApproved) throws IOException {
+        ManualCheckFinder finder = new ManualCheckFinder(this.getGateEvaluator().getLatestResults());
+        ManualCheckManipulator manipulator = finder.findCheckForGivenHash(hashIdOfCheck);
+        if (manipulator.hasItem() && manipulate(manipulator, manualCheckShallBeApproved)) {
+            return rerunQualityLineEvaluation(req);
+        }
+        return null;
+    }
+
+    private boolean manipulate(ManualCheckManipulator manipulator, boolean manualCheckShallBeApproved) {
+        if (manualCheckShallBeApproved) {
+            return manipulator.approve();
+        } else {
+            return manipulator.disapprove();
+        }
+    }
+
+    /**
+     * Queues the re-evaluation of the quality line. The build and the user are determined while the request is
+     * available, the re-evaluation itself is performed in the background.
+     */
+    private Ticket rerunQualityLineEvaluation(StaplerRequest req) {
+        final AbstractBuild<?, ?> build = getFormerBuild(req);
+        final Authentication authentication = Jenkins.getAuthentication();
+        return getReevaluationQueue(true).submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                SecurityContext formerContext = ACL.impersonate(authentication);
+                try {
+                    reevaluate(build);
+                } finally {
+                    SecurityContextHolder.setContext(formerContext);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void reevaluate(AbstractBuild<?, ?> build) throws IOException {
+        FileOutputStream logfileAppender = getLogfileAppender(build);
+        try {
+            BuildListener listener = new StreamBuildListener(logfileAppender);
+            Launcher launcher = this.getLauncher(listener);
+            this.getGateEvaluator().evaluate(build, launcher, listener);
+            save();
+            build.save();
+        } finally {
+            logfileAppender.close();
+        }
+    }
+
+    /**
+     * Returns the state of the re-evaluations of this quality line as JSON. When the request parameter "ticket" is
+     * given, the state of the corresponding re-evaluation is included.
+     * 
+     * @param req
+     *            the stapler request provided by Jenkins
+     * @param res
+     *            the stapler response provided by Jenkins
+     * @throws IOException
+     *             when the response cannot be written
+     */
+    public void doStatus(StaplerRequest req, StaplerResponse res) throws IOException {
+        ReevaluationQueue queue = getReevaluationQueue(false);
+        JSONObject status = new JSONObject();
+        status.put("busy", queue.isBusy());
+        status.put("pending", queue.getNumberOfPendingReevaluations());
+        if (req.hasParameter("ticket")) {
+            Ticket ticket = findTicket(queue, req.getParameter("ticket"));
+            if (ticket == null) {
+                res.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            status.put("ticket", ticket.getId());
+            status.put("state", ticket.getState().name());
+            status.put("done", ticket.isDone());
+            if (ticket.getReason() != null) {
+                status.put("reason", ticket.getReason());
+            }
+        }
+        res.setContentType("application/json;charset=UTF-8");
+        res.getWriter().print(status.toString());
+    }
+
+    private Ticket findTicket(ReevaluationQueue queue, String id) {
+        try {
+            return queue.getTicket(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether or not the quality line is being re-evaluated or waits to be re-evaluated.
+     * 
+     * @return whether or not a re-evaluation is in progress
+     */
+    public boolean isReevaluationInProgress() {
+        return getReevaluationQueue(false).isBusy();
+    }
+
+    /**
+     * Returns the queue of the re-evaluations of the owning build, which is shared by all actions of the build. A
+     * queue is only created when a re-evaluation is submitted to it and released some time after it has become idle.
+     */
+    private ReevaluationQueue getReevaluationQueue(boolean submitting) {
+        if (this.ownerId == null) {
+            return getReevaluationQueueOfAction();
+        }
+        ReevaluationQueue queue = ReevaluationQueue.ofBuild(this.ownerId, submitting);
+        return queue == null ? NO_REEVALUATIONS : queue;
+    }
+
+    private synchronized ReevaluationQueue getReevaluationQueueOfAction() {
+        if (this.reevaluationQueue == null) {
+            this.reevaluationQueue = new ReevaluationQueue();
+        }
+        return this.reevaluationQueue;
     }
 
     private AbstractBuild<?, ?> getFormerBuild(StaplerRequest req) {
@@ -5,6 +5,9 @@ import hudson.model.Result;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import de.binarytree.plugins.qualitygates.Gate;
 import de.binarytree.plugins.qualitygates.GateStep;
 
@@ -12,11 +15,13 @@ import de.binarytree.plugins.qualitygates.GateStep;
  * This class is a report about the execution of a gate. It holds the reports of
  * the executed steps and the result of the gate itself.
  */
+@ExportedBean
 public class GateReport extends ListContainer<GateStepReport> {
 
     private String gateName;
     private Result result = Result.NOT_BUILT;
-    private transient Gate gate;
+    private Timing timing;
+    private Gate gate;
 
     /**
      * Creates a new gate report for the given gate.
@@ -29,6 +34,20 @@ public class GateReport extends ListContainer<GateStepReport> {
         this.gate = gate;
     }
 
+    /**
+     * Creates a gate report restored from disk, which does not reference its
+     * gate.
+     * 
+     * @param gateName
+     *            the name of the gate
+     * @param result
+     *            the result of the gate
+     */
+    GateReport(String gateName, Result result) {
+        this.gateName = gateName;
+        this.result = result;
+    }
+
     private List<GateStepReport> steps() {
         return this.getItems();
     }
@@ -38,6 +57,7 @@ public class GateReport extends ListContainer<GateStepReport> {
      * 
      * @return the name of the corresponding gate
      */
+    @Exported
     public String getGateName() {
         return this.gateName;
     }
@@ -47,6 +67,7 @@ public class GateReport extends ListContainer<GateStepReport> {
      * 
      * @return the reusult of this report
      */
+    @Exported
     public Result getResult() {
         return this.result;
     }
@@ -64,6 +85,26 @@ public class GateReport extends ListContainer<GateStepReport> {
         this.result = result;
     }
 
+    /**
+     * Returns the time taken by the evaluation of the gate together with the CPU time and bytes read by its steps.
+     * 
+     * @return the timing of the gate or null, if it has not been measured
+     */
+    @Exported
+    public Timing getTiming() {
+        return this.timing;
+    }
+
+    /**
+     * Documents the time taken and bytes read by the evaluation of the gate.
+     * 
+     * @param timing
+     *            the timing of the gate
+     */
+    public void setTiming(Timing timing) {
+        this.timing = timing;
+    }
+
     /**
      * Adds the given step report to this report. If there is already a step
      * report referencing the same gate, it is replaced.
@@ -81,10 +122,21 @@ public class GateReport extends ListContainer<GateStepReport> {
      * 
      * @return a list of the contained gate step reports.
      */
+    @Exported
     public List<GateStepReport> getStepReports() {
         return new LinkedList<GateStepReport>(this.steps());
     }
 
+    /**
+     * Returns the gate this report belongs to.
+     * 
+     * @return the corresponding gate or null, if the report has been loaded
+     *         from disk
+     */
+    Gate getGate() {
+        return this.gate;
+    }
+
     /**
      * Whether or not this report belongs to the given gate.
      * 
@@ -112,6 +164,11 @@ public class GateReport extends ListContainer<GateStepReport> {
         return a.referencesSameStepAs(b);
     }
 
+    @Override
+    protected Object keyOf(GateStepReport stepReport) {
+        return stepReport.getStep();
+    }
+
     /**
      * Returns the reasons why the corresponding gate has failed. Returns an
      * empty list when the gate has not failed at all.
@@ -136,7 +193,11 @@ public class GateReport extends ListContainer<GateStepReport> {
      * @return the corresponding report
      */
     public GateStepReport getReportFor(GateStep step) {
-        for (GateStepReport report : this.getStepReports()) {
+        GateStepReport stepReport = this.getItemWithKey(step);
+        if (stepReport != null) {
+            return stepReport;
+        }
+        for (GateStepReport report : this.steps()) {
             if (report.references(step)) {
                 return report;
             }
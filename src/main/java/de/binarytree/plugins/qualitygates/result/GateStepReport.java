@@ -1,6 +1,10 @@
 package de.binarytree.plugins.qualitygates.result;
 
 import hudson.model.Result;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import de.binarytree.plugins.qualitygates.GateStep;
 
 /**
@@ -10,6 +14,7 @@ import de.binarytree.plugins.qualitygates.GateStep;
  * @author Marcel von Maltitz
  * 
  */
+@ExportedBean
 public class GateStepReport {
 
     private String stepName;
@@ -20,8 +25,12 @@ public class GateStepReport {
 
     private String reason;
 
+    private Timing timing;
+
     private GateStep step;
 
+    private transient boolean notCacheable;
+
     /**
      * Creates a new GateStepReport for the given {@link Check}.
      * 
@@ -34,14 +43,40 @@ public class GateStepReport {
         this.description = check.getDescription();
     }
 
+    /**
+     * Creates a GateStepReport restored from disk, which does not reference its step.
+     * 
+     * @param stepName
+     *            the name of the step
+     * @param description
+     *            the description of the step
+     * @param result
+     *            the result of the step
+     * @param reason
+     *            the reason of the result, may be null
+     */
+    GateStepReport(String stepName, String description, Result result, String reason) {
+        this.stepName = stepName;
+        this.description = description;
+        this.result = result;
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the step this report belongs to.
+     * 
+     * @return the corresponding step or null, if the report has been restored without it
+     */
     public GateStep getStep() {
         return this.step;
     }
 
+    @Exported
     public String getDescription() {
         return this.description;
     }
 
+    @Exported
     public String getStepName() {
         return this.stepName;
     }
@@ -51,6 +86,7 @@ public class GateStepReport {
      * 
      * @return the result of this report
      */
+    @Exported
     public Result getResult() {
         return this.result;
     }
@@ -60,10 +96,48 @@ public class GateStepReport {
      * 
      * @return the reason for the result of this report
      */
+    @Exported
     public String getReason() {
         return this.reason;
     }
 
+    /**
+     * Returns the time taken and bytes read by the evaluation of the step.
+     * 
+     * @return the timing of the step or null, if it has not been measured
+     */
+    @Exported
+    public Timing getTiming() {
+        return this.timing;
+    }
+
+    /**
+     * Documents the time taken and bytes read by the evaluation of the step.
+     * 
+     * @param timing
+     *            the timing of the step
+     */
+    public void setTiming(Timing timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * Marks the result of this report as depending on more than the input of its step, e.g. because it has been
+     * caused by an exception, so that it is not cached by the {@link de.binarytree.plugins.qualitygates.StepResultCache}.
+     */
+    public void markAsNotCacheable() {
+        this.notCacheable = true;
+    }
+
+    /**
+     * Whether or not the result of this report may be reused for the same input of its step.
+     * 
+     * @return false, if the result has been marked as not cacheable
+     */
+    public boolean isCacheable() {
+        return !this.notCacheable;
+    }
+
     /**
      * Documents the result of the corresponding step.
      * 
@@ -128,6 +202,28 @@ public class GateStepReport {
      * @return whether or not this report references the given check
      */
     public boolean references(GateStep check) {
-        return this.step.equals(check);
+        return this.step != null && this.step.equals(check);
+    }
+
+    /**
+     * Whether or not this report has been created for the given check. A report which does not reference its check,
+     * because it has been read again, or references a check read again, is attributed to a check of the same type, name
+     * and description.
+     * 
+     * @param check
+     *            the check to be tested
+     * @return whether or not this report is a report of the given check
+     */
+    public boolean isReportOf(GateStep check) {
+        if (this.step == check) {
+            return true;
+        } else if (this.step != null) {
+            return this.step.getClass() == check.getClass() && equal(this.description, check.getDescription());
+        }
+        return equal(this.stepName, check.getDisplayName()) && equal(this.description, check.getDescription());
+    }
+
+    private static boolean equal(String first, String second) {
+        return first == null ? second == null : first.equals(second);
     }
 }
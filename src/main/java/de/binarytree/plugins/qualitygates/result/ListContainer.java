@@ -1,11 +1,17 @@
 package de.binarytree.plugins.qualitygates.result;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class implements the functionality to hold a list of unique items.
  * 
+ * Items providing a key, see {@link #keyOf(Object)}, are indexed by it, so that adding, replacing and looking them up
+ * takes constant time. The items keep the order in which they have been added.
+ * 
  * @author Marcel von Maltitz
  * 
  * @param <T>
@@ -13,15 +19,17 @@ import java.util.List;
  */
 abstract class ListContainer<T> {
 
-    private List<T> items = new LinkedList<T>();
+    private List<T> items = new ArrayList<T>();
+
+    private transient Map<Object, Integer> index;
 
     /**
      * Returns the items of this container.
      * 
-     * @return the items of this container
+     * @return an unmodifiable view of the items of this container
      */
     protected List<T> getItems() {
-        return this.items;
+        return Collections.unmodifiableList(this.items);
     }
 
     /**
@@ -35,13 +43,46 @@ abstract class ListContainer<T> {
         int index = getIndexOfItem(item);
         if (index == -1) {
             this.items.add(item);
+            this.indexItemAt(this.items.size() - 1, item);
         } else {
             this.replaceItemAtIndex(index, item);
         }
     }
 
-    private int getIndexOfItem(T item) {
+    /**
+     * Appends an item to this container without looking for an item it is
+     * the same as. Used to restore items which do not reference what makes
+     * them the same anymore.
+     * 
+     * @param item
+     *            the item to be appended
+     */
+    protected void appendItem(T item) {
+        this.items.add(item);
+        this.indexItemAt(this.items.size() - 1, item);
+    }
 
+    /**
+     * Returns the item having the given key.
+     * 
+     * @param key
+     *            the key as defined by {@link #keyOf(Object)}
+     * @return the item having the given key or null, if there is none
+     */
+    protected T getItemWithKey(Object key) {
+        Integer position = this.getIndex().get(key);
+        if (position == null) {
+            return null;
+        }
+        return this.items.get(position);
+    }
+
+    private int getIndexOfItem(T item) {
+        Object key = this.keyOf(item);
+        if (key != null) {
+            Integer position = this.getIndex().get(key);
+            return position == null ? -1 : position;
+        }
         for (int i = 0; i < this.items.size(); i++) {
             if (this.isSameItem(this.items.get(i), item)) {
                 return i;
@@ -51,8 +92,43 @@ abstract class ListContainer<T> {
     }
 
     private void replaceItemAtIndex(int index, T item) {
-        this.items.remove(index);
-        this.items.add(index, item);
+        this.items.set(index, item);
+    }
+
+    private void indexItemAt(int position, T item) {
+        Object key = this.keyOf(item);
+        if (key != null) {
+            this.getIndex().put(key, position);
+        }
+    }
+
+    /**
+     * Returns the index from keys to positions. It is not persisted and
+     * therefore built on first use.
+     */
+    private Map<Object, Integer> getIndex() {
+        if (this.index == null) {
+            this.index = new IdentityHashMap<Object, Integer>();
+            for (int i = 0; i < this.items.size(); i++) {
+                this.indexItemAt(i, this.items.get(i));
+            }
+        }
+        return this.index;
+    }
+
+    /**
+     * Returns the key by which the given item is indexed. Items with the same
+     * key, compared by identity, have to be the same as defined by
+     * {@link #isSameItem(Object, Object)}, items with different keys must not
+     * be the same. Items without a key are found by comparing them to all
+     * items of this container.
+     * 
+     * @param item
+     *            the item of which the key shall be returned
+     * @return the key of the item or null, if the item has no key
+     */
+    protected Object keyOf(T item) {
+        return null;
     }
 
     /**
@@ -69,4 +145,4 @@ abstract class ListContainer<T> {
      */
     protected abstract boolean isSameItem(T a, T b);
 
-}
\ No newline at end of file
+}
@@ -5,6 +5,9 @@ import hudson.model.Result;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import de.binarytree.plugins.qualitygates.Gate;
 
 /**
@@ -14,6 +17,7 @@ import de.binarytree.plugins.qualitygates.Gate;
  * @author Marcel von Maltitz
  * 
  */
+@ExportedBean
 public class QualityLineReport extends ListContainer<GateReport> {
 
     private List<GateReport> gates() {
@@ -46,6 +50,7 @@ public class QualityLineReport extends ListContainer<GateReport> {
      * 
      * @return a list of gate reports as descried above
      */
+    @Exported
     public List<GateReport> getGateReports() {
         return new LinkedList<GateReport>(this.gates());
     }
@@ -74,6 +79,9 @@ public class QualityLineReport extends ListContainer<GateReport> {
      * @return the report for the given gate
      */
     public GateReport getGateReportFor(Gate gate) {
+        if (gate != null) {
+            return this.getItemWithKey(gate);
+        }
         for (GateReport report : this.gates()) {
             if (report.belongsTo(gate)) {
                 return report;
@@ -87,6 +95,11 @@ public class QualityLineReport extends ListContainer<GateReport> {
         return a.referencesSameGateAs(b);
     }
 
+    @Override
+    protected Object keyOf(GateReport gateReport) {
+        return gateReport.getGate();
+    }
+
     /**
      * Returns the number of the gates which have been successfully evaluated. Equals {@link #getNumberOfGates()} when
      * all gates have been successful.
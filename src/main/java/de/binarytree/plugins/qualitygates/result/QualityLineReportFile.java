@@ -0,0 +1,269 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import hudson.model.Result;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores a {@link QualityLineReport} in a compact binary file of its own, so that it is not read whenever the build it
+ * belongs to is loaded. Only what is displayed is stored: the names and results of the gates as well as the names,
+ * descriptions, results, reasons and timings of their steps. The reports read from the file therefore do not reference
+ * their gates and steps. Files written before timings have been recorded, in version 1, are read without timings.
+ *
+ * Each distinct string is written once and referenced by its number afterwards, since most reports repeat the same
+ * names, descriptions and results. Numbers are written with as few bytes as possible.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+final class QualityLineReportFile {
+
+    private static final int MAGIC_NUMBER = 0x51474c52;
+
+    private static final int VERSION = 2;
+
+    private static final int VERSION_WITHOUT_TIMINGS = 1;
+
+    private static final String ENCODING = "UTF-8";
+
+    private final File file;
+
+    /**
+     * Creates a report file at the given location.
+     *
+     * @param file
+     *            the location of the file
+     */
+    QualityLineReportFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Whether or not a report has been written to this file.
+     *
+     * @return whether or not the file exists
+     */
+    boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * Writes the given report to this file. The report is written to a temporary file first, which then replaces this
+     * file, so that a failure does not destroy the report written before.
+     *
+     * @param report
+     *            the report to be written
+     * @throws IOException
+     *             when the file cannot be written
+     */
+    void write(QualityLineReport report) throws IOException {
+        File temporaryFile = new File(this.file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            output.writeInt(MAGIC_NUMBER);
+            output.writeByte(VERSION);
+            writeGateReports(new CompactOutput(output), report.getGateReports());
+        } finally {
+            output.close();
+        }
+        if (!temporaryFile.renameTo(this.file) && !(this.file.delete() && temporaryFile.renameTo(this.file))) {
+            temporaryFile.delete();
+            throw new IOException("Cannot replace " + this.file);
+        }
+    }
+
+    private void writeGateReports(CompactOutput output, List<GateReport> gateReports) throws IOException {
+        output.writeNumber(gateReports.size());
+        for (GateReport gateReport : gateReports) {
+            output.writeString(gateReport.getGateName());
+            output.writeString(gateReport.getResult().toString());
+            writeTiming(output, gateReport.getTiming());
+            List<GateStepReport> stepReports = gateReport.getStepReports();
+            output.writeNumber(stepReports.size());
+            for (GateStepReport stepReport : stepReports) {
+                output.writeString(stepReport.getStepName());
+                output.writeString(stepReport.getDescription());
+                output.writeString(stepReport.getResult().toString());
+                output.writeString(stepReport.getReason());
+                writeTiming(output, stepReport.getTiming());
+            }
+        }
+    }
+
+    /**
+     * Writes 0 for a missing timing, otherwise 1 followed by its values. The CPU time is shifted by one, so that an
+     * unknown CPU time is written as 0.
+     */
+    private void writeTiming(CompactOutput output, Timing timing) throws IOException {
+        if (timing == null) {
+            output.writeNumber(0);
+            return;
+        }
+        output.writeNumber(1);
+        output.writeLongNumber(timing.getWallTime());
+        output.writeLongNumber(timing.getCpuTime() + 1);
+        output.writeLongNumber(timing.getBytesRead());
+    }
+
+    /**
+     * Reads the report from this file.
+     *
+     * @return the report read
+     * @throws IOException
+     *             when the file cannot be read or does not contain a report
+     */
+    QualityLineReport read() throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+        try {
+            if (input.readInt() != MAGIC_NUMBER) {
+                throw new IOException(this.file + " does not contain a report of a quality line");
+            }
+            int version = input.readByte();
+            if (version != VERSION && version != VERSION_WITHOUT_TIMINGS) {
+                throw new IOException(this.file + " contains a report of unknown version " + version);
+            }
+            return readGateReports(new CompactInput(input), version == VERSION);
+        } finally {
+            input.close();
+        }
+    }
+
+    private QualityLineReport readGateReports(CompactInput input, boolean withTimings) throws IOException {
+        QualityLineReport report = new QualityLineReport();
+        int numberOfGates = input.readNumber();
+        for (int i = 0; i < numberOfGates; i++) {
+            GateReport gateReport = new GateReport(input.readString(), Result.fromString(input.readString()));
+            if (withTimings) {
+                gateReport.setTiming(readTiming(input));
+            }
+            int numberOfSteps = input.readNumber();
+            for (int j = 0; j < numberOfSteps; j++) {
+                String stepName = input.readString();
+                String description = input.readString();
+                Result result = Result.fromString(input.readString());
+                GateStepReport stepReport = new GateStepReport(stepName, description, result, input.readString());
+                if (withTimings) {
+                    stepReport.setTiming(readTiming(input));
+                }
+                gateReport.appendItem(stepReport);
+            }
+            report.appendItem(gateReport);
+        }
+        return report;
+    }
+
+    private Timing readTiming(CompactInput input) throws IOException {
+        if (input.readNumber() == 0) {
+            return null;
+        }
+        long wallTime = input.readLongNumber();
+        long cpuTime = input.readLongNumber() - 1;
+        return new Timing(wallTime, cpuTime, input.readLongNumber());
+    }
+
+    /**
+     * Writes numbers and strings, each distinct string only once. A string is written as 0 if it is null, as its
+     * number plus one if it has been written before, or as the next number plus one followed by its length and
+     * encoded characters.
+     */
+    private static final class CompactOutput {
+        private final DataOutputStream output;
+
+        private final Map<String, Integer> numbersOfStrings = new HashMap<String, Integer>();
+
+        private CompactOutput(DataOutputStream output) {
+            this.output = output;
+        }
+
+        private void writeString(String string) throws IOException {
+            if (string == null) {
+                writeNumber(0);
+                return;
+            }
+            Integer number = this.numbersOfStrings.get(string);
+            if (number != null) {
+                writeNumber(number + 1);
+                return;
+            }
+            number = this.numbersOfStrings.size();
+            this.numbersOfStrings.put(string, number);
+            writeNumber(number + 1);
+            byte[] bytes = string.getBytes(ENCODING);
+            writeNumber(bytes.length);
+            this.output.write(bytes);
+        }
+
+        private void writeNumber(int number) throws IOException {
+            writeLongNumber(number & 0xffffffffL);
+        }
+
+        private void writeLongNumber(long number) throws IOException {
+            long remainder = number;
+            while ((remainder & ~0x7fL) != 0) {
+                this.output.writeByte((int) (remainder & 0x7f) | 0x80);
+                remainder >>>= 7;
+            }
+            this.output.writeByte((int) remainder);
+        }
+    }
+
+    /**
+     * Reads what has been written by a {@link CompactOutput}.
+     */
+    private static final class CompactInput {
+        private final DataInputStream input;
+
+        private final List<String> strings = new ArrayList<String>();
+
+        private CompactInput(DataInputStream input) {
+            this.input = input;
+        }
+
+        private String readString() throws IOException {
+            int number = readNumber();
+            if (number == 0) {
+                return null;
+            } else if (number <= this.strings.size()) {
+                return this.strings.get(number - 1);
+            } else if (number != this.strings.size() + 1) {
+                throw new IOException("Unknown string " + number);
+            }
+            byte[] bytes = new byte[readNumber()];
+            this.input.readFully(bytes);
+            String string = new String(bytes, ENCODING);
+            this.strings.add(string);
+            return string;
+        }
+
+        private int readNumber() throws IOException {
+            long number = readLongNumber();
+            if ((number & ~0xffffffffL) != 0) {
+                throw new IOException("Malformed number");
+            }
+            return (int) number;
+        }
+
+        private long readLongNumber() throws IOException {
+            long number = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int nextByte = this.input.readUnsignedByte();
+                number |= (long) (nextByte & 0x7f) << shift;
+                if ((nextByte & 0x80) == 0) {
+                    return number;
+                }
+            }
+            throw new IOException("Malformed number");
+        }
+    }
+}
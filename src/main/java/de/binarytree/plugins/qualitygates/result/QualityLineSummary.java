@@ -0,0 +1,85 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import hudson.model.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Summarizes a {@link QualityLineReport} by what is displayed on the page of a build: the overall result, the number of
+ * gates and of successful gates as well as the reasons of termination. The summary is small enough to be saved in the
+ * build.xml, so that the report itself needs not to be read for the page of the build.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@ExportedBean
+public final class QualityLineSummary {
+
+    private final Result result;
+
+    private final int numberOfGates;
+
+    private final int numberOfSuccessfulGates;
+
+    private final List<String> reasonsOfTermination;
+
+    /**
+     * Creates the summary of the given report.
+     *
+     * @param report
+     *            the report to be summarized
+     */
+    public QualityLineSummary(QualityLineReport report) {
+        this.result = resultOf(report);
+        this.numberOfGates = report.getNumberOfGates();
+        this.numberOfSuccessfulGates = report.getNumberOfSuccessfulGates();
+        this.reasonsOfTermination = new ArrayList<String>(report.getReasonsOfTermination());
+    }
+
+    private static Result resultOf(QualityLineReport report) {
+        Result combinedResult = Result.SUCCESS;
+        for (GateReport gateReport : report.getGateReports()) {
+            combinedResult = combinedResult.combine(gateReport.getResult());
+            if (gateReport.getResult().isWorseOrEqualTo(Result.FAILURE)) {
+                break;
+            }
+        }
+        return combinedResult;
+    }
+
+    /**
+     * Returns the overall result of the quality line, which combines the results of all gates up to the one which
+     * terminated the quality line.
+     *
+     * @return the overall result
+     */
+    @Exported
+    public Result getResult() {
+        return this.result;
+    }
+
+    @Exported
+    public int getNumberOfGates() {
+        return this.numberOfGates;
+    }
+
+    @Exported
+    public int getNumberOfSuccessfulGates() {
+        return this.numberOfSuccessfulGates;
+    }
+
+    /**
+     * Returns the reasons why the quality line terminated, see {@link QualityLineReport#getReasonsOfTermination()}.
+     *
+     * @return an unmodifiable list of termination reasons
+     */
+    @Exported
+    public List<String> getReasonsOfTermination() {
+        return Collections.unmodifiableList(this.reasonsOfTermination);
+    }
+}
@@ -0,0 +1,170 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import de.binarytree.plugins.qualitygates.ReadCounter;
+
+/**
+ * The time taken and bytes read by the evaluation of a step or gate. Measuring it only takes the monotonic clock, the
+ * CPU time of the current thread and the {@link ReadCounter}, so that it is cheap enough to measure every evaluation.
+ * It is formatted only when it is displayed.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+@ExportedBean
+public final class Timing {
+
+    /**
+     * The CPU time of a timing whose CPU time is not known, because the JVM does not measure it.
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final long wallTime;
+
+    private final long cpuTime;
+
+    private final long bytesRead;
+
+    /**
+     * Creates a timing.
+     *
+     * @param wallTime
+     *            the elapsed time in nanoseconds
+     * @param cpuTime
+     *            the CPU time in nanoseconds or {@link #UNKNOWN}
+     * @param bytesRead
+     *            the number of bytes read
+     */
+    public Timing(long wallTime, long cpuTime, long bytesRead) {
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Starts measuring the evaluation performed by the current thread.
+     *
+     * @return the measurement to be stopped when the evaluation is done
+     */
+    public static Measurement start() {
+        return new Measurement();
+    }
+
+    /**
+     * Sums up the CPU time and bytes read of the given step reports, whose steps may have been evaluated by other
+     * threads, and combines them with the given elapsed time of their gate.
+     *
+     * @param wallTime
+     *            the elapsed time of the gate in nanoseconds
+     * @param stepReports
+     *            the reports of the steps of the gate
+     * @return the timing of the gate
+     */
+    public static Timing ofSteps(long wallTime, List<GateStepReport> stepReports) {
+        long cpuTime = 0;
+        long bytesRead = 0;
+        for (GateStepReport stepReport : stepReports) {
+            Timing timing = stepReport.getTiming();
+            if (timing != null) {
+                cpuTime = cpuTime == UNKNOWN || timing.cpuTime == UNKNOWN ? UNKNOWN : cpuTime + timing.cpuTime;
+                bytesRead += timing.bytesRead;
+            }
+        }
+        return new Timing(wallTime, cpuTime, bytesRead);
+    }
+
+    private static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : UNKNOWN;
+    }
+
+    /**
+     * Returns the elapsed time in nanoseconds.
+     *
+     * @return the elapsed time
+     */
+    @Exported
+    public long getWallTime() {
+        return this.wallTime;
+    }
+
+    /**
+     * Returns the CPU time in nanoseconds.
+     *
+     * @return the CPU time or {@link #UNKNOWN}, if it has not been measured
+     */
+    @Exported
+    public long getCpuTime() {
+        return this.cpuTime;
+    }
+
+    @Exported
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(formatSeconds(this.wallTime));
+        if (this.cpuTime != UNKNOWN) {
+            text.append(", CPU ").append(formatSeconds(this.cpuTime));
+        }
+        if (this.bytesRead > 0) {
+            text.append(", ").append(formatBytes(this.bytesRead)).append(" read");
+        }
+        return text.toString();
+    }
+
+    private static String formatSeconds(long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f s", nanos / 1e9);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.ENGLISH, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ENGLISH, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * A running measurement of the current thread.
+     */
+    public static final class Measurement {
+        private final long startTime = System.nanoTime();
+
+        private final long startCpuTime = currentThreadCpuTime();
+
+        private final long startBytesRead = ReadCounter.getBytesReadByCurrentThread();
+
+        private Measurement() {
+        }
+
+        /**
+         * Stops this measurement. Has to be called by the thread which has started it.
+         *
+         * @return the timing measured
+         */
+        public Timing stop() {
+            long wallTime = System.nanoTime() - this.startTime;
+            long cpuTime = currentThreadCpuTime();
+            if (cpuTime != UNKNOWN && this.startCpuTime != UNKNOWN) {
+                cpuTime -= this.startCpuTime;
+            } else {
+                cpuTime = UNKNOWN;
+            }
+            return new Timing(wallTime, cpuTime, ReadCounter.getBytesReadByCurrentThread() - this.startBytesRead);
+        }
+    }
+}
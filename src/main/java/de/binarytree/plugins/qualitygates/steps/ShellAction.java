@@ -54,6 +54,11 @@ public class ShellAction extends GateStep {
 
     }
 
+    @Override
+    public boolean isSequentialOnly() {
+        return true;
+    }
+
     protected Shell getShell() {
         return new Shell(this.command);
 
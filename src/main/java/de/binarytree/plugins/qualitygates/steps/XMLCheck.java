@@ -6,23 +6,31 @@ import hudson.util.FormValidation;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
+import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.QueryParameter;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import de.binarytree.plugins.qualitygates.ContentDigest;
 import de.binarytree.plugins.qualitygates.GateStep;
 import de.binarytree.plugins.qualitygates.GateStepDescriptor;
+import de.binarytree.plugins.qualitygates.ReadCounter;
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
+import de.binarytree.plugins.qualitygates.steps.xpath.StreamingPathExpression;
+import de.binarytree.plugins.qualitygates.steps.xpath.XMLDocumentCache;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathEvaluation;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathExpressionCache;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathLookup;
 
 /**
  * This check relates a given expression to a given target file. Nevertheless, it does not implement logic to determine
@@ -33,10 +41,17 @@ import de.binarytree.plugins.qualitygates.GateStepDescriptor;
  */
 public abstract class XMLCheck extends GateStep {
 
+    private static final boolean AGENT_EVALUATION_DISABLED = Boolean.getBoolean(XMLCheck.class.getName()
+            + ".disableAgentEvaluation");
+
     private String expression;
 
     private String targetFile;
 
+    private transient StreamingPathExpression streamingExpression;
+
+    private transient boolean streamingExpressionCompiled;
+
     public XMLCheck(String expression, String targetFile) {
         this.expression = expression;
         this.targetFile = targetFile;
@@ -66,16 +81,261 @@ public abstract class XMLCheck extends GateStep {
      */
     protected NodeList getMatchingNodes(InputStream stream) throws ParserConfigurationException, SAXException,
             IOException, XPathExpressionException {
-        DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-        domFactory.setNamespaceAware(false);
-        DocumentBuilder builder = domFactory.newDocumentBuilder();
-        Document doc = builder.parse(stream);
+        return XPathEvaluation.getMatchingNodes(XPathEvaluation.parse(stream), this.expression);
+    }
 
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpath = factory.newXPath();
-        XPathExpression expr = xpath.compile(this.getExpression());
+    /**
+     * Counts the nodes of the given input stream which match the expression defined during construction. Simple path
+     * expressions are evaluated while streaming through the document, so that it does not need to be held in memory.
+     * All other expressions are evaluated on a DOM as done by {@link #getMatchingNodes(InputStream)}.
+     * 
+     * @param stream
+     *            the stream to analyze
+     * @return the number of nodes matching the predefined expression
+     * 
+     * @throws SAXException
+     *             when the stream cannot be parsed as XML
+     * @throws IOException
+     *             when the target file cannot be read
+     * @throws XPathExpressionException
+     *             when the expression does not compile
+     */
+    protected int countMatchingNodes(InputStream stream) throws ParserConfigurationException, SAXException,
+            IOException, XPathExpressionException {
+        return XPathEvaluation.countMatchingNodes(stream, this.expression, getStreamingExpression());
+    }
 
-        return (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
+    /**
+     * Counts the nodes of the target file which match the expression defined during construction. If the workspace is
+     * located on an agent, the file is evaluated there together with the lookups announced by the other checks of the
+     * gate. While a quality line is evaluated, the target file is parsed at most once for all checks sharing it. Counts
+     * of simple path expressions are remembered instead of the document, unless the document is needed anyway.
+     * 
+     * @param build
+     *            the build of which the workspace has to be used
+     * @return the number of nodes matching the predefined expression
+     * 
+     * @throws SAXException
+     *             when the target file cannot be parsed as XML
+     * @throws IOException
+     *             when the target file cannot be read
+     * @throws XPathExpressionException
+     *             when the expression does not compile
+     * @throws InterruptedException
+     *             when the access to the workspace is interrupted
+     */
+    protected int countMatchingNodes(AbstractBuild<?, ?> build) throws ParserConfigurationException, SAXException,
+            IOException, XPathExpressionException, InterruptedException {
+        if (shouldEvaluateOnAgent(build)) {
+            return (Integer) lookUpOnAgent(build, XPathLookup.count(this.expression));
+        }
+        XMLDocumentCache cache = XMLDocumentCache.forBuild(build);
+        if (cache == null) {
+            return countMatchingNodesOfTargetFile(build);
+        }
+        FilePath target = getTargetFilePath(build);
+        String path = target.getRemote();
+        long lastModified = target.lastModified();
+        Integer count = cache.getCount(path, lastModified, this.expression);
+        if (count != null) {
+            return count;
+        }
+        if (getStreamingExpression() == null || cache.hasDocument(path, lastModified)) {
+            count = XPathEvaluation.getMatchingNodes(obtainDocument(build, cache, path, lastModified), this.expression)
+                    .getLength();
+        } else {
+            count = countMatchingNodesOfTargetFile(build);
+        }
+        cache.putCount(path, lastModified, this.expression, count);
+        return count;
+    }
+
+    private int countMatchingNodesOfTargetFile(AbstractBuild<?, ?> build) throws ParserConfigurationException,
+            SAXException, IOException, XPathExpressionException {
+        InputStream stream = obtainInputStreamOfTargetfileRelativeToBuild(build);
+        try {
+            return countMatchingNodes(stream);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Returns the text content of the first node of the target file which matches the expression defined during
+     * construction. If the workspace is located on an agent, the file is evaluated there together with the lookups
+     * announced by the other checks of the gate. While a quality line is evaluated, the target file is parsed at most
+     * once for all checks sharing it.
+     * 
+     * @param build
+     *            the build of which the workspace has to be used
+     * @return the text content of the first matching node or an empty string, if no node matches
+     * 
+     * @throws SAXException
+     *             when the target file cannot be parsed as XML
+     * @throws IOException
+     *             when the target file cannot be read
+     * @throws XPathExpressionException
+     *             when the expression does not compile
+     * @throws InterruptedException
+     *             when the access to the workspace is interrupted
+     */
+    protected String getTextContentOfFirstMatchingNode(AbstractBuild<?, ?> build)
+            throws ParserConfigurationException, SAXException, IOException, XPathExpressionException,
+            InterruptedException {
+        if (shouldEvaluateOnAgent(build)) {
+            return (String) lookUpOnAgent(build, XPathLookup.textContent(this.expression));
+        }
+        Document doc;
+        XMLDocumentCache cache = XMLDocumentCache.forBuild(build);
+        if (cache == null) {
+            InputStream stream = obtainInputStreamOfTargetfileRelativeToBuild(build);
+            try {
+                doc = XPathEvaluation.parse(stream);
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+        } else {
+            FilePath target = getTargetFilePath(build);
+            doc = obtainDocument(build, cache, target.getRemote(), target.lastModified());
+        }
+        return XPathEvaluation.getTextContentOfFirstMatchingNode(doc, this.expression);
+    }
+
+    /**
+     * Performs a lookup in the target file on the agent holding the workspace. While a quality line is evaluated, the
+     * lookups announced for the file which have not been performed yet are performed in the same call and their
+     * results are remembered for the checks announcing them.
+     */
+    private Object lookUpOnAgent(AbstractBuild<?, ?> build, XPathLookup lookup) throws ParserConfigurationException,
+            SAXException, IOException, XPathExpressionException, InterruptedException {
+        FilePath target = getTargetFilePath(build);
+        XMLDocumentCache cache = XMLDocumentCache.forBuild(build);
+        if (cache == null) {
+            return XPathEvaluation.valueOf(XPathEvaluation.lookUp(target, Collections.singletonList(lookup)).get(
+                    lookup));
+        }
+        String path = target.getRemote();
+        long lastModified = target.lastModified();
+        Serializable result = cache.getResult(path, lastModified, lookup);
+        if (result == null) {
+            List<XPathLookup> lookups = new ArrayList<XPathLookup>();
+            lookups.add(lookup);
+            for (XPathLookup announced : cache.getAnnouncedLookups(path)) {
+                if (!lookups.contains(announced) && cache.getResult(path, lastModified, announced) == null) {
+                    lookups.add(announced);
+                }
+            }
+            Map<XPathLookup, Serializable> results = XPathEvaluation.lookUp(target, lookups);
+            for (Map.Entry<XPathLookup, Serializable> entry : results.entrySet()) {
+                cache.putResult(path, lastModified, entry.getKey(), entry.getValue());
+            }
+            result = results.get(lookup);
+        }
+        return XPathEvaluation.valueOf(result);
+    }
+
+    /**
+     * Announces the lookup of this check, so that it is performed together with the lookups of the other checks of
+     * the gate sharing the target file on an agent.
+     * 
+     * @param build
+     *            the build of which the workspace has to be used
+     */
+    @Override
+    protected void announce(AbstractBuild<?, ?> build) {
+        XPathLookup lookup = getLookup();
+        if (lookup == null || build.getModuleRoot() == null || !shouldEvaluateOnAgent(build)) {
+            return;
+        }
+        XMLDocumentCache cache = XMLDocumentCache.forBuild(build);
+        if (cache != null) {
+            cache.announce(getTargetFilePath(build).getRemote(), lookup);
+        }
+    }
+
+    /**
+     * Returns the lookup this check performs in its target file, so that it can be announced.
+     * 
+     * @return the lookup or null, if this check does not announce its lookup
+     */
+    protected XPathLookup getLookup() {
+        return null;
+    }
+
+    /**
+     * Whether the target file is evaluated on the agent holding the workspace instead of being transferred to the
+     * master. This is the case for workspaces on agents, unless the system property
+     * <code>de.binarytree.plugins.qualitygates.steps.XMLCheck.disableAgentEvaluation</code> is set.
+     * 
+     * @param build
+     *            the build of which the workspace has to be used
+     * @return whether or not the target file is evaluated on the agent
+     */
+    protected boolean shouldEvaluateOnAgent(AbstractBuild<?, ?> build) {
+        if (AGENT_EVALUATION_DISABLED) {
+            return false;
+        }
+        FilePath moduleRoot = build.getModuleRoot();
+        return moduleRoot != null && moduleRoot.isRemote();
+    }
+
+    private Document obtainDocument(final AbstractBuild<?, ?> build, XMLDocumentCache cache, String path,
+            long lastModified) throws ParserConfigurationException, SAXException, IOException {
+        return cache.getDocument(path, lastModified, new XMLDocumentCache.DocumentParser() {
+            public Document parse() throws ParserConfigurationException, SAXException, IOException {
+                InputStream stream = obtainInputStreamOfTargetfileRelativeToBuild(build);
+                try {
+                    return XPathEvaluation.parse(stream);
+                } finally {
+                    IOUtils.closeQuietly(stream);
+                }
+            }
+        });
+    }
+
+    private synchronized StreamingPathExpression getStreamingExpression() {
+        if (!this.streamingExpressionCompiled) {
+            this.streamingExpression = StreamingPathExpression.compile(this.expression);
+            this.streamingExpressionCompiled = true;
+        }
+        return this.streamingExpression;
+    }
+
+    /**
+     * Returns the key under which the result of this check is cached: its class, its configuration and a digest of the
+     * content of the target file. The digest is computed on the node holding the workspace, so that an unchanged report
+     * produced by a rebuild in another workspace hits the cache, whereas a report rewritten within the resolution of
+     * the modification time does not.
+     * 
+     * @param build
+     *            the build of which the workspace has to be used
+     * @return the key identifying this check and the content of its target file or null, if there is no workspace or
+     *         no target file
+     * @throws IOException
+     *             when the target file cannot be read
+     * @throws InterruptedException
+     *             when the access to the workspace is interrupted
+     */
+    @Override
+    protected String getResultCacheKey(AbstractBuild<?, ?> build) throws IOException, InterruptedException {
+        if (build.getModuleRoot() == null) {
+            return null;
+        }
+        String digest = ContentDigest.of(build, getTargetFilePath(build));
+        if (digest == null) {
+            return null;
+        }
+        return getClass().getName() + "\n" + describeConfiguration() + "\n" + digest;
+    }
+
+    /**
+     * Describes the configuration which determines the result of this check together with the content of the target
+     * file. Subclasses having further settings have to append them.
+     * 
+     * @return the configuration of this check
+     */
+    protected String describeConfiguration() {
+        return this.expression + "\n" + this.targetFile;
     }
 
     /**
@@ -89,10 +349,17 @@ public abstract class XMLCheck extends GateStep {
      * @throws InterruptedException
      */
     protected boolean buildHasFileInWorkspace(AbstractBuild<?, ?> build) throws IOException, InterruptedException {
-        return generateFilePathFromPathStringRelativeToBuild(build).exists();
+        return getTargetFilePath(build).exists();
     }
 
-    private FilePath generateFilePathFromPathStringRelativeToBuild(AbstractBuild<?, ?> build) {
+    /**
+     * Resolves the target file in the workspace of the given build.
+     * 
+     * @param build
+     *            the build of which the workspace has to be used
+     * @return the path of the target file
+     */
+    protected FilePath getTargetFilePath(AbstractBuild<?, ?> build) {
         return build.getModuleRoot().child(this.targetFile);
     }
 
@@ -106,8 +373,8 @@ public abstract class XMLCheck extends GateStep {
      *             when the target file cannot be accessed or read
      */
     protected InputStream obtainInputStreamOfTargetfileRelativeToBuild(AbstractBuild<?, ?> build) throws IOException {
-        FilePath pom = build.getModuleRoot().child(this.targetFile);
-        return pom.read();
+        return ReadCounter.count(getTargetFilePath(build).read(), QualityLineMetrics.getInstance()
+                .getBytesParsedFromXml());
     }
 
     @Override
@@ -128,10 +395,8 @@ public abstract class XMLCheck extends GateStep {
             if (value.length() == 0) {
                 return FormValidation.error("XPath expression must not be empty");
             } else {
-                XPathFactory factory = XPathFactory.newInstance();
-                XPath xpath = factory.newXPath();
                 try {
-                    XPathExpression expr = xpath.compile(value);
+                    XPathExpressionCache.getDefault().compile(value);
                 } catch (XPathExpressionException e) {
                     return FormValidation.error("XPath expression is not valid.");
                 }
@@ -7,16 +7,15 @@ import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
 import java.io.IOException;
-import java.io.InputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.kohsuke.stapler.DataBoundConstructor;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathLookup;
 
 /**
  * This check tests, whether a given expression is contained in a given file. If
@@ -68,10 +67,8 @@ public class XPathExpressionCheck extends XMLCheck {
     private void matchExpression(AbstractBuild<?, ?> build,
             GateStepReport checkReport) throws IOException,
             ParserConfigurationException, SAXException,
-            XPathExpressionException {
-        InputStream stream = this
-                .obtainInputStreamOfTargetfileRelativeToBuild(build);
-        String content = this.getTextContentForXPathExpression(stream);
+            XPathExpressionException, InterruptedException {
+        String content = this.getTextContentOfFirstMatchingNode(build);
         this.setCheckResult(checkReport, content);
     }
 
@@ -88,15 +85,14 @@ public class XPathExpressionCheck extends XMLCheck {
         }
     }
 
-    private String getTextContentForXPathExpression(InputStream stream)
-            throws XPathExpressionException, ParserConfigurationException,
-            SAXException, IOException {
-        NodeList nodes = getMatchingNodes(stream);
-        if (nodes.getLength() > 0) {
-            return nodes.item(0).getTextContent();
-        } else {
-            return "";
-        }
+    @Override
+    protected String describeConfiguration() {
+        return super.describeConfiguration() + "\n" + this.reportContent;
+    }
+
+    @Override
+    protected XPathLookup getLookup() {
+        return XPathLookup.textContent(this.getExpression());
     }
 
     @Override
@@ -7,16 +7,15 @@ import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
 import java.io.IOException;
-import java.io.InputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.kohsuke.stapler.DataBoundConstructor;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathLookup;
 
 /**
  * This check calculates the number of occurrences of a given expression in a given file. If the number is under
@@ -85,38 +84,31 @@ public class XPathExpressionCountCheck extends XMLCheck {
     private void processTargetFileIfExistent(AbstractBuild<?, ?> build, GateStepReport checkReport) throws IOException,
             InterruptedException, ParserConfigurationException, SAXException, XPathExpressionException {
         if (buildHasFileInWorkspace(build)) {
-            NodeList matchingNodes = matchExpression(build);
-            setCheckResult(checkReport, matchingNodes);
+            int numberOfMatches = matchExpression(build);
+            setCheckResult(checkReport, numberOfMatches);
         } else {
             failDueToNonexistentFile(checkReport);
         }
     }
 
-    private NodeList matchExpression(AbstractBuild<?, ?> build) throws IOException, ParserConfigurationException,
-            SAXException, XPathExpressionException {
-        InputStream stream = this.obtainInputStreamOfTargetfileRelativeToBuild(build);
-        return getMatchingNodes(stream);
+    private int matchExpression(AbstractBuild<?, ?> build) throws IOException, ParserConfigurationException,
+            SAXException, XPathExpressionException, InterruptedException {
+        return countMatchingNodes(build);
     }
 
-    private void setCheckResult(GateStepReport checkReport, NodeList nodes) {
-        if (nodes != null) {
-            int length = nodes.getLength();
-
-            Result result = Result.FAILURE;
-            String reason = length + " violations";
-            if (this.countIsSuccess(length)) {
-                result = Result.SUCCESS;
-            } else if (this.countIsWarning(length)) {
-                result = Result.UNSTABLE;
-                reason += ". Fix at least " + (length - this.successThreshold) + " to be successful.";
-            } else {
-                reason += ". Fix at least " + (length - this.warningThreshold) + " to improve state.";
-            }
-
-            checkReport.setResult(result, reason);
+    private void setCheckResult(GateStepReport checkReport, int length) {
+        Result result = Result.FAILURE;
+        String reason = length + " violations";
+        if (this.countIsSuccess(length)) {
+            result = Result.SUCCESS;
+        } else if (this.countIsWarning(length)) {
+            result = Result.UNSTABLE;
+            reason += ". Fix at least " + (length - this.successThreshold) + " to be successful.";
         } else {
-            checkReport.setResult(Result.SUCCESS, "No occurrence");
+            reason += ". Fix at least " + (length - this.warningThreshold) + " to improve state.";
         }
+
+        checkReport.setResult(result, reason);
     }
 
     /**
@@ -142,11 +134,21 @@ public class XPathExpressionCountCheck extends XMLCheck {
         return count <= this.warningThreshold;
     }
 
+    @Override
+    protected String describeConfiguration() {
+        return super.describeConfiguration() + "\n" + this.successThreshold + "\n" + this.warningThreshold;
+    }
+
     private void failDueToNonexistentFile(GateStepReport checkReport) {
         checkReport.setResult(Result.FAILURE, this.getTargetFile() + " not found");
 
     }
 
+    @Override
+    protected XPathLookup getLookup() {
+        return XPathLookup.count(getExpression());
+    }
+
     @Override
     public String getDescription() {
         return this.name + ": Count of " + this.getExpression() + " in " + this.getTargetFile();
@@ -0,0 +1,171 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import de.binarytree.plugins.qualitygates.GateStepDescriptor;
+import de.binarytree.plugins.qualitygates.result.GateStepReport;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BannedDependencyAnalysisResult;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BannedDependencyParser;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
+
+/**
+ * This check analyzes the log generated by the bannedDependencies rule of
+ * mvn enforcer:enforce.
+ *
+ * It counts the banned dependencies found. If the number is under
+ * {@link #successThreshold} this check is successful, if it is under
+ * {@link #warningThreshold} it is a warning. Otherwise the check fails. The
+ * section of the enforcer is taken from the same parse of the build log as
+ * the one of dependency:analyze, see {@link DependencyDeclarationCheck}.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class BannedDependencyCheck extends DependencyCheck {
+
+    public static final Logger LOGGER = Logger
+            .getLogger(BannedDependencyCheck.class.getName());
+
+    private int successThreshold;
+
+    private int warningThreshold;
+
+    /**
+     * Creates a new check of this type.
+     *
+     * @param successThreshold
+     *            the number of banned dependencies which may not be exceeded
+     *            to be a success
+     * @param warningThreshold
+     *            the number of banned dependencies which may not be exceeded
+     *            to be a warning
+     */
+    @DataBoundConstructor
+    public BannedDependencyCheck(int successThreshold, int warningThreshold) {
+        this.successThreshold = successThreshold;
+        this.warningThreshold = warningThreshold;
+    }
+
+    public int getSuccessThreshold() {
+        return this.successThreshold;
+    }
+
+    public int getWarningThreshold() {
+        return this.warningThreshold;
+    }
+
+    @Override
+    protected void processBuildLog(AbstractBuild<?, ?> build,
+            GateStepReport checkReport) throws IOException {
+        String enforcerSection = obtainSectionOfBuildLog(build,
+                Goal.BANNED_DEPENDENCY_ANALYSE);
+        if (enforcerSection == null) {
+            setCheckReportToUnstableDueToMissingEnforcerSection(checkReport);
+        } else {
+            BannedDependencyAnalysisResult analysis = analyseEnforcerSection(enforcerSection);
+            setCheckResult(checkReport, analysis);
+        }
+    }
+
+    @Override
+    protected String describeConfiguration() {
+        return this.successThreshold + "\n" + this.warningThreshold;
+    }
+
+    private void setCheckReportToUnstableDueToMissingEnforcerSection(
+            GateStepReport checkReport) {
+        LOGGER.info("No enforcer section found. Add enforcer:enforce on your job configuration.");
+        checkReport
+                .setResult(
+                        Result.UNSTABLE,
+                        "No enforcer section found. Add enforcer:enforce with the bannedDependencies rule on your job configuration.");
+    }
+
+    /**
+     * Hook for the actual analysis of the enforcer section
+     *
+     * @param enforcerSection
+     *            the string which shall be analysed and should contain the
+     *            banned dependencies reported by maven
+     * @return a result of the analysis
+     * @throws IOException
+     *             when the section could not be read
+     */
+    protected BannedDependencyAnalysisResult analyseEnforcerSection(
+            String enforcerSection) throws IOException {
+        return BannedDependencyParser
+                .parseDependencyAnalyzeSection(enforcerSection);
+    }
+
+    private void setCheckResult(GateStepReport checkReport,
+            BannedDependencyAnalysisResult analysis) {
+        int numberOfBannedDependencies = analysis
+                .getNumberOfBannedDependencies();
+        Result result = Result.FAILURE;
+        String reason = numberOfBannedDependencies
+                + " banned dependencies found";
+        if (numberOfBannedDependencies > 0) {
+            reason += ": "
+                    + StringUtils.join(analysis.getBannedDependencies(), ", ");
+        }
+        if (this.countIsSuccess(numberOfBannedDependencies)) {
+            result = Result.SUCCESS;
+        } else if (this.countIsWarning(numberOfBannedDependencies)) {
+            result = Result.UNSTABLE;
+            reason += ". Remove at least "
+                    + (numberOfBannedDependencies - this.successThreshold)
+                    + " to be successful.";
+        } else {
+            reason += ". Remove at least "
+                    + (numberOfBannedDependencies - this.warningThreshold)
+                    + " to improve state.";
+        }
+        checkReport.setResult(result, reason);
+    }
+
+    /**
+     * Whether the given count is under the threshold for success.
+     *
+     * @param count
+     *            the count to be measured
+     * @return whether or not the count is under the success threshold
+     */
+    public boolean countIsSuccess(int count) {
+        return count <= this.successThreshold;
+    }
+
+    /**
+     * Whether the given count is under the threshold for warning.
+     *
+     * @param count
+     *            the count to be measured
+     * @return whether or not the count is under the warning threshold
+     */
+    public boolean countIsWarning(int count) {
+        return count <= this.warningThreshold;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends GateStepDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "Maven Banned Dependency Check";
+        }
+
+    }
+
+    @Override
+    public String getDescription() {
+        return "Banned Dependency Check";
+    }
+
+}
@@ -0,0 +1,153 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck;
+
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
+
+/**
+ * Holds the sections of the log of one build, so that all dependency checks of a quality line, as well as its
+ * re-evaluations, parse the log only once. When the log file has changed in the meantime, judged by its length and
+ * its modification time, only the lines appended to it are parsed. If it has not grown, it is parsed again.
+ *
+ * The sections are not persisted, they are kept as long as their build is held in memory.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+final class BuildLogSections {
+
+    private static final Map<AbstractBuild<?, ?>, BuildLogSections> SECTIONS_OF_BUILDS = new WeakHashMap<AbstractBuild<?, ?>, BuildLogSections>();
+
+    private long length = -1;
+
+    private long lastModified = -1;
+
+    private BuildLogFileParser logFileParser;
+
+    private Map<Goal, String> sections;
+
+    private Map<Goal, Map<String, String>> sectionsPerModule;
+
+    private BuildLogSections() {
+    }
+
+    /**
+     * Returns the sections of the log of the given build.
+     *
+     * @param build
+     *            the build whose log is concerned
+     * @return the (possibly not yet parsed) sections of the log of the build
+     */
+    static BuildLogSections of(AbstractBuild<?, ?> build) {
+        synchronized (SECTIONS_OF_BUILDS) {
+            BuildLogSections buildLogSections = SECTIONS_OF_BUILDS.get(build);
+            if (buildLogSections == null) {
+                buildLogSections = new BuildLogSections();
+                SECTIONS_OF_BUILDS.put(build, buildLogSections);
+            }
+            return buildLogSections;
+        }
+    }
+
+    /**
+     * Returns the sections of the given log file. They are only parsed, using the given check, if they have not
+     * been parsed before or the log file has changed since. If it has grown, parsing is continued after the lines
+     * parsed before.
+     *
+     * @param logFile
+     *            the log file of the build
+     * @param check
+     *            the check parsing the log file if necessary
+     * @param build
+     *            the build whose log is concerned
+     * @return an unmodifiable map from the goals to the contents of their sections
+     * @throws IOException
+     *             when the log file could not be accessed or read
+     */
+    synchronized Map<Goal, String> getSections(File logFile, DependencyCheck check, AbstractBuild<?, ?> build)
+            throws IOException {
+        update(logFile, check, build);
+        return this.sections;
+    }
+
+    /**
+     * Returns the sections of the given log file per module, see {@link #getSections(File, DependencyCheck,
+     * AbstractBuild)}.
+     * 
+     * @param logFile
+     *            the log file of the build
+     * @param check
+     *            the check parsing the log file if necessary
+     * @param build
+     *            the build whose log is concerned
+     * @return an unmodifiable map from the goals to the contents of their sections per module
+     * @throws IOException
+     *             when the log file could not be accessed or read
+     */
+    synchronized Map<Goal, Map<String, String>> getSectionsPerModule(File logFile, DependencyCheck check,
+            AbstractBuild<?, ?> build) throws IOException {
+        update(logFile, check, build);
+        return this.sectionsPerModule;
+    }
+
+    private void update(File logFile, DependencyCheck check, AbstractBuild<?, ?> build) throws IOException {
+        long currentLength = logFile.length();
+        long currentLastModified = logFile.lastModified();
+        if (this.sections == null || currentLength < this.length
+                || (currentLength == this.length && currentLastModified != this.lastModified)) {
+            this.logFileParser = check.parseBuildLogFile(build);
+        } else if (currentLength > this.length) {
+            this.logFileParser.continueParsingLogFile(logFile);
+        } else {
+            return;
+        }
+        this.sections = sectionsOf(this.logFileParser);
+        this.sectionsPerModule = sectionsPerModuleOf(this.logFileParser);
+        this.length = currentLength;
+        this.lastModified = currentLastModified;
+    }
+
+    /**
+     * Extracts the sections of all goals from the given parser.
+     *
+     * @param logFileParser
+     *            a parser which has already parsed a log file
+     * @return an unmodifiable map from the goals to the contents of their sections
+     */
+    static Map<Goal, String> sectionsOf(BuildLogFileParser logFileParser) {
+        Map<Goal, String> sections = new EnumMap<Goal, String>(Goal.class);
+        for (Goal goal : Goal.values()) {
+            String section = logFileParser.getContentOfSectionFor(goal);
+            if (section != null) {
+                sections.put(goal, section);
+            }
+        }
+        return Collections.unmodifiableMap(sections);
+    }
+
+    /**
+     * Extracts the sections of all goals per module from the given parser.
+     * 
+     * @param logFileParser
+     *            a parser which has already parsed a log file
+     * @return an unmodifiable map from the goals to the contents of their sections per module
+     */
+    static Map<Goal, Map<String, String>> sectionsPerModuleOf(BuildLogFileParser logFileParser) {
+        Map<Goal, Map<String, String>> sectionsPerModule = new EnumMap<Goal, Map<String, String>>(Goal.class);
+        for (Goal goal : Goal.values()) {
+            Map<String, String> sectionsOfModules = logFileParser.getContentOfSectionsPerModuleFor(goal);
+            if (sectionsOfModules != null) {
+                sectionsPerModule.put(goal, Collections.unmodifiableMap(sectionsOfModules));
+            }
+        }
+        return Collections.unmodifiableMap(sectionsPerModule);
+    }
+}
@@ -7,10 +7,13 @@ import hudson.model.AbstractBuild;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
+import de.binarytree.plugins.qualitygates.ContentDigest;
 import de.binarytree.plugins.qualitygates.GateStep;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
 
 /**
  * This check evaluates the log generated by mvn dependency:analyze.
@@ -53,6 +56,44 @@ public abstract class DependencyCheck extends GateStep {
 
     }
 
+    /**
+     * Returns the key under which the result of this check is cached: its
+     * class, its configuration and a digest of the content of the build log.
+     * Logs of different builds with the same content therefore share their
+     * results.
+     * 
+     * @param build
+     *            the build of which the log shall be analyzed
+     * @return the key identifying this check and the content of the build log
+     *         or null, if the build has not been successful or has no log file
+     * @throws IOException
+     *             when the log could not be read
+     */
+    @Override
+    protected String getResultCacheKey(AbstractBuild<?, ?> build)
+            throws IOException {
+        File logFile = build.getLogFile();
+        if (!buildExists(build) || logFile == null) {
+            return null;
+        }
+        String digest = ContentDigest.of(build, logFile);
+        if (digest == null) {
+            return null;
+        }
+        return getClass().getName() + "\n" + describeConfiguration() + "\n"
+                + digest;
+    }
+
+    /**
+     * Describes the configuration which determines the result of this check
+     * together with the build log.
+     * 
+     * @return the configuration of this check
+     */
+    protected String describeConfiguration() {
+        return "";
+    }
+
     private boolean buildExists(AbstractBuild<?, ?> build) {
         Result result = build.getResult();
         return Result.SUCCESS.equals(result) || Result.UNSTABLE.equals(result);
@@ -63,6 +104,69 @@ public abstract class DependencyCheck extends GateStep {
                 "Cannot proceed, build has not been successful");
     }
 
+    /**
+     * Returns the content of the section of the given goal in the build log.
+     * 
+     * @param build
+     *            the build of which the log shall be analyzed
+     * @param goal
+     *            the goal whose section shall be returned
+     * @return the content of the section or null, if the goal has not been
+     *         executed
+     * @throws IOException
+     *             when the log file could not be accessed or read
+     */
+    protected String obtainSectionOfBuildLog(AbstractBuild<?, ?> build,
+            Goal goal) throws IOException {
+        return obtainSectionsOfBuildLog(build).get(goal);
+    }
+
+    /**
+     * Returns the sections of all goals in the build log. They are shared by
+     * all dependency checks of the build, so that the log is parsed only once
+     * as long as it does not change.
+     * 
+     * @param build
+     *            the build of which the log shall be analyzed
+     * @return an unmodifiable map from the goals to the contents of their
+     *         sections
+     * @throws IOException
+     *             when the log file could not be accessed or read
+     */
+    protected Map<Goal, String> obtainSectionsOfBuildLog(
+            AbstractBuild<?, ?> build) throws IOException {
+        File logFile = build.getLogFile();
+        if (logFile == null) {
+            return BuildLogSections.sectionsOf(parseBuildLogFile(build));
+        }
+        return BuildLogSections.of(build).getSections(logFile, this, build);
+    }
+
+    /**
+     * Returns the contents of the sections of the given goal in the build log
+     * per module of the reactor, in the order in which the modules have been
+     * built.
+     * 
+     * @param build
+     *            the build of which the log shall be analyzed
+     * @param goal
+     *            the goal whose sections shall be returned
+     * @return an unmodifiable map from the modules to the contents of their
+     *         sections or null, if the goal has not been executed
+     * @throws IOException
+     *             when the log file could not be accessed or read
+     */
+    protected Map<String, String> obtainSectionsPerModuleOfBuildLog(
+            AbstractBuild<?, ?> build, Goal goal) throws IOException {
+        File logFile = build.getLogFile();
+        if (logFile == null) {
+            return BuildLogSections.sectionsPerModuleOf(
+                    parseBuildLogFile(build)).get(goal);
+        }
+        return BuildLogSections.of(build)
+                .getSectionsPerModule(logFile, this, build).get(goal);
+    }
+
     /**
      * Reads the log file and returns a corresponding log file parser. 
      * @param build the build of which the log shall be analyzed
@@ -78,7 +182,8 @@ public abstract class DependencyCheck extends GateStep {
     }
 
     /**
-     * Returns a new log file parser. 
+     * Returns a new log file parser. As the parsed sections are shared with
+     * the other dependency checks, it has to keep the sections of all goals.
      * @return a new log file parser
      */
     protected BuildLogFileParser createLogFileParser() {
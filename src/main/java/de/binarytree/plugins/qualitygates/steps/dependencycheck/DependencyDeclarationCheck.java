@@ -5,14 +5,21 @@ import hudson.model.AbstractBuild;
 import hudson.model.Result;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import de.binarytree.plugins.qualitygates.DaemonThreadPool;
 import de.binarytree.plugins.qualitygates.GateStepDescriptor;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
-import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser;
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.DependencyAnalysisParser;
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.result.MavenDependencyAnalysisResult;
@@ -21,6 +28,10 @@ import de.binarytree.plugins.qualitygates.steps.dependencycheck.result.MavenDepe
  * This check analyzes the log generated by mvn dependency:analyze.
  * 
  * It aggregates the number of used undeclared and unused declared dependencies.
+ * In reactor builds the section of each module is analysed on its own and the
+ * modules responsible for the violations are listed. The sections of four or
+ * more modules are analysed in parallel on a pool whose size can be set with the system property
+ * <code>de.binarytree.plugins.qualitygates.steps.dependencycheck.DependencyDeclarationCheck.poolSize</code>.
  */
 
 public class DependencyDeclarationCheck extends DependencyCheck {
@@ -28,6 +39,12 @@ public class DependencyDeclarationCheck extends DependencyCheck {
     public static final Logger LOGGER = Logger
             .getLogger(DependencyDeclarationCheck.class.toString());
 
+    private static final int MODULES_FOR_PARALLEL_ANALYSIS = 4;
+
+    private static final DaemonThreadPool POOL = new DaemonThreadPool(
+            DependencyDeclarationCheck.class, Runtime.getRuntime()
+                    .availableProcessors(), "Dependency section analysis");
+
     @DataBoundConstructor
     public DependencyDeclarationCheck() {
     }
@@ -35,7 +52,21 @@ public class DependencyDeclarationCheck extends DependencyCheck {
     @Override
     protected void processBuildLog(AbstractBuild<?, ?> build,
             GateStepReport checkReport) throws IOException {
-        String dependencySection = obtainDependencySection(build);
+        Map<String, String> dependencySections = obtainSectionsPerModuleOfBuildLog(
+                build, Goal.DEPENDENCY_ANALYSE);
+        if (dependencySections == null || dependencySections.isEmpty()) {
+            processDependencySection(obtainDependencySection(build),
+                    checkReport);
+        } else if (!dependencySectionWasFound(dependencySections)) {
+            setCheckReportToUnstableDueToMissingDependencySection(checkReport);
+        } else {
+            MavenDependencyAnalysisResult dependencyProblems = analyseDependencySectionsOfModules(dependencySections);
+            gatherViolationsAndSetCheckReport(checkReport, dependencyProblems);
+        }
+    }
+
+    private void processDependencySection(String dependencySection,
+            GateStepReport checkReport) throws IOException {
         if (!dependencySectionWasFound(dependencySection)) {
             setCheckReportToUnstableDueToMissingDependencySection(checkReport);
         } else {
@@ -46,14 +77,81 @@ public class DependencyDeclarationCheck extends DependencyCheck {
 
     private String obtainDependencySection(AbstractBuild<?, ?> build)
             throws IOException {
-        BuildLogFileParser logFileParser = parseBuildLogFile(build);
-        return logFileParser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE);
+        return obtainSectionOfBuildLog(build, Goal.DEPENDENCY_ANALYSE);
     }
 
     private boolean dependencySectionWasFound(String dependencySection) {
         return !StringUtils.isBlank(dependencySection);
     }
 
+    private boolean dependencySectionWasFound(
+            Map<String, String> dependencySections) {
+        for (String dependencySection : dependencySections.values()) {
+            if (dependencySectionWasFound(dependencySection)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private MavenDependencyAnalysisResult analyseDependencySectionsOfModules(
+            Map<String, String> dependencySections) throws IOException {
+        MavenDependencyAnalysisResult dependencyProblems = new MavenDependencyAnalysisResult();
+        if (dependencySections.size() < MODULES_FOR_PARALLEL_ANALYSIS) {
+            for (Map.Entry<String, String> dependencySection : dependencySections
+                    .entrySet()) {
+                dependencyProblems.addResultOfModule(dependencySection.getKey(),
+                        analyseDependencySection(dependencySection.getValue()));
+            }
+        } else {
+            List<Future<MavenDependencyAnalysisResult>> runningAnalyses = new ArrayList<Future<MavenDependencyAnalysisResult>>();
+            for (final String dependencySection : dependencySections.values()) {
+                runningAnalyses.add(POOL.get().submit(
+                        new Callable<MavenDependencyAnalysisResult>() {
+                            public MavenDependencyAnalysisResult call()
+                                    throws IOException {
+                                return analyseDependencySection(dependencySection);
+                            }
+                        }));
+            }
+            int index = 0;
+            for (String module : dependencySections.keySet()) {
+                dependencyProblems.addResultOfModule(module,
+                        awaitAnalysis(runningAnalyses, index++));
+            }
+        }
+        return dependencyProblems;
+    }
+
+    private MavenDependencyAnalysisResult awaitAnalysis(
+            List<Future<MavenDependencyAnalysisResult>> runningAnalyses,
+            int index) throws IOException {
+        try {
+            return runningAnalyses.get(index).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAnalyses(runningAnalyses);
+            throw new InterruptedIOException(
+                    "Analysis of the dependency sections has been interrupted");
+        } catch (ExecutionException e) {
+            cancelAnalyses(runningAnalyses);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(String.valueOf(cause), cause);
+        }
+    }
+
+    private void cancelAnalyses(
+            List<Future<MavenDependencyAnalysisResult>> runningAnalyses) {
+        for (Future<MavenDependencyAnalysisResult> runningAnalysis : runningAnalyses) {
+            runningAnalysis.cancel(true);
+        }
+    }
+
     private void setCheckReportToUnstableDueToMissingDependencySection(
             GateStepReport checkReport) {
         LOGGER.info("No dependency section found. Add dependency:analyze on your job configuration.");
@@ -85,17 +183,42 @@ public class DependencyDeclarationCheck extends DependencyCheck {
         int numberOfUnusedDependencies = analysis
                 .getNumberOfUnusedDependencies();
         setCheckResultDependingOnNumberOfViolations(checkReport,
-                numberOfUndeclaredDependencies, numberOfUnusedDependencies);
+                numberOfUndeclaredDependencies, numberOfUnusedDependencies,
+                describeModulesWithViolations(analysis));
+    }
+
+    private String describeModulesWithViolations(
+            MavenDependencyAnalysisResult analysis) {
+        Map<String, MavenDependencyAnalysisResult> resultsOfModules = analysis
+                .getResultsOfModules();
+        if (resultsOfModules.size() < 2) {
+            return "";
+        }
+        List<String> modulesWithViolations = new ArrayList<String>();
+        for (Map.Entry<String, MavenDependencyAnalysisResult> resultOfModule : resultsOfModules
+                .entrySet()) {
+            int numberOfUndeclaredDependencies = resultOfModule.getValue()
+                    .getNumberOfUndeclaredDependencies();
+            int numberOfUnusedDependencies = resultOfModule.getValue()
+                    .getNumberOfUnusedDependencies();
+            if ((numberOfUndeclaredDependencies + numberOfUnusedDependencies) > 0) {
+                modulesWithViolations.add(resultOfModule.getKey() + " ("
+                        + numberOfUndeclaredDependencies + " undeclared, "
+                        + numberOfUnusedDependencies + " unused)");
+            }
+        }
+        return " Modules: " + StringUtils.join(modulesWithViolations, ", ");
     }
 
     private void setCheckResultDependingOnNumberOfViolations(
             GateStepReport checkReport, int numberOfUndeclaredDependencies,
-            int numberOfUnusedDependencies) {
+            int numberOfUnusedDependencies, String modulesWithViolations) {
         if ((numberOfUndeclaredDependencies + numberOfUnusedDependencies) > 0) {
             checkReport.setResult(Result.UNSTABLE,
                     numberOfUndeclaredDependencies + " undeclared and "
                             + numberOfUnusedDependencies
-                            + " unused dependencies found.");
+                            + " unused dependencies found."
+                            + modulesWithViolations);
         } else {
             checkReport.setResult(Result.SUCCESS,
                     "No dependency violations found");
@@ -1,20 +1,37 @@
 package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
 
+import hudson.Functions;
+
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Iterator;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 
+import de.binarytree.plugins.qualitygates.ReadCounter;
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
+
 /**
- * Cut the log file in sections for each maven goal.
+ * Cut the log file in sections for each maven goal. The log file is streamed, so that only the sections of the
+ * requested goals are held in memory. Regular expressions are only applied to lines within these sections and to
+ * lines which may start a section.
+ * 
+ * In a reactor build a goal is executed once per module. Its sections are kept per module, which is named by the
+ * artifact id in the header of the goal, e.g. <code>[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @
+ * projectone ---</code>. Headers without a module, as written by Maven 2, belong to {@link #UNKNOWN_MODULE}.
  * 
  * @author Vincent Sellier
  * 
@@ -24,112 +41,401 @@ public class BuildLogFileParser {
 
     private static final String LOG_LEVEL_REGEX = "^\\s*(\\[)?(INFO|WARNING)(\\]|:)? ";
 
-    private static final Pattern GOAL_START = Pattern.compile(LOG_LEVEL_REGEX + "---.*");
-
-    private static final Pattern END_OF_BUILD = Pattern.compile(LOG_LEVEL_REGEX + "[-]*$");
+    // The start of any goal or the end of the build, matched in one pass
+    private static final Pattern END_OF_SECTION = Pattern.compile(LOG_LEVEL_REGEX + "(?:---.*|-*)");
 
     // To limit selection to maven output (filtering [HUDSON] tags)
     private static final Pattern MAVEN_OUTPUT = Pattern.compile(LOG_LEVEL_REGEX + ".*");
 
     private static final Pattern BANNED_OUTPUT = Pattern.compile("Found Banned Dependency:.*");
 
+    private static final Pattern MODULE_OF_GOAL = Pattern.compile(" @ (\\S+) ---");
+
+    /**
+     * The module of sections whose goal header does not name a module.
+     */
+    public static final String UNKNOWN_MODULE = "(unknown module)";
+
     /**
-     * This enumeration defines regex to match the start lines for maven log sections to be parsed.
+     * This enumeration defines regex to match the start lines for maven log sections to be parsed. The regex of a
+     * goal only describes the plugin and goal following the log level and "--- " of the start line. The regexes of
+     * all goals are combined into one {@link CombinedPattern}, so that a line is matched against all goals at once.
      * 
      * @author Marcel von Maltitz
      * 
      */
     public enum Goal {
-        DEPENDENCY_ANALYSE(LOG_LEVEL_REGEX + "--- maven-dependency-plugin:[^:]+:analyze(-only| ).*", MAVEN_OUTPUT), BANNED_DEPENDENCY_ANALYSE(
-                LOG_LEVEL_REGEX + "--- maven-enforcer-plugin:[^:]+:enforce.*", BANNED_OUTPUT);
+        DEPENDENCY_ANALYSE("maven-dependency-plugin:[^:]+:analyze(-only| )", MAVEN_OUTPUT), BANNED_DEPENDENCY_ANALYSE(
+                "maven-enforcer-plugin:[^:]+:enforce", BANNED_OUTPUT);
 
-        private Pattern pattern;
+        private static final CombinedPattern<Goal> START_LINES = combineStartLines();
+
+        private String regex;
 
         private Pattern linePattern;
 
         private Goal(String regex, Pattern linePattern) {
-            pattern = Pattern.compile(regex);
+            this.regex = regex;
             this.linePattern = linePattern;
         }
 
+        private static CombinedPattern<Goal> combineStartLines() {
+            Map<Goal, String> regexes = new EnumMap<Goal, String>(Goal.class);
+            for (Goal goal : values()) {
+                regexes.put(goal, goal.regex);
+            }
+            return new CombinedPattern<Goal>(LOG_LEVEL_REGEX + GOAL_MARKER, regexes);
+        }
+
+        /**
+         * Returns the goal whose section is started by the given line.
+         * 
+         * @param line
+         *            the line to be matched
+         * @return the goal started by the line or null, if it does not start the section of a goal
+         */
         public static Goal getMatchingGoal(String line) {
-            Goal[] goals = Goal.values();
+            return START_LINES.classify(line);
+        }
+    }
+
+    // Mapped log files stay locked on Windows until the mapping is garbage collected
+    private static final boolean MEMORY_MAPPING_DISABLED = Functions.isWindows()
+            || Boolean.getBoolean(BuildLogFileParser.class.getName() + ".disableMemoryMapping");
+
+    // All goals start with a line like "[INFO] --- maven-...-plugin"
+    private static final String GOAL_MARKER = "--- ";
+
+    private static final byte[] GOAL_MARKER_BYTES = { '-', '-', '-', ' ' };
+
+    private static final Pattern COLOR_ESCAPE_CODES = Pattern.compile("\u001b\\[8mha:[^=]+==\u001b\\[0m");
+
+    private boolean parsed = false;
+
+    private final Set<Goal> requestedGoals = EnumSet.noneOf(Goal.class);
+
+    private final Map<Goal, Map<String, StringBuilder>> goalsLog = new EnumMap<Goal, Map<String, StringBuilder>>(
+            Goal.class);
+
+    private Goal currentGoal;
+
+    private String currentModule;
+
+    private StringBuilder currentSection;
+
+    private Checkpoint checkpoint;
+
+    /**
+     * The state of the parser after the last complete line of a memory mapped log file, from which parsing can be
+     * continued once lines have been appended.
+     */
+    private static final class Checkpoint {
+        private final long offset;
+
+        private final Goal openGoal;
 
-            for (Goal goal : goals) {
-                Pattern pattern = goal.pattern;
-                Matcher matcher = pattern.matcher(line);
-                if (matcher.matches()) {
-                    return goal;
+        private final String openModule;
+
+        private final Map<Goal, Map<String, Integer>> lengthsOfSections = new EnumMap<Goal, Map<String, Integer>>(
+                Goal.class);
+
+        private Checkpoint(long offset, Goal openGoal, String openModule, Map<Goal, Map<String, StringBuilder>> sections) {
+            this.offset = offset;
+            this.openGoal = openGoal;
+            this.openModule = openModule;
+            for (Map.Entry<Goal, Map<String, StringBuilder>> sectionsOfGoal : sections.entrySet()) {
+                Map<String, Integer> lengths = new LinkedHashMap<String, Integer>();
+                for (Map.Entry<String, StringBuilder> section : sectionsOfGoal.getValue().entrySet()) {
+                    lengths.put(section.getKey(), section.getValue().length());
                 }
+                this.lengthsOfSections.put(sectionsOfGoal.getKey(), lengths);
             }
-            return null;
         }
     }
 
-    private boolean parsed = false;
+    /**
+     * Creates a parser extracting the sections of all goals.
+     */
+    public BuildLogFileParser() {
+        this(Goal.values());
+    }
 
-    private Map<Goal, String> goalsLog = new HashMap<Goal, String>();
+    /**
+     * Creates a parser extracting only the sections of the given goals. Sections of other goals are skipped without
+     * being held in memory.
+     * 
+     * @param goals
+     *            the goals of which the sections shall be extracted
+     */
+    public BuildLogFileParser(Goal... goals) {
+        this.requestedGoals.addAll(Arrays.asList(goals));
+    }
 
+    /**
+     * Reads the given log file and keeps the sections of the requested goals. Only these sections are held in memory,
+     * not the log file itself. Outside of these sections, the log file is memory mapped and searched for the start of
+     * a section without decoding the lines in between. Memory mapping can be disabled with the system property
+     * <code>de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.disableMemoryMapping</code>.
+     * It is always disabled on Windows, where a mapped log file could not be deleted or rotated until the mapping is
+     * garbage collected. Without memory mapping, the log file is read line by line and parsed from its start again
+     * when continuing.
+     * 
+     * @param logFile
+     *            the log file to be parsed
+     * @throws IOException
+     *             when the log file cannot be read
+     */
     public void parseLogFile(File logFile) throws IOException {
+        parseLogFile(logFile, !MEMORY_MAPPING_DISABLED && isAsciiCompatible(Charset.defaultCharset()));
+    }
+
+    /**
+     * Reads the given log file either memory mapped or line by line.
+     */
+    void parseLogFile(File logFile, boolean memoryMapped) throws IOException {
         LOGGER.fine("Parsing " + logFile.getAbsolutePath());
-        FileInputStream input = new FileInputStream(logFile);
+        if (memoryMapped) {
+            parseMappedLogFile(logFile, 0);
+        } else {
+            checkpoint = null;
+            parseLogFileLineByLine(logFile);
+        }
+        closeSection();
+        parsed = true;
+    }
+
+    /**
+     * Continues parsing the given log file, which has been parsed by this parser before and has grown since, after the
+     * last complete line parsed. A section which has been open at the end of the log file is continued as well. If
+     * the log file has not been parsed memory mapped before or has been truncated, it is parsed from its start.
+     * 
+     * @param logFile
+     *            the log file to be parsed
+     * @return whether only the lines appended to the log file have been parsed
+     * @throws IOException
+     *             when the log file cannot be read
+     */
+    public boolean continueParsingLogFile(File logFile) throws IOException {
+        if (checkpoint == null || logFile.length() < checkpoint.offset) {
+            reset();
+            parseLogFile(logFile);
+            return false;
+        }
+        LOGGER.fine("Continuing to parse " + logFile.getAbsolutePath() + " at offset " + checkpoint.offset);
+        restore(checkpoint);
+        parseMappedLogFile(logFile, checkpoint.offset);
+        closeSection();
+        return true;
+    }
 
-        List<String> lines = IOUtils.readLines(input);
+    private void reset() {
+        goalsLog.clear();
+        closeSection();
+        checkpoint = null;
+        parsed = false;
+    }
 
-        Iterator<String> lineIterator = lines.iterator();
+    private void restore(Checkpoint formerCheckpoint) {
+        Iterator<Map.Entry<Goal, Map<String, StringBuilder>>> sectionsOfGoals = goalsLog.entrySet().iterator();
+        while (sectionsOfGoals.hasNext()) {
+            Map.Entry<Goal, Map<String, StringBuilder>> sectionsOfGoal = sectionsOfGoals.next();
+            Map<String, Integer> lengths = formerCheckpoint.lengthsOfSections.get(sectionsOfGoal.getKey());
+            if (lengths == null) {
+                sectionsOfGoals.remove();
+            } else {
+                restoreSections(sectionsOfGoal.getValue(), lengths);
+            }
+        }
+        closeSection();
+        if (formerCheckpoint.openGoal != null) {
+            openSection(formerCheckpoint.openGoal, formerCheckpoint.openModule);
+        }
+    }
 
-        while (lineIterator.hasNext()) {
-            String line = lineIterator.next();
-            line = eliminateColorEscapeCodes(line);
+    private void restoreSections(Map<String, StringBuilder> sectionsOfModules, Map<String, Integer> lengths) {
+        Iterator<Map.Entry<String, StringBuilder>> sections = sectionsOfModules.entrySet().iterator();
+        while (sections.hasNext()) {
+            Map.Entry<String, StringBuilder> section = sections.next();
+            Integer length = lengths.get(section.getKey());
+            if (length == null) {
+                sections.remove();
+            } else {
+                section.getValue().setLength(length);
+            }
+        }
+    }
 
-            Goal goal = Goal.getMatchingGoal(line);
-            if (goal != null) {
-                processSectionOfGoal(lineIterator, goal);
+    private void parseLogFileLineByLine(File logFile) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ReadCounter.count(new FileInputStream(logFile),
+                QualityLineMetrics.getInstance().getBytesParsedFromBuildLogs())));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumeLine(line);
             }
+        } finally {
+            IOUtils.closeQuietly(reader);
         }
+    }
 
-        parsed = true;
+    private void parseMappedLogFile(File logFile, long offset) throws IOException {
+        MappedLogFileReader reader = new MappedLogFileReader(logFile, Charset.defaultCharset());
+        try {
+            long endOfCompleteLines = reader.getEndOfCompleteLines();
+            reader.seek(offset);
+            Checkpoint lastCheckpoint = null;
+            String line;
+            while ((line = readNextRelevantLine(reader)) != null) {
+                // Only the last line may be incomplete, it is parsed again when continuing
+                if (lastCheckpoint == null && reader.getStartOfLastLine() >= endOfCompleteLines) {
+                    lastCheckpoint = new Checkpoint(reader.getStartOfLastLine(), currentGoal, currentModule,
+                            goalsLog);
+                }
+                consumeLine(line);
+            }
+            if (lastCheckpoint == null) {
+                lastCheckpoint = new Checkpoint(endOfCompleteLines, currentGoal, currentModule, goalsLog);
+            }
+            checkpoint = lastCheckpoint;
+        } finally {
+            countParsedBytes(reader.getPosition() - offset);
+            reader.close();
+        }
     }
 
-    private void processSectionOfGoal(Iterator<String> lineIterator, Goal goal) {
-        StringBuilder section = new StringBuilder();
+    /**
+     * Counts the bytes the reader has advanced past as read by the current thread and as parsed from build logs.
+     */
+    private static void countParsedBytes(long bytes) {
+        if (bytes > 0) {
+            ReadCounter.countRead(bytes);
+            QualityLineMetrics.getInstance().getBytesParsedFromBuildLogs().add(bytes);
+        }
+    }
 
-        String formerSection = goalsLog.get(goal);
-        if (formerSection != null) {
-            section.append(formerSection);
+    /**
+     * Outside of a section only lines possibly starting a section are relevant.
+     */
+    private String readNextRelevantLine(MappedLogFileReader reader) throws IOException {
+        if (currentGoal == null) {
+            return reader.readLineContaining(GOAL_MARKER_BYTES);
         }
+        return reader.readLine();
+    }
 
-        extractSection(lineIterator, goal, section);
-        goalsLog.put(goal, section.toString());
+    private static boolean isAsciiCompatible(Charset charset) {
+        return Arrays.equals(GOAL_MARKER.getBytes(charset), GOAL_MARKER_BYTES);
     }
 
-    private String eliminateColorEscapeCodes(String line) {
-        return line.replaceAll("\u001b\\[8mha:[^=]+==\u001b\\[0m", "");
-    }
-
-    private void extractSection(Iterator<String> lineIterator, Goal goal, StringBuilder section) {
-        String line;
-        // Pass the search section to only keep content of the section
-        boolean inSection = true;
-        while (lineIterator.hasNext() && inSection) {
-            line = lineIterator.next();
-            line = eliminateColorEscapeCodes(line);
-            if (GOAL_START.matcher(line).matches() || END_OF_BUILD.matcher(line).matches()) {
-                inSection = false;
-            } else {
-                if (goal.linePattern.matcher(line).matches()) {
-                    section.append(line).append("\n");
+    private void consumeLine(String rawLine) {
+        String line = eliminateColorEscapeCodes(rawLine);
+        if (currentGoal != null) {
+            if (!isEndOfSection(line)) {
+                if (currentGoal.linePattern.matcher(line).matches()) {
+                    currentSection.append(line).append("\n");
                 }
+                return;
             }
+            closeSection();
+        }
+        Goal goal = getRequestedGoalStartingWith(line);
+        if (goal != null) {
+            openSection(goal, getModuleOfGoal(line));
+        }
+    }
 
+    private boolean isEndOfSection(String line) {
+        return END_OF_SECTION.matcher(line).matches();
+    }
+
+    private Goal getRequestedGoalStartingWith(String line) {
+        if (line.indexOf(GOAL_MARKER) < 0) {
+            return null;
+        }
+        Goal goal = Goal.getMatchingGoal(line);
+        if (goal != null && requestedGoals.contains(goal)) {
+            return goal;
         }
+        return null;
     }
 
+    private String getModuleOfGoal(String line) {
+        Matcher matcher = MODULE_OF_GOAL.matcher(line);
+        return matcher.find() ? matcher.group(1) : UNKNOWN_MODULE;
+    }
+
+    private void openSection(Goal goal, String module) {
+        Map<String, StringBuilder> sectionsOfModules = goalsLog.get(goal);
+        if (sectionsOfModules == null) {
+            sectionsOfModules = new LinkedHashMap<String, StringBuilder>();
+            goalsLog.put(goal, sectionsOfModules);
+        }
+        StringBuilder section = sectionsOfModules.get(module);
+        if (section == null) {
+            section = new StringBuilder();
+            sectionsOfModules.put(module, section);
+        }
+        currentGoal = goal;
+        currentModule = module;
+        currentSection = section;
+    }
+
+    private void closeSection() {
+        currentGoal = null;
+        currentModule = null;
+        currentSection = null;
+    }
+
+    private String eliminateColorEscapeCodes(String line) {
+        if (line.indexOf('\u001b') < 0) {
+            return line;
+        }
+        return COLOR_ESCAPE_CODES.matcher(line).replaceAll("");
+    }
+
+    /**
+     * Returns the content of the sections of the given goal in all modules, one after another.
+     * 
+     * @param goal
+     *            the goal whose sections shall be returned
+     * @return the content of the sections or null, if the goal has not been executed
+     */
     public String getContentOfSectionFor(Goal goal) {
+        Map<String, StringBuilder> sectionsOfModules = getSectionsOfModules(goal);
+        if (sectionsOfModules == null) {
+            return null;
+        }
+        StringBuilder content = new StringBuilder();
+        for (StringBuilder section : sectionsOfModules.values()) {
+            content.append(section);
+        }
+        return content.toString();
+    }
+
+    /**
+     * Returns the content of the sections of the given goal per module, in the order in which the modules have been
+     * built.
+     * 
+     * @param goal
+     *            the goal whose sections shall be returned
+     * @return a map from the modules to the contents of their sections or null, if the goal has not been executed
+     */
+    public Map<String, String> getContentOfSectionsPerModuleFor(Goal goal) {
+        Map<String, StringBuilder> sectionsOfModules = getSectionsOfModules(goal);
+        if (sectionsOfModules == null) {
+            return null;
+        }
+        Map<String, String> contents = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, StringBuilder> section : sectionsOfModules.entrySet()) {
+            contents.put(section.getKey(), section.getValue().toString());
+        }
+        return contents;
+    }
+
+    private Map<String, StringBuilder> getSectionsOfModules(Goal goal) {
         if (!parsed) {
             throw new IllegalStateException("No log file was parsed");
         }
-
         return goalsLog.get(goal);
     }
 
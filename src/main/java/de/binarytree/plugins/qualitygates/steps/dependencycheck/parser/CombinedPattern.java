@@ -0,0 +1,104 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Combines the patterns of several keys into one alternation, so that a line is classified in a single pass of the
+ * regular expression engine instead of one pass per key. Adding a key adds an alternative to this pass, not another
+ * pass over each line.
+ *
+ * Each alternative is wrapped into a capturing group. The number of this group is computed from the groups of the
+ * patterns before it, so that the patterns may contain groups of their own. A prefix common to all alternatives is
+ * matched only once. Alternatives are searched, not matched against the whole line: an alternative anchored by a
+ * prefix starting with <code>^</code> matches the start of the line, an alternative without such a prefix may occur
+ * anywhere in the line. If several alternatives occur, the earliest wins and, at the same position, the key added
+ * first.
+ *
+ * @param <T>
+ *            the type of the keys
+ * @author Marcel von Maltitz
+ *
+ */
+public final class CombinedPattern<T> {
+
+    private final Pattern pattern;
+
+    private final List<T> keys = new ArrayList<T>();
+
+    private final int[] groups;
+
+    /**
+     * Creates a combined pattern of the given patterns.
+     *
+     * @param prefix
+     *            the regular expression preceding all alternatives
+     * @param regexes
+     *            the regular expressions of the alternatives mapped from their keys, in the order in which they shall
+     *            be tried
+     */
+    public CombinedPattern(String prefix, Map<T, String> regexes) {
+        this.groups = new int[regexes.size()];
+        StringBuilder combinedRegex = new StringBuilder(prefix).append("(?:");
+        int group = numberOfGroups(prefix);
+        for (Map.Entry<T, String> regex : regexes.entrySet()) {
+            if (!this.keys.isEmpty()) {
+                combinedRegex.append('|');
+            }
+            this.groups[this.keys.size()] = ++group;
+            this.keys.add(regex.getKey());
+            combinedRegex.append('(').append(regex.getValue()).append(')');
+            group += numberOfGroups(regex.getValue());
+        }
+        this.pattern = Pattern.compile(combinedRegex.append(')').toString());
+    }
+
+    private static int numberOfGroups(String regex) {
+        return Pattern.compile(regex).matcher("").groupCount();
+    }
+
+    /**
+     * Creates a matcher, which can be passed to {@link #classify(Matcher)} for several regions of the given input.
+     *
+     * @param input
+     *            the input to be classified
+     * @return a new matcher of the combined pattern
+     */
+    public Matcher matcher(CharSequence input) {
+        return this.pattern.matcher(input);
+    }
+
+    /**
+     * Returns the key whose pattern occurs in the given line.
+     *
+     * @param line
+     *            the line to be classified
+     * @return the matching key or null, if no pattern occurs
+     */
+    public T classify(CharSequence line) {
+        return classify(matcher(line));
+    }
+
+    /**
+     * Returns the key whose pattern occurs in the region of the given matcher, as set by
+     * {@link Matcher#region(int, int)}.
+     *
+     * @param matcher
+     *            a matcher created by {@link #matcher(CharSequence)}
+     * @return the matching key or null, if no pattern occurs
+     */
+    public T classify(Matcher matcher) {
+        if (!matcher.find()) {
+            return null;
+        }
+        for (int i = 0; i < this.groups.length; i++) {
+            if (matcher.start(this.groups[i]) >= 0) {
+                return this.keys.get(i);
+            }
+        }
+        return null;
+    }
+}
@@ -1,13 +1,11 @@
 package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
 
 import java.io.IOException;
-import java.io.StringReader;
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
-
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.result.MavenDependencyAnalysisResult;
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.result.DependencyProblemType;
 
@@ -21,49 +19,70 @@ public final class DependencyAnalysisParser {
     private DependencyAnalysisParser() {
     }
 
+    // A line containing at least four colons, matched without backtracking
     private static final Pattern ARTIFACT_PATTERN = Pattern
-            .compile(".*:.*:.*:.*:.*");
+            .compile("(?:[^:]*+:){4}");
 
     /**
-     * Types of possible dependency problems.
+     * Types of possible dependency problems. The regexes of all types are
+     * combined into one {@link CombinedPattern}, so that a line is searched
+     * for all types at once.
      * 
      * @author Marcel von Maltitz
      * 
      */
     public static enum DependencyProblemTypesDetection {
-        UNUSED(DependencyProblemType.UNUSED, ".*Unused declared.*"), UNDECLARED(
-                DependencyProblemType.UNDECLARED, ".*Used undeclared.*");
+        UNUSED(DependencyProblemType.UNUSED, "Unused declared"), UNDECLARED(
+                DependencyProblemType.UNDECLARED, "Used undeclared");
+
+        private static final CombinedPattern<DependencyProblemType> PROBLEMS = combineProblems();
 
-        private Pattern pattern;
+        private String regex;
 
         private DependencyProblemType problemType;
 
         private DependencyProblemTypesDetection(
                 DependencyProblemType problemType, String regex) {
             this.problemType = problemType;
-            pattern = Pattern.compile(regex);
+            this.regex = regex;
         }
 
-        private DependencyProblemType getProblemType() {
-            return problemType;
+        private static CombinedPattern<DependencyProblemType> combineProblems() {
+            Map<DependencyProblemType, String> regexes = new EnumMap<DependencyProblemType, String>(
+                    DependencyProblemType.class);
+            for (DependencyProblemTypesDetection problem : values()) {
+                regexes.put(problem.problemType, problem.regex);
+            }
+            return new CombinedPattern<DependencyProblemType>("", regexes);
         }
 
         /**
-         * Returns the problem type of which the regex pattern matches the given
-         * string
+         * Returns the problem type of which the regex pattern occurs in the
+         * given string
          * 
          * @param line
          *            the string to be analysed
          * @return the type which of problem found in the given string
          */
         public static DependencyProblemType matchAny(String line) {
-            for (DependencyProblemTypesDetection problem : DependencyProblemTypesDetection
-                    .values()) {
-                if (problem.pattern.matcher(line).matches()) {
-                    return problem.getProblemType();
-                }
-            }
-            return null;
+            return PROBLEMS.classify(line);
+        }
+
+        /**
+         * Creates a matcher for all problem types, which can be applied to
+         * the lines of the given content.
+         */
+        private static Matcher matcherFor(CharSequence content) {
+            return PROBLEMS.matcher(content);
+        }
+
+        /**
+         * Returns the problem type of which the regex pattern occurs in the
+         * line between the given indices.
+         */
+        private static DependencyProblemType matchAny(Matcher matcher,
+                int lineStart, int lineEnd) {
+            return PROBLEMS.classify(matcher.region(lineStart, lineEnd));
         }
     };
 
@@ -71,36 +90,96 @@ public final class DependencyAnalysisParser {
      * Analyzes the given content of the dependency section and transforms into
      * a structured analysis result.
      * 
+     * The lines of the content are matched in place, so that only the
+     * violating dependencies are copied out of it.
+     * 
      * @param content the log section content to be analyzed 
      * @return a structured result of the analysis
      * @throws IOException  when reading the log failed
      */
     public static MavenDependencyAnalysisResult parseDependencyAnalyzeSection(
-            String content) throws IOException {
+            CharSequence content) throws IOException {
 
         MavenDependencyAnalysisResult result = new MavenDependencyAnalysisResult();
-        List<String> lines = IOUtils.readLines(new StringReader(content));
+        Matcher problemTypeMatcher = DependencyProblemTypesDetection
+                .matcherFor(content);
+        Matcher artifactMatcher = ARTIFACT_PATTERN.matcher(content);
 
         DependencyProblemType currentProblemType = null;
-        for (String line : lines) {
-            if (!StringUtils.isBlank(line)) {
+        int lineStart = 0;
+        while (lineStart < content.length()) {
+            int lineEnd = findLineEnd(content, lineStart);
+            if (!isBlank(content, lineStart, lineEnd)) {
                 DependencyProblemType problemType = DependencyProblemTypesDetection
-                        .matchAny(line);
+                        .matchAny(problemTypeMatcher, lineStart, lineEnd);
                 if (problemType != null) {
                     currentProblemType = problemType;
                 } else {
                     if (currentProblemType != null
-                            && ARTIFACT_PATTERN.matcher(line).matches()) {
+                            && artifactMatcher.region(lineStart, lineEnd)
+                                    .lookingAt()) {
                         // removing log level
-                        String violatingDependency = line.substring(
-                                line.lastIndexOf(']') + 1).trim();
+                        String violatingDependency = extractDependency(
+                                content, lineStart, lineEnd);
                         result.addViolation(currentProblemType,
                                 violatingDependency);
                     }
                 }
             }
+            lineStart = skipLineTerminator(content, lineEnd);
         }
 
         return result;
     }
+
+    private static int findLineEnd(CharSequence content, int from) {
+        for (int i = from; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\n' || c == '\r') {
+                return i;
+            }
+        }
+        return content.length();
+    }
+
+    private static int skipLineTerminator(CharSequence content, int lineEnd) {
+        if (lineEnd + 1 < content.length() && content.charAt(lineEnd) == '\r'
+                && content.charAt(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    private static boolean isBlank(CharSequence content, int lineStart,
+            int lineEnd) {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (!Character.isWhitespace(content.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the dependency following the log level of the line, without
+     * surrounding whitespace.
+     */
+    private static String extractDependency(CharSequence content,
+            int lineStart, int lineEnd) {
+        int start = lineStart;
+        for (int i = lineEnd - 1; i >= lineStart; i--) {
+            if (content.charAt(i) == ']') {
+                start = i + 1;
+                break;
+            }
+        }
+        int end = lineEnd;
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        while (start < end && content.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return content.subSequence(start, end).toString();
+    }
 }
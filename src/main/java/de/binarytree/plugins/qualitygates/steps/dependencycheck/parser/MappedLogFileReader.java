@@ -0,0 +1,270 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a log file line by line through a memory mapped window. Lines can be skipped up to the next line containing a
+ * given marker, which is searched for on the raw bytes, so that skipped lines are never decoded. Like
+ * {@link java.io.BufferedReader#readLine()}, lines are terminated by '\n', '\r' or "\r\n". Lines longer than the
+ * window are split at its end.
+ *
+ * As the size of the file is determined when it is opened, lines appended afterwards are not read. The position
+ * after the lines read can be used to continue reading later on, see {@link #seek(long)}.
+ *
+ * The marker has to be ASCII and the log file has to be encoded in a charset which encodes ASCII characters as single
+ * bytes, e.g. UTF-8 or ISO-8859-1.
+ *
+ * Closing the reader does not unmap the windows, there is no portable way to do so. A window stays mapped until it is
+ * garbage collected, on Windows the log file cannot be deleted or renamed until then, so that the reader is not used
+ * on Windows, see {@link BuildLogFileParser#parseLogFile(File)}.
+ *
+ * The bytes the reader has advanced past are returned by {@link #getPosition()}, the bytes of the mapped windows are
+ * not counted as read, as they are only paged in as far as they are searched.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+class MappedLogFileReader implements Closeable {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileInputStream input;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final int windowSize;
+
+    private final Charset charset;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private long position;
+
+    private long startOfLastLine;
+
+    MappedLogFileReader(File file, Charset charset) throws IOException {
+        this(file, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedLogFileReader(File file, Charset charset, int windowSize) throws IOException {
+        this.input = new FileInputStream(file);
+        this.channel = this.input.getChannel();
+        this.size = this.channel.size();
+        this.charset = charset;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Continues reading at the given position, which has to be the start of a line.
+     *
+     * @param newPosition
+     *            the position in bytes from the start of the file
+     */
+    void seek(long newPosition) {
+        this.position = newPosition;
+    }
+
+    /**
+     * Returns the position up to which the file has been read.
+     *
+     * @return the position in bytes from the start of the file
+     */
+    long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Returns the position at which the line returned last started.
+     *
+     * @return the position in bytes from the start of the file
+     */
+    long getStartOfLastLine() {
+        return this.startOfLastLine;
+    }
+
+    /**
+     * Returns the position after the last line which is complete, i.e. which cannot be continued by appending to the
+     * file. This is the case for all lines except a last line without terminator or terminated by a single '\r',
+     * which may be followed by '\n'.
+     *
+     * @return the position in bytes from the start of the file
+     * @throws IOException
+     *             when the file cannot be mapped
+     */
+    long getEndOfCompleteLines() throws IOException {
+        if (this.size == 0) {
+            return 0;
+        }
+        mapWindowAt(Math.max(0, this.size - this.windowSize), true);
+        int last = this.window.limit() - 1;
+        if (this.window.get(last) == '\n') {
+            return this.size;
+        }
+        return this.windowStart + findLineStart(last, 0);
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return the next line without its terminator or null, if the end of the file has been reached
+     * @throws IOException
+     *             when the file cannot be mapped
+     */
+    String readLine() throws IOException {
+        if (this.position >= this.size) {
+            return null;
+        }
+        mapWindowAt(this.position);
+        int start = relative(this.position);
+        int end = findLineTerminator(start);
+        // A line, or its terminator "\r\n", may continue in the next window
+        if (end >= this.window.limit() - 1 && !windowReachesEndOfFile() && start > 0) {
+            mapWindowAt(this.position, true);
+            start = 0;
+            end = findLineTerminator(start);
+        }
+        String line = decode(start, end);
+        this.startOfLastLine = this.windowStart + start;
+        this.position = this.windowStart + skipLineTerminator(end);
+        return line;
+    }
+
+    /**
+     * Skips all lines up to the next line containing the given marker and reads this line.
+     *
+     * @param marker
+     *            the ASCII marker to search for
+     * @return the next line containing the marker or null, if there is none
+     * @throws IOException
+     *             when the file cannot be mapped
+     */
+    String readLineContaining(byte[] marker) throws IOException {
+        while (this.position < this.size) {
+            mapWindowAt(this.position);
+            int start = relative(this.position);
+            int occurrence = indexOf(marker, start);
+            if (occurrence >= 0) {
+                this.position = this.windowStart + findLineStart(occurrence, start);
+                return readLine();
+            }
+            if (windowReachesEndOfFile()) {
+                this.position = this.size;
+            } else if (start > 0) {
+                // The last line, which may contain the marker, continues in the next window
+                this.position = this.windowStart + findLastLineStart(start);
+                mapWindowAt(this.position, true);
+            } else {
+                int lastLineStart = findLastLineStart(start);
+                if (lastLineStart == start) {
+                    // No line ends within the window, it is split like by readLine()
+                    this.position = this.windowStart + this.window.limit();
+                } else {
+                    this.position = this.windowStart + lastLineStart;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void close() throws IOException {
+        this.window = null;
+        this.input.close();
+    }
+
+    private void mapWindowAt(long from) throws IOException {
+        mapWindowAt(from, false);
+    }
+
+    private void mapWindowAt(long from, boolean force) throws IOException {
+        if (!force && this.window != null && from >= this.windowStart
+                && from < this.windowStart + this.window.limit()) {
+            return;
+        }
+        long length = Math.min(this.windowSize, this.size - from);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        this.windowStart = from;
+    }
+
+    private boolean windowReachesEndOfFile() {
+        return this.windowStart + this.window.limit() >= this.size;
+    }
+
+    private int relative(long absolutePosition) {
+        return (int) (absolutePosition - this.windowStart);
+    }
+
+    private int indexOf(byte[] marker, int from) {
+        int last = this.window.limit() - marker.length;
+        byte first = marker[0];
+        for (int i = from; i <= last; i++) {
+            if (this.window.get(i) == first && matchesAt(marker, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(byte[] marker, int index) {
+        for (int j = 1; j < marker.length; j++) {
+            if (this.window.get(index + j) != marker[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int findLineTerminator(int from) {
+        int limit = this.window.limit();
+        for (int i = from; i < limit; i++) {
+            if (isLineTerminator(this.window.get(i))) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private int skipLineTerminator(int terminator) {
+        int limit = this.window.limit();
+        if (terminator < limit && this.window.get(terminator) == '\r' && terminator + 1 < limit
+                && this.window.get(terminator + 1) == '\n') {
+            return terminator + 2;
+        }
+        return Math.min(terminator + 1, limit);
+    }
+
+    private int findLineStart(int index, int lowerBound) {
+        for (int i = index - 1; i >= lowerBound; i--) {
+            if (isLineTerminator(this.window.get(i))) {
+                return i + 1;
+            }
+        }
+        return lowerBound;
+    }
+
+    private int findLastLineStart(int lowerBound) {
+        return findLineStart(this.window.limit(), lowerBound);
+    }
+
+    private static boolean isLineTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer line = this.window.duplicate();
+        line.position(start);
+        line.get(bytes);
+        return new String(bytes, this.charset);
+    }
+}
@@ -1,6 +1,9 @@
 package de.binarytree.plugins.qualitygates.steps.dependencycheck.result;
 
-import java.util.regex.Pattern;
+import java.util.EnumMap;
+import java.util.Map;
+
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.CombinedPattern;
 
 /**
  * Types of dependency problems. Namely unused declared and used undeclared
@@ -10,25 +13,31 @@ import java.util.regex.Pattern;
  * 
  */
 public enum DependencyProblemType {
-    UNUSED(".*Unused declared.*"), UNDECLARED(".*Used undeclared.*");
+    UNUSED("Unused declared"), UNDECLARED("Used undeclared");
+
+    private static final CombinedPattern<DependencyProblemType> REGEXES = combineRegexes();
 
-    private Pattern pattern;
+    private String regex;
 
     private DependencyProblemType(String regex) {
-        pattern = Pattern.compile(regex);
+        this.regex = regex;
+    }
+
+    private static CombinedPattern<DependencyProblemType> combineRegexes() {
+        Map<DependencyProblemType, String> regexes = new EnumMap<DependencyProblemType, String>(
+                DependencyProblemType.class);
+        for (DependencyProblemType problem : values()) {
+            regexes.put(problem, problem.regex);
+        }
+        return new CombinedPattern<DependencyProblemType>("", regexes);
     }
 
     /**
-     * Returns the type of which the regex pattern matches the given string
+     * Returns the type whose regex pattern occurs in the given string
      * @param line the line to be matched by the pattern
      * @return the according problem type
      */
     public static DependencyProblemType matchAny(String line) {
-        for (DependencyProblemType problem : DependencyProblemType.values()) {
-            if (problem.pattern.matcher(line).matches()) {
-                return problem;
-            }
-        }
-        return null;
+        return REGEXES.classify(line);
     }
 };
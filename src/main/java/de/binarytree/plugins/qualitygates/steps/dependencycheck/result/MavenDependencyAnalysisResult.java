@@ -1,19 +1,32 @@
 package de.binarytree.plugins.qualitygates.steps.dependencycheck.result;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class represents the analysis results of a maven dependency check. It
  * contains the found errors.
  * 
+ * The violations of each type are held in an insertion-ordered set, so that
+ * duplicates are skipped in constant time.
+ * 
+ * For reactor builds the results of the single modules can be added, so that
+ * this result holds the violations of all modules and each module can be
+ * looked up to see which violations it is responsible for.
+ * 
  * @author Marcel von Maltitz
  * 
  */
 public class MavenDependencyAnalysisResult {
-    private Map<DependencyProblemType, List<String>> violationsByType;
+    private Map<DependencyProblemType, Set<String>> violationsByType = new HashMap<DependencyProblemType, Set<String>>();
+
+    private Map<String, MavenDependencyAnalysisResult> resultsOfModules = new LinkedHashMap<String, MavenDependencyAnalysisResult>();
 
     /**
      * Constructs a new structured analysis result based on the given map
@@ -23,37 +36,52 @@ public class MavenDependencyAnalysisResult {
      */
     public MavenDependencyAnalysisResult(
             Map<DependencyProblemType, List<String>> result) {
-        this.violationsByType = result;
+        for (Map.Entry<DependencyProblemType, List<String>> violations : result
+                .entrySet()) {
+            this.violationsByType.put(violations.getKey(),
+                    new LinkedHashSet<String>(violations.getValue()));
+        }
     }
 
     public MavenDependencyAnalysisResult() {
-        this(new HashMap<DependencyProblemType, List<String>>());
     }
 
     public int getNumberOfUnusedDependencies() {
-        return getSizeOrZeroIfNull(this.getUnusedDependencies());
+        return getSizeOrZeroIfNull(this.violationsByType
+                .get(DependencyProblemType.UNUSED));
     }
 
     public int getNumberOfUndeclaredDependencies() {
-        return getSizeOrZeroIfNull(this.getUndeclaredDependencies());
+        return getSizeOrZeroIfNull(this.violationsByType
+                .get(DependencyProblemType.UNDECLARED));
     }
 
     /**
      * Returns the list of undeclared dependencies
      * 
-     * @return the list of undeclared dependencies
+     * @return the list of undeclared dependencies in the order they have been
+     *         found or null, if there are none
      */
     public List<String> getUndeclaredDependencies() {
-        return this.violationsByType.get(DependencyProblemType.UNDECLARED);
+        return getViolationsOfType(DependencyProblemType.UNDECLARED);
     }
 
     /**
      * Returns the list of unused dependencies
      * 
-     * @return the list of unused dependencies
+     * @return the list of unused dependencies in the order they have been
+     *         found or null, if there are none
      */
     public List<String> getUnusedDependencies() {
-        return this.violationsByType.get(DependencyProblemType.UNUSED);
+        return getViolationsOfType(DependencyProblemType.UNUSED);
+    }
+
+    private List<String> getViolationsOfType(DependencyProblemType problemType) {
+        Set<String> violations = this.violationsByType.get(problemType);
+        if (violations == null) {
+            return null;
+        }
+        return new ArrayList<String>(violations);
     }
 
     /** 
@@ -61,11 +89,14 @@ public class MavenDependencyAnalysisResult {
      * @return the analysis result as a map 
      */
     public Map<DependencyProblemType, List<String>> getMapOfViolations() {
-        return new HashMap<DependencyProblemType, List<String>>(
-                this.violationsByType);
+        Map<DependencyProblemType, List<String>> violations = new HashMap<DependencyProblemType, List<String>>();
+        for (DependencyProblemType problemType : this.violationsByType.keySet()) {
+            violations.put(problemType, getViolationsOfType(problemType));
+        }
+        return violations;
     }
 
-    private int getSizeOrZeroIfNull(List<String> violations) {
+    private int getSizeOrZeroIfNull(Set<String> violations) {
         if (violations != null) {
             return violations.size();
         } else {
@@ -80,23 +111,45 @@ public class MavenDependencyAnalysisResult {
      */
     public void addViolation(DependencyProblemType currentProblemType,
             String violatingDependency) {
-        List<String> violations = getListOfViolationsOfType(currentProblemType);
-        addViolationIfNotAlreadyPresent(violatingDependency, violations);
-
+        getSetOfViolationsOfType(currentProblemType).add(violatingDependency);
     }
 
-    private void addViolationIfNotAlreadyPresent(String violatingDependency,
-            List<String> violations) {
-        if (!violations.contains(violatingDependency)) {
-            violations.add(violatingDependency);
+    /**
+     * Adds the result of the analysis of a single module. Its violations are
+     * added to the violations of this result, skipping those which have
+     * already been found in other modules.
+     * 
+     * @param module
+     *            the module which has been analysed
+     * @param resultOfModule
+     *            the result of the analysis of the module
+     */
+    public void addResultOfModule(String module,
+            MavenDependencyAnalysisResult resultOfModule) {
+        this.resultsOfModules.put(module, resultOfModule);
+        for (Map.Entry<DependencyProblemType, Set<String>> violations : resultOfModule.violationsByType
+                .entrySet()) {
+            getSetOfViolationsOfType(violations.getKey()).addAll(
+                    violations.getValue());
         }
     }
 
-    private List<String> getListOfViolationsOfType(
+    /**
+     * Returns the results of the modules which have been added to this
+     * result.
+     * 
+     * @return an unmodifiable map from the modules to their results in the
+     *         order in which they have been added
+     */
+    public Map<String, MavenDependencyAnalysisResult> getResultsOfModules() {
+        return Collections.unmodifiableMap(this.resultsOfModules);
+    }
+
+    private Set<String> getSetOfViolationsOfType(
             DependencyProblemType currentProblemType) {
-        List<String> violations = this.violationsByType.get(currentProblemType);
+        Set<String> violations = this.violationsByType.get(currentProblemType);
         if (violations == null) {
-            violations = new LinkedList<String>();
+            violations = new LinkedHashSet<String>();
             this.violationsByType.put(currentProblemType, violations);
         }
         return violations;
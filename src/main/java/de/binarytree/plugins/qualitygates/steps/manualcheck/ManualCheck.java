@@ -8,36 +8,92 @@ import hudson.model.AbstractBuild;
 import hudson.model.User;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import de.binarytree.plugins.qualitygates.GateStep;
 import de.binarytree.plugins.qualitygates.GateStepDescriptor;
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
 
 /**
  * This check is a manual check. That means, it has to be (dis)approved
  * manually. At the next evaluation it then gives the desired result.
  * 
+ * Every evaluation without a decision requests one under a new hash, which
+ * identifies the check in the links to (dis)approve it. The request passes
+ * from NOT_SET to APPROVED or DISAPPROVED and on to CONSUMED, when the
+ * evaluation of the build which has requested it takes the decision over.
+ * Transitions are atomic and only succeed for the hash of the current
+ * request, so that of several concurrent (dis)approvals exactly one succeeds
+ * and a late (dis)approval cannot re-arm a consumed request. A decision is
+ * only consumed by the build which has requested it, even if several builds
+ * share the check.
+ * 
+ * The state of the request is saved together with the check, so that it can
+ * still be (dis)approved after the evaluator has been read again.
+ * 
+ * A request is counted as pending by the {@link QualityLineMetrics} until it
+ * is (dis)approved, replaced by another request or its build is deleted.
+ * Requests made before Jenkins has been started are not counted.
+ * 
  * @author Marcel von Maltitz
  * 
  */
 public class ManualCheck extends GateStep {
     private enum Approval {
-        APPROVED, DISAPPROVED, NOT_SET;
+        APPROVED, DISAPPROVED, NOT_SET, CONSUMED;
     };
 
+    /**
+     * The request for a decision identified by its hash, together with the
+     * build which has requested it and the user who has decided it.
+     */
+    private static final class ApprovalState {
+        private final Approval approval;
+        private final String hash;
+        private final String build;
+        private final String user;
+
+        ApprovalState(Approval approval, String hash, String build,
+                String user) {
+            this.approval = approval;
+            this.hash = hash;
+            this.build = build;
+            this.user = user;
+        }
+
+        boolean isDecided() {
+            return this.approval == Approval.APPROVED
+                    || this.approval == Approval.DISAPPROVED;
+        }
+
+        boolean isRequestedBy(String build) {
+            return this.build == null ? build == null : this.build
+                    .equals(build);
+        }
+
+        boolean hasHash(String hash) {
+            return this.hash == null ? hash == null : this.hash.equals(hash);
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<ManualCheck, ApprovalState> APPROVAL_STATE = AtomicReferenceFieldUpdater
+            .newUpdater(ManualCheck.class, ApprovalState.class,
+                    "approvalState");
+
     private static final String UNKNOWN_USER = "Unknown";
     public static final Random RAND = new Random();
 
-    private transient String hash;
+    private volatile ApprovalState approvalState;
 
-    private transient Approval approved;
     private String unknownUser = UNKNOWN_USER;
 
     @DataBoundConstructor
     public ManualCheck() {
-        this.approved = Approval.NOT_SET;
+        this.approvalState = new ApprovalState(Approval.NOT_SET, null, null,
+                null);
     }
 
     /**
@@ -54,51 +110,148 @@ public class ManualCheck extends GateStep {
         this.unknownUser = usernameIfUserUnknown;
     }
 
-    public void approve() {
-        this.approved = Approval.APPROVED;
+    /**
+     * Initializes the approval state of a check saved without one.
+     * 
+     * @return this check
+     */
+    protected Object readResolve() {
+        if (this.approvalState == null) {
+            this.approvalState = new ApprovalState(Approval.NOT_SET, null,
+                    null, null);
+        }
+        return this;
+    }
+
+    /**
+     * Approves the current request of this check on behalf of the current
+     * user, unless it has already been (dis)approved.
+     * 
+     * @return whether or not the check has been approved by this call
+     */
+    public boolean approve() {
+        return this.approve(this.approvalState.hash);
+    }
+
+    /**
+     * Approves the request with the given hash on behalf of the current user,
+     * unless it is not the current request of this check or has already been
+     * (dis)approved.
+     * 
+     * @param hash
+     *            the hash of the request to be approved
+     * @return whether or not the check has been approved by this call
+     */
+    public boolean approve(String hash) {
+        return this.decide(hash, Approval.APPROVED);
+    }
+
+    /**
+     * Disapproves the current request of this check on behalf of the current
+     * user, unless it has already been (dis)approved.
+     * 
+     * @return whether or not the check has been disapproved by this call
+     */
+    public boolean disapprove() {
+        return this.disapprove(this.approvalState.hash);
+    }
+
+    /**
+     * Disapproves the request with the given hash on behalf of the current
+     * user, unless it is not the current request of this check or has already
+     * been (dis)approved.
+     * 
+     * @param hash
+     *            the hash of the request to be disapproved
+     * @return whether or not the check has been disapproved by this call
+     */
+    public boolean disapprove(String hash) {
+        return this.decide(hash, Approval.DISAPPROVED);
     }
 
-    public void disapprove() {
-        this.approved = Approval.DISAPPROVED;
+    private boolean decide(String hash, Approval approval) {
+        ApprovalState state = this.approvalState;
+        if (state.approval != Approval.NOT_SET || !state.hasHash(hash)) {
+            return false;
+        }
+        boolean decided = APPROVAL_STATE.compareAndSet(this, state,
+                new ApprovalState(approval, state.hash, state.build,
+                        this.getCurrentUserOrUnknown()));
+        if (decided) {
+            QualityLineMetrics.getInstance().manualApprovalGiven(state.hash);
+        }
+        return decided;
     }
 
     public boolean isApproved() {
-        return this.approved == Approval.APPROVED;
+        return this.approvalState.approval == Approval.APPROVED;
     }
 
     public boolean isDisapproved() {
-        return this.approved == Approval.DISAPPROVED;
+        return this.approvalState.approval == Approval.DISAPPROVED;
     }
 
     @Override
     public void doStep(AbstractBuild<?, ?> build, Launcher launcher,
             BuildListener listener, GateStepReport checkReport) {
-        this.hash = Long.toString(System.currentTimeMillis())
-                + Integer.toString(RAND.nextInt());
-        if (this.isApproved()) {
+        String requestingBuild = build == null ? null : build
+                .getExternalizableId();
+        ApprovalState state = consumeApproval(requestingBuild);
+        if (state.approval == Approval.APPROVED) {
             checkReport.setResult(Result.SUCCESS, "Manually approved by "
-                    + this.getCurrentUserOrUnknown());
-        } else if (this.isDisapproved()) {
+                    + state.user);
+        } else if (state.approval == Approval.DISAPPROVED) {
             checkReport.setResult(Result.FAILURE, "Manually disapproved by "
-                    + this.getCurrentUserOrUnknown());
+                    + state.user);
         } else {
-            String links = generateLinks();
+            String links = generateLinks(state.hash);
             checkReport.setResult(Result.NOT_BUILT, links);
+            QualityLineMetrics.getInstance().manualApprovalRequested(
+                    requestingBuild, state.hash);
         }
-        resetFlag();
     }
 
-    private void resetFlag() {
-        this.approved = Approval.NOT_SET;
+    /**
+     * Takes over the decision of the request of the given build. If there is
+     * none, a new request of the build is installed instead.
+     * 
+     * @return the consumed decision or the new request
+     */
+    private ApprovalState consumeApproval(String requestingBuild) {
+        while (true) {
+            ApprovalState state = this.approvalState;
+            ApprovalState newState;
+            if (state.isDecided() && state.isRequestedBy(requestingBuild)) {
+                newState = new ApprovalState(Approval.CONSUMED, state.hash,
+                        state.build, state.user);
+            } else {
+                newState = new ApprovalState(Approval.NOT_SET,
+                        Long.toString(System.currentTimeMillis())
+                                + Integer.toString(RAND.nextInt()),
+                        requestingBuild, null);
+            }
+            if (APPROVAL_STATE.compareAndSet(this, state, newState)) {
+                if (newState.approval == Approval.CONSUMED) {
+                    return state;
+                }
+                if (state.approval == Approval.NOT_SET) {
+                    QualityLineMetrics.getInstance().manualApprovalGiven(
+                            state.hash);
+                }
+                return newState;
+            }
+        }
     }
 
     protected void setHash(String hash) {
-        this.hash = hash;
+        ApprovalState state = this.approvalState;
+        this.approvalState = new ApprovalState(Approval.NOT_SET, hash,
+                state.build, null);
     }
 
-    private String generateLinks() {
-        return " <a href='approve?id=" + this.hash
-                + "'>Approve</a> <a href='disapprove?id=" + this.hash
+    private String generateLinks(String hash) {
+        return " <a href='approve?id=" + hash
+                + "'>Approve</a> <a href='disapprove?id=" + hash
                 + "'>Disapprove</a>";
     }
 
@@ -117,18 +270,25 @@ public class ManualCheck extends GateStep {
 
     @Override
     public String getDescription() {
-        return "Waiting for manual approval (Hash: " + this.hash + ")";
+        return "Waiting for manual approval (Hash: " + this.approvalState.hash
+                + ")";
+    }
+
+    @Override
+    public boolean isSequentialOnly() {
+        return true;
     }
 
     @Override
     public boolean equals(Object o) {
         return o instanceof ManualCheck
-                && ((ManualCheck) o).hash.equals(this.hash);
+                && this.hasHash(((ManualCheck) o).approvalState.hash);
     }
 
     @Override
     public int hashCode() {
-        return this.hash.hashCode();
+        String hash = this.approvalState.hash;
+        return hash == null ? 0 : hash.hashCode();
     }
 
     @Extension
@@ -139,8 +299,16 @@ public class ManualCheck extends GateStep {
         }
     }
 
+    /**
+     * Whether or not the current request of this check has the given hash. A
+     * check which has not been evaluated yet has no hash.
+     * 
+     * @param hash
+     *            the hash to compare with
+     * @return whether or not both hashes are set and equal
+     */
     public boolean hasHash(String hash) {
-        return this.hash.equals(hash);
+        return hash != null && this.approvalState.hasHash(hash);
     }
 
 }
@@ -23,19 +23,34 @@ public class ManualCheckFinder {
     public static class ManualCheckManipulator {
         private ManualCheck check;
 
-        ManualCheckManipulator(ManualCheck check) {
+        private String hash;
+
+        ManualCheckManipulator(ManualCheck check, String hash) {
             this.check = check;
+            this.hash = hash;
         }
 
         ManualCheckManipulator() {
         }
 
-        public void approve() {
-            this.check.approve();
+        /**
+         * Approves the request of the found check under whose hash it has been found.
+         * 
+         * @return whether or not the check has been approved, false when it has already been (dis)approved by
+         *         someone else or its request has been replaced since
+         */
+        public boolean approve() {
+            return this.check.approve(this.hash);
         }
 
-        public void disapprove() {
-            this.check.disapprove();
+        /**
+         * Disapproves the request of the found check under whose hash it has been found.
+         * 
+         * @return whether or not the check has been disapproved, false when it has already been (dis)approved by
+         *         someone else or its request has been replaced since
+         */
+        public boolean disapprove() {
+            return this.check.disapprove(this.hash);
         }
 
         public boolean hasItem() {
@@ -83,7 +98,7 @@ public class ManualCheckFinder {
 
     private ManualCheckManipulator getCheckIfHashMatches(String hashIdOfCheck, ManualCheck manualCheck) {
         if (manualCheck.hasHash(hashIdOfCheck)) {
-            return new ManualCheckManipulator(manualCheck);
+            return new ManualCheckManipulator(manualCheck, hashIdOfCheck);
         }
         return this.createNullManipulator();
     }
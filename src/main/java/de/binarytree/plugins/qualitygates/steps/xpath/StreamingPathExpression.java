@@ -0,0 +1,215 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A restricted XPath expression which can be evaluated while streaming through a document, so that the document never
+ * has to be held in memory. Supported are unions ("|") of location paths whose steps are element name tests ("name" or
+ * "*") on the child ("/") or descendant ("//") axis. Paths not starting with "/" are evaluated relative to the document
+ * node, just like the DOM based evaluation of {@link de.binarytree.plugins.qualitygates.steps.XMLCheck} does.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class StreamingPathExpression {
+
+    private static final Pattern NAME_TEST = Pattern
+            .compile("\\*|[A-Za-z_][\\w.\\-]*(:[A-Za-z_][\\w.\\-]*)?");
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private final List<PathStep[]> paths;
+
+    private StreamingPathExpression(List<PathStep[]> paths) {
+        this.paths = paths;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Compiles the given expression for streaming evaluation.
+     *
+     * @param expression
+     *            the XPath expression to compile
+     * @return the compiled expression or null, if the expression uses features which cannot be evaluated while
+     *         streaming
+     */
+    public static StreamingPathExpression compile(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        List<PathStep[]> paths = new LinkedList<PathStep[]>();
+        for (String path : expression.split("\\|")) {
+            PathStep[] steps = compilePath(path.trim());
+            if (steps == null) {
+                return null;
+            }
+            paths.add(steps);
+        }
+        return new StreamingPathExpression(paths);
+    }
+
+    /**
+     * Whether the given expression can be evaluated while streaming.
+     *
+     * @param expression
+     *            the XPath expression to check
+     * @return whether or not {@link #compile(String)} accepts the expression
+     */
+    public static boolean isStreamable(String expression) {
+        return compile(expression) != null;
+    }
+
+    private static PathStep[] compilePath(String path) {
+        List<PathStep> steps = new ArrayList<PathStep>();
+        int position = 0;
+        boolean descendant = false;
+        if (path.startsWith("//")) {
+            descendant = true;
+            position = 2;
+        } else if (path.startsWith("/")) {
+            position = 1;
+        }
+        while (position < path.length()) {
+            int end = path.indexOf('/', position);
+            if (end < 0) {
+                end = path.length();
+            }
+            String nameTest = path.substring(position, end);
+            if (!NAME_TEST.matcher(nameTest).matches()) {
+                return null;
+            }
+            steps.add(new PathStep(nameTest, descendant));
+            descendant = false;
+            position = end + 1;
+            if (end < path.length() && path.startsWith("/", position)) {
+                descendant = true;
+                position++;
+            }
+            if (end < path.length() && position >= path.length()) {
+                return null;
+            }
+        }
+        if (steps.isEmpty()) {
+            return null;
+        }
+        return steps.toArray(new PathStep[steps.size()]);
+    }
+
+    /**
+     * Counts the elements of the given document which are selected by this expression. Every element is counted at
+     * most once, even if it is matched by several paths of a union.
+     *
+     * @param stream
+     *            the document to evaluate
+     * @return the number of matching elements
+     * @throws XMLStreamException
+     *             when the stream cannot be parsed as XML
+     */
+    public int countMatches(InputStream stream) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(stream);
+        try {
+            return countMatches(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int countMatches(XMLStreamReader reader) throws XMLStreamException {
+        List<String> elementPath = new ArrayList<String>();
+        int count = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                elementPath.add(qualifiedNameOf(reader));
+                if (matches(elementPath)) {
+                    count++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                elementPath.remove(elementPath.size() - 1);
+            }
+        }
+        return count;
+    }
+
+    private static String qualifiedNameOf(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.length() == 0) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
+
+    /**
+     * Whether the element identified by the given path of element names from the root element downwards is selected
+     * by this expression.
+     *
+     * @param elementPath
+     *            the names of the element and all its ancestors, starting with the root element
+     * @return whether or not the element is selected
+     */
+    boolean matches(List<String> elementPath) {
+        for (PathStep[] steps : this.paths) {
+            if (steps[steps.length - 1].accepts(elementPath.get(elementPath.size() - 1))
+                    && matches(steps, 0, elementPath, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(PathStep[] steps, int stepIndex, List<String> elementPath, int depth) {
+        if (stepIndex == steps.length) {
+            return depth == elementPath.size();
+        }
+        PathStep step = steps[stepIndex];
+        if (step.isDescendant()) {
+            for (int candidate = depth; candidate < elementPath.size(); candidate++) {
+                if (step.accepts(elementPath.get(candidate))
+                        && matches(steps, stepIndex + 1, elementPath, candidate + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return depth < elementPath.size() && step.accepts(elementPath.get(depth))
+                && matches(steps, stepIndex + 1, elementPath, depth + 1);
+    }
+
+    /**
+     * A single name test of a location path together with its axis.
+     */
+    private static final class PathStep {
+
+        private final String name;
+
+        private final boolean descendant;
+
+        PathStep(String name, boolean descendant) {
+            this.name = name;
+            this.descendant = descendant;
+        }
+
+        boolean isDescendant() {
+            return this.descendant;
+        }
+
+        boolean accepts(String elementName) {
+            return "*".equals(this.name) || this.name.equals(elementName);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import hudson.model.AbstractBuild;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import de.binarytree.plugins.qualitygates.EvaluationScope;
+
+/**
+ * Parsed documents and lookup results of the XML files examined during one evaluation of a quality line. Entries are
+ * keyed by the path of the file and its modification time, so that a file changed during the evaluation is read again.
+ * Concurrent requests for the same file wait for a single parse. Checks announce their lookups before their gate
+ * performs them, so that the lookups of all checks sharing a file on an agent can be answered at once.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class XMLDocumentCache {
+
+    private final ConcurrentMap<String, FutureTask<Document>> documents = new ConcurrentHashMap<String, FutureTask<Document>>();
+
+    private final ConcurrentMap<String, Serializable> results = new ConcurrentHashMap<String, Serializable>();
+
+    private final ConcurrentMap<String, Set<XPathLookup>> announcedLookups = new ConcurrentHashMap<String, Set<XPathLookup>>();
+
+    /**
+     * Parses a document on behalf of the cache.
+     */
+    public interface DocumentParser {
+        Document parse() throws ParserConfigurationException, SAXException, IOException;
+    }
+
+    /**
+     * Returns the cache of the evaluation currently running for the given build.
+     *
+     * @param build
+     *            the build being evaluated
+     * @return the cache or null, if the build is not being evaluated by a quality line
+     */
+    public static XMLDocumentCache forBuild(AbstractBuild<?, ?> build) {
+        EvaluationScope scope = EvaluationScope.of(build);
+        if (scope == null) {
+            return null;
+        }
+        XMLDocumentCache cache = scope.getAttachment(XMLDocumentCache.class);
+        if (cache == null) {
+            cache = scope.attachIfAbsent(XMLDocumentCache.class, new XMLDocumentCache());
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the document of the given file, parsing it if this has not been done before.
+     *
+     * @param path
+     *            the path of the file
+     * @param lastModified
+     *            the modification time of the file
+     * @param parser
+     *            parses the file if it is not cached yet
+     * @return the parsed document
+     * @throws ParserConfigurationException
+     *             when no parser can be created
+     * @throws SAXException
+     *             when the file cannot be parsed as XML
+     * @throws IOException
+     *             when the file cannot be read
+     */
+    public Document getDocument(String path, long lastModified, final DocumentParser parser)
+            throws ParserConfigurationException, SAXException, IOException {
+        String key = keyOf(path, lastModified);
+        FutureTask<Document> parse = this.documents.get(key);
+        if (parse == null) {
+            FutureTask<Document> newParse = new FutureTask<Document>(new Callable<Document>() {
+                public Document call() throws Exception {
+                    return parser.parse();
+                }
+            });
+            parse = this.documents.putIfAbsent(key, newParse);
+            if (parse == null) {
+                parse = newParse;
+                parse.run();
+            }
+        }
+        try {
+            return parse.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + path + " to be parsed");
+        } catch (ExecutionException e) {
+            this.documents.remove(key, parse);
+            Throwable cause = e.getCause();
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ParserConfigurationException) {
+                throw (ParserConfigurationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SAXException(cause.toString());
+        }
+    }
+
+    /**
+     * Whether the document of the given file has already been parsed or is being parsed.
+     *
+     * @param path
+     *            the path of the file
+     * @param lastModified
+     *            the modification time of the file
+     * @return whether or not a document is available
+     */
+    public boolean hasDocument(String path, long lastModified) {
+        return this.documents.containsKey(keyOf(path, lastModified));
+    }
+
+    /**
+     * Returns a previously recorded number of matches of an expression in the given file.
+     *
+     * @param path
+     *            the path of the file
+     * @param lastModified
+     *            the modification time of the file
+     * @param expression
+     *            the expression which has been matched
+     * @return the number of matches or null, if none has been recorded
+     */
+    public Integer getCount(String path, long lastModified, String expression) {
+        return (Integer) getResult(path, lastModified, XPathLookup.count(expression));
+    }
+
+    /**
+     * Records the number of matches of an expression in the given file.
+     *
+     * @param path
+     *            the path of the file
+     * @param lastModified
+     *            the modification time of the file
+     * @param expression
+     *            the expression which has been matched
+     * @param count
+     *            the number of matches
+     */
+    public void putCount(String path, long lastModified, String expression, int count) {
+        putResult(path, lastModified, XPathLookup.count(expression), count);
+    }
+
+    /**
+     * Returns the previously recorded result of a lookup in the given file.
+     *
+     * @param path
+     *            the path of the file
+     * @param lastModified
+     *            the modification time of the file
+     * @param lookup
+     *            the lookup which has been performed
+     * @return the result as returned by {@link XPathEvaluation.EvaluateLookups} or null, if none has been recorded
+     */
+    public Serializable getResult(String path, long lastModified, XPathLookup lookup) {
+        return this.results.get(keyOf(path, lastModified) + '\n' + lookup);
+    }
+
+    /**
+     * Records the result of a lookup in the given file.
+     *
+     * @param path
+     *            the path of the file
+     * @param lastModified
+     *            the modification time of the file
+     * @param lookup
+     *            the lookup which has been performed
+     * @param result
+     *            the result as returned by {@link XPathEvaluation.EvaluateLookups}
+     */
+    public void putResult(String path, long lastModified, XPathLookup lookup, Serializable result) {
+        this.results.put(keyOf(path, lastModified) + '\n' + lookup, result);
+    }
+
+    /**
+     * Announces that a lookup is going to be performed in the given file.
+     *
+     * @param path
+     *            the path of the file
+     * @param lookup
+     *            the lookup which is going to be performed
+     */
+    public void announce(String path, XPathLookup lookup) {
+        Set<XPathLookup> lookups = this.announcedLookups.get(path);
+        if (lookups == null) {
+            Set<XPathLookup> newLookups = new CopyOnWriteArraySet<XPathLookup>();
+            lookups = this.announcedLookups.putIfAbsent(path, newLookups);
+            if (lookups == null) {
+                lookups = newLookups;
+            }
+        }
+        lookups.add(lookup);
+    }
+
+    /**
+     * Returns the lookups announced for the given file.
+     *
+     * @param path
+     *            the path of the file
+     * @return the announced lookups, which may include lookups that have already been performed
+     */
+    public Set<XPathLookup> getAnnouncedLookups(String path) {
+        Set<XPathLookup> lookups = this.announcedLookups.get(path);
+        if (lookups == null) {
+            return Collections.emptySet();
+        }
+        return lookups;
+    }
+
+    private static String keyOf(String path, long lastModified) {
+        return path + '@' + lastModified;
+    }
+}
@@ -0,0 +1,344 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import de.binarytree.plugins.qualitygates.ReadCounter;
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
+
+/**
+ * The evaluation of XPath expressions on XML files as performed by the XML checks. It is used on the master as well as
+ * on build agents, so that both yield identical results.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class XPathEvaluation {
+
+    private XPathEvaluation() {
+    }
+
+    /**
+     * Parses the given stream into a document.
+     *
+     * @param stream
+     *            the stream to parse
+     * @return the parsed document
+     * @throws ParserConfigurationException
+     *             when no parser can be created
+     * @throws SAXException
+     *             when the stream cannot be parsed as XML
+     * @throws IOException
+     *             when the stream cannot be read
+     */
+    public static Document parse(InputStream stream) throws ParserConfigurationException, SAXException, IOException {
+        DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+        domFactory.setNamespaceAware(false);
+        DocumentBuilder builder = domFactory.newDocumentBuilder();
+        return builder.parse(stream);
+    }
+
+    /**
+     * Evaluates the given expression on the given document. As documents may be shared between checks, the
+     * evaluation is synchronized on the document.
+     *
+     * @param doc
+     *            the document to evaluate
+     * @param expression
+     *            the expression to evaluate
+     * @return the nodes matching the expression
+     * @throws XPathExpressionException
+     *             when the expression does not compile
+     */
+    public static NodeList getMatchingNodes(Document doc, String expression) throws XPathExpressionException {
+        XPathExpression expr = XPathExpressionCache.getDefault().compile(expression);
+        synchronized (doc) {
+            return (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
+        }
+    }
+
+    /**
+     * Returns the text content of the first node of the given document matching the given expression.
+     *
+     * @param doc
+     *            the document to evaluate
+     * @param expression
+     *            the expression to evaluate
+     * @return the text content of the first matching node or an empty string, if no node matches
+     * @throws XPathExpressionException
+     *             when the expression does not compile
+     */
+    public static String getTextContentOfFirstMatchingNode(Document doc, String expression)
+            throws XPathExpressionException {
+        synchronized (doc) {
+            NodeList nodes = getMatchingNodes(doc, expression);
+            if (nodes.getLength() > 0) {
+                return nodes.item(0).getTextContent();
+            } else {
+                return "";
+            }
+        }
+    }
+
+    /**
+     * Counts the nodes of the given stream matching the given expression. When a streamable form of the expression is
+     * given, the document is not held in memory.
+     *
+     * @param stream
+     *            the stream to evaluate
+     * @param expression
+     *            the expression to evaluate
+     * @param streamable
+     *            the streamable form of the expression or null, if it cannot be evaluated while streaming
+     * @return the number of matching nodes
+     * @throws ParserConfigurationException
+     *             when no parser can be created
+     * @throws SAXException
+     *             when the stream cannot be parsed as XML
+     * @throws IOException
+     *             when the stream cannot be read
+     * @throws XPathExpressionException
+     *             when the expression does not compile
+     */
+    public static int countMatchingNodes(InputStream stream, String expression, StreamingPathExpression streamable)
+            throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
+        if (streamable == null) {
+            return getMatchingNodes(parse(stream), expression).getLength();
+        }
+        try {
+            return streamable.countMatches(stream);
+        } catch (XMLStreamException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Performs the given lookups in a file on the node holding it and transfers only their results. Failures of the
+     * remote evaluation are reported by the exception which an evaluation on the master would have thrown.
+     *
+     * @param file
+     *            the file to evaluate
+     * @param lookups
+     *            the lookups to perform
+     * @return the results of the lookups, see {@link EvaluateLookups}
+     * @throws ParserConfigurationException
+     *             when no parser can be created
+     * @throws SAXException
+     *             when the file cannot be parsed as XML
+     * @throws IOException
+     *             when the file cannot be read
+     * @throws InterruptedException
+     *             when the access to the node is interrupted
+     */
+    public static Map<XPathLookup, Serializable> lookUp(FilePath file, List<XPathLookup> lookups)
+            throws ParserConfigurationException, SAXException, IOException, InterruptedException {
+        try {
+            return file.act(new EvaluateLookups(lookups)).countBytesRead();
+        } catch (IOException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof RemoteEvaluationException) {
+                    Throwable original = cause.getCause();
+                    if (original instanceof SAXException) {
+                        throw (SAXException) original;
+                    } else if (original instanceof ParserConfigurationException) {
+                        throw (ParserConfigurationException) original;
+                    } else if (original instanceof IOException) {
+                        throw (IOException) original;
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the value of a result of {@link EvaluateLookups}.
+     *
+     * @param result
+     *            the result of a lookup
+     * @return the number of matches or the text content
+     * @throws XPathExpressionException
+     *             when the expression of the lookup does not compile
+     */
+    public static Object valueOf(Serializable result) throws XPathExpressionException {
+        if (result instanceof XPathExpressionException) {
+            throw (XPathExpressionException) result;
+        }
+        return result;
+    }
+
+    /**
+     * The result of an evaluation on the node holding a file together with the number of bytes read from it. The
+     * {@link ReadCounter} and the {@link QualityLineMetrics} of an agent are not those of the master, so the bytes read
+     * are transferred with the result and counted on the master by {@link #countBytesRead()}.
+     *
+     * @param <T>
+     *            the type of the result
+     */
+    public static final class RemoteResult<T extends Serializable> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final T value;
+
+        private final long bytesRead;
+
+        RemoteResult(T value, long bytesRead) {
+            this.value = value;
+            this.bytesRead = bytesRead;
+        }
+
+        public T getValue() {
+            return this.value;
+        }
+
+        public long getBytesRead() {
+            return this.bytesRead;
+        }
+
+        /**
+         * Counts the bytes read on the node holding the file as read by the current thread and as parsed from XML.
+         *
+         * @return the result of the evaluation
+         */
+        public T countBytesRead() {
+            ReadCounter.countRead(this.bytesRead);
+            QualityLineMetrics.getInstance().getBytesParsedFromXml().add(this.bytesRead);
+            return this.value;
+        }
+    }
+
+    /**
+     * Performs lookups in a file on the node holding it, so that only their results have to be transferred. The file is
+     * parsed at most once for all lookups by means of an {@link XMLDocumentCache}. Counts of simple path expressions
+     * are determined while streaming, unless the document is needed by another lookup anyway. The result of each
+     * lookup is an {@link Integer}, a {@link String} or the {@link XPathExpressionException} thrown by its expression,
+     * so that an invalid expression only fails its own lookup.
+     */
+    public static final class EvaluateLookups implements
+            FileCallable<RemoteResult<HashMap<XPathLookup, Serializable>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<XPathLookup> lookups;
+
+        public EvaluateLookups(List<XPathLookup> lookups) {
+            this.lookups = new ArrayList<XPathLookup>(lookups);
+        }
+
+        public RemoteResult<HashMap<XPathLookup, Serializable>> invoke(final File file, VirtualChannel channel)
+                throws IOException, InterruptedException {
+            final long[] bytesRead = new long[1];
+            XMLDocumentCache documents = new XMLDocumentCache();
+            XMLDocumentCache.DocumentParser parser = new XMLDocumentCache.DocumentParser() {
+                public Document parse() throws ParserConfigurationException, SAXException, IOException {
+                    CountingInputStream stream = new CountingInputStream(new FileInputStream(file));
+                    try {
+                        return XPathEvaluation.parse(stream);
+                    } finally {
+                        bytesRead[0] += stream.getByteCount();
+                        IOUtils.closeQuietly(stream);
+                    }
+                }
+            };
+            HashMap<XPathLookup, Serializable> results = new HashMap<XPathLookup, Serializable>();
+            try {
+                for (XPathLookup lookup : lookupsNeedingDocumentFirst()) {
+                    StreamingPathExpression streamable = streamableFormOf(lookup);
+                    if (streamable != null && !documents.hasDocument(file.getPath(), file.lastModified())) {
+                        CountingInputStream stream = new CountingInputStream(new FileInputStream(file));
+                        try {
+                            results.put(lookup, countMatchingNodes(stream, lookup.getExpression(), streamable));
+                        } catch (XPathExpressionException e) {
+                            results.put(lookup, e);
+                        } finally {
+                            bytesRead[0] += stream.getByteCount();
+                            IOUtils.closeQuietly(stream);
+                        }
+                    } else {
+                        Document doc = documents.getDocument(file.getPath(), file.lastModified(), parser);
+                        results.put(lookup, lookUp(doc, lookup));
+                    }
+                }
+            } catch (ParserConfigurationException e) {
+                throw new RemoteEvaluationException(file, e);
+            } catch (SAXException e) {
+                throw new RemoteEvaluationException(file, e);
+            } catch (IOException e) {
+                throw new RemoteEvaluationException(file, e);
+            }
+            return new RemoteResult<HashMap<XPathLookup, Serializable>>(results, bytesRead[0]);
+        }
+
+        private List<XPathLookup> lookupsNeedingDocumentFirst() {
+            List<XPathLookup> ordered = new ArrayList<XPathLookup>();
+            for (XPathLookup lookup : this.lookups) {
+                if (streamableFormOf(lookup) == null) {
+                    ordered.add(lookup);
+                }
+            }
+            for (XPathLookup lookup : this.lookups) {
+                if (streamableFormOf(lookup) != null) {
+                    ordered.add(lookup);
+                }
+            }
+            return ordered;
+        }
+
+        private static StreamingPathExpression streamableFormOf(XPathLookup lookup) {
+            if (lookup.getKind() != XPathLookup.Kind.COUNT) {
+                return null;
+            }
+            return StreamingPathExpression.compile(lookup.getExpression());
+        }
+
+        private static Serializable lookUp(Document doc, XPathLookup lookup) {
+            try {
+                if (lookup.getKind() == XPathLookup.Kind.COUNT) {
+                    return getMatchingNodes(doc, lookup.getExpression()).getLength();
+                }
+                return getTextContentOfFirstMatchingNode(doc, lookup.getExpression());
+            } catch (XPathExpressionException e) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Transfers the exception raised by an evaluation on the node holding a file to the master, which rethrows it in
+     * {@link XPathEvaluation#lookUp(FilePath, List)}.
+     */
+    public static final class RemoteEvaluationException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        RemoteEvaluationException(File file, Exception cause) {
+            super(file.getName() + ": " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * A bounded cache of compiled XPath expressions keyed by their expression string. As neither {@link XPath} nor
+ * compiled {@link XPathExpression}s are thread-safe, every thread works on its own factory and its own least recently
+ * used set of expressions. The hit and miss counters are shared by all threads.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public class XPathExpressionCache {
+
+    /**
+     * Number of compiled expressions each thread keeps by default.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+    private static final XPathExpressionCache DEFAULT_INSTANCE = new XPathExpressionCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final int maximumSize;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final ThreadLocal<CompiledExpressions> compiledExpressions = new ThreadLocal<CompiledExpressions>() {
+        @Override
+        protected CompiledExpressions initialValue() {
+            return new CompiledExpressions(XPathExpressionCache.this.maximumSize);
+        }
+    };
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumSize
+     *            the number of compiled expressions each thread may keep
+     */
+    public XPathExpressionCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cache shared by all XML checks.
+     *
+     * @return the shared cache
+     */
+    public static XPathExpressionCache getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Returns the compiled form of the given expression. The returned expression may only be used by the calling
+     * thread.
+     *
+     * @param expression
+     *            the expression to compile
+     * @return the compiled expression
+     * @throws XPathExpressionException
+     *             when the expression does not compile. Invalid expressions are not cached.
+     */
+    public XPathExpression compile(String expression) throws XPathExpressionException {
+        CompiledExpressions expressionsOfThread = this.compiledExpressions.get();
+        XPathExpression compiled = expressionsOfThread.get(expression);
+        if (compiled != null) {
+            this.hits.incrementAndGet();
+            return compiled;
+        }
+        this.misses.incrementAndGet();
+        compiled = expressionsOfThread.getXPath().compile(expression);
+        expressionsOfThread.put(expression, compiled);
+        return compiled;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Drops the compiled expressions of the calling thread and resets the counters.
+     */
+    public void clear() {
+        this.compiledExpressions.remove();
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * The compiled expressions of a single thread, evicting the least recently used one when full.
+     */
+    private static final class CompiledExpressions extends LinkedHashMap<String, XPathExpression> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private transient XPath xpath;
+
+        CompiledExpressions(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        XPath getXPath() {
+            if (this.xpath == null) {
+                this.xpath = XPathFactory.newInstance().newXPath();
+            }
+            return this.xpath;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+            return size() > this.maximumSize;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import java.io.Serializable;
+
+/**
+ * A question an XML check asks about its target file: either the number of nodes matching an expression or the text
+ * content of the first of them. Lookups of several checks sharing a file are answered together by
+ * {@link XPathEvaluation.EvaluateLookups}.
+ *
+ * @author Marcel von Maltitz
+ *
+ */
+public final class XPathLookup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kind of answer a lookup expects.
+     */
+    public enum Kind {
+        COUNT, TEXT_CONTENT
+    }
+
+    private final String expression;
+
+    private final Kind kind;
+
+    private XPathLookup(String expression, Kind kind) {
+        this.expression = expression;
+        this.kind = kind;
+    }
+
+    /**
+     * Creates a lookup of the number of nodes matching the given expression.
+     *
+     * @param expression
+     *            the expression to match
+     * @return the lookup, answered by an {@link Integer}
+     */
+    public static XPathLookup count(String expression) {
+        return new XPathLookup(expression, Kind.COUNT);
+    }
+
+    /**
+     * Creates a lookup of the text content of the first node matching the given expression.
+     *
+     * @param expression
+     *            the expression to match
+     * @return the lookup, answered by a {@link String} which is empty, if no node matches
+     */
+    public static XPathLookup textContent(String expression) {
+        return new XPathLookup(expression, Kind.TEXT_CONTENT);
+    }
+
+    public String getExpression() {
+        return this.expression;
+    }
+
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof XPathLookup)) {
+            return false;
+        }
+        XPathLookup other = (XPathLookup) obj;
+        return this.kind == other.kind && this.expression.equals(other.expression);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.kind.hashCode() + this.expression.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.kind + " " + this.expression;
+    }
+}
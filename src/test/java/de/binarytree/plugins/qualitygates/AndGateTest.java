@@ -1,10 +1,15 @@
 package de.binarytree.plugins.qualitygates;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import hudson.Launcher;
 import hudson.model.BuildListener;
@@ -13,9 +18,15 @@ import hudson.model.AbstractBuild;
 
 import java.io.PrintStream;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
 import de.binarytree.plugins.qualitygates.result.GateReport;
@@ -147,6 +158,280 @@ public class AndGateTest {
         assertEquals(2, gateReport.getStepReports().size());
     }
 
+    @Test
+    public void testGateIsSequentialByDefault() {
+        buildGateWithTwoSuccessfullChecks();
+        assertFalse(gate.isParallel());
+    }
+
+    @Test
+    public void testParallelGateMergesResultsOfAllChecks() {
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        checkList.add(this.getCheckMockWithResult(FAILURE));
+        checkList.add(this.getCheckMockWithResult(UNSTABLE));
+        gate = new AndGate("Eins", checkList, true, null);
+        assertTrue(gate.isParallel());
+        this.performGateCheckAndExpect(FAILURE);
+    }
+
+    @Test
+    public void testParallelGateReportsChecksInConfigurationOrder() {
+        for (int i = 0; i < 8; i++) {
+            checkList.add(this.getCheckMockWithResult(i % 2 == 0 ? SUCCESS
+                    : UNSTABLE));
+        }
+        gate = new AndGate("Eins", checkList, true, null);
+        GateReport report = gate.evaluate(build, null, listener);
+        assertEquals(UNSTABLE, report.getResult());
+        List<GateStepReport> stepReports = report.getStepReports();
+        assertEquals(checkList.size(), stepReports.size());
+        for (int i = 0; i < checkList.size(); i++) {
+            assertSame(checkList.get(i), stepReports.get(i).getStep());
+        }
+    }
+
+    @Test
+    public void testSequentialOnlyStepWaitsForPrecedingSteps() {
+        AtomicInteger finishedSteps = new AtomicInteger();
+        AtomicInteger finishedStepsSeenBySequentialStep = new AtomicInteger(-1);
+        checkList.add(this.getSlowCheckMock(finishedSteps));
+        checkList.add(this.getSlowCheckMock(finishedSteps));
+        checkList.add(this.getSequentialCheckMock(finishedSteps,
+                finishedStepsSeenBySequentialStep));
+        checkList.add(this.getSlowCheckMock(finishedSteps));
+        gate = new AndGate("Eins", checkList, true, null);
+        this.performGateCheckAndExpect(SUCCESS);
+        assertEquals(2, finishedStepsSeenBySequentialStep.get());
+        assertEquals(3, finishedSteps.get());
+    }
+
+    @Test
+    public void testResumedEvaluationReusesFinishedSteps() {
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        checkList.add(this.getCheckMockWithResult(UNSTABLE));
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        gate = new AndGate("Eins", checkList);
+        GateReport formerReport = gate.createEmptyGateReport();
+        formerReport.addStepReport(this.getReportWithResult(checkList.get(0), SUCCESS));
+        formerReport.addStepReport(this.getReportWithResult(checkList.get(1), UNSTABLE));
+        formerReport.addStepReport(this.getReportWithResult(checkList.get(2), NOT_BUILT));
+        formerReport.addStepReport(this.getReportWithResult(checkList.get(3), SUCCESS));
+
+        GateReport report = gate.evaluate(build, null, listener, formerReport);
+
+        assertEquals(UNSTABLE, report.getResult());
+        assertEquals(4, report.getNumberOfSteps());
+        assertSame(formerReport.getStepReports().get(0), report.getStepReports().get(0));
+        assertSame(formerReport.getStepReports().get(1), report.getStepReports().get(1));
+        assertEquals(SUCCESS, report.getStepReports().get(2).getResult());
+        verify(checkList.get(0), never()).step(any(AbstractBuild.class), any(BuildListener.class),
+                any(Launcher.class));
+        verify(checkList.get(1), never()).step(any(AbstractBuild.class), any(BuildListener.class),
+                any(Launcher.class));
+        verify(checkList.get(2)).step(any(AbstractBuild.class), any(BuildListener.class), any(Launcher.class));
+        verify(checkList.get(3)).step(any(AbstractBuild.class), any(BuildListener.class), any(Launcher.class));
+    }
+
+    @Test
+    public void testResumedEvaluationOfUnbuiltGatePerformsAllSteps() {
+        buildGateWithTwoSuccessfullChecks();
+        GateReport report = gate.evaluate(build, null, listener, gate.createEmptyGateReport());
+        assertEquals(SUCCESS, report.getResult());
+        verify(checkList.get(0)).step(any(AbstractBuild.class), any(BuildListener.class), any(Launcher.class));
+        verify(checkList.get(1)).step(any(AbstractBuild.class), any(BuildListener.class), any(Launcher.class));
+    }
+
+    @Test
+    public void testResumedParallelEvaluationReportsChecksInConfigurationOrder() {
+        for (int i = 0; i < 4; i++) {
+            checkList.add(this.getCheckMockWithResult(SUCCESS));
+        }
+        gate = new AndGate("Eins", checkList, true, null);
+        GateReport formerReport = gate.createEmptyGateReport();
+        formerReport.addStepReport(this.getReportWithResult(checkList.get(0), FAILURE));
+
+        GateReport report = gate.evaluate(build, null, listener, formerReport);
+
+        assertEquals(FAILURE, report.getResult());
+        List<GateStepReport> stepReports = report.getStepReports();
+        for (int i = 0; i < checkList.size(); i++) {
+            assertSame(checkList.get(i), stepReports.get(i).getStep());
+        }
+        verify(checkList.get(0), never()).step(any(AbstractBuild.class), any(BuildListener.class),
+                any(Launcher.class));
+    }
+
+    @Test
+    public void testGateWithoutTimeoutsHasNoTimeLimits() {
+        buildGateWithTwoSuccessfullChecks();
+        assertEquals(0, gate.getStepTimeout());
+        assertEquals(0, gate.getGateTimeout());
+    }
+
+    @Test
+    public void testStepExceedingItsTimeLimitIsInterruptedAndFails()
+            throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        checkList.add(this.getHangingCheckMock(interrupted));
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        gate = new AndGate("Eins", checkList, false, null, 1, 0);
+
+        GateReport report = gate.evaluate(build, null, listener);
+
+        assertEquals(FAILURE, report.getResult());
+        assertEquals(FAILURE, report.getStepReports().get(0).getResult());
+        assertTrue(report.getStepReports().get(0).getReason()
+                .contains("time limit of 1 s"));
+        assertEquals(SUCCESS, report.getStepReports().get(1).getResult());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStepsAfterTimeLimitOfGateAreNotBuilt()
+            throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        checkList.add(this.getHangingCheckMock(interrupted));
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        gate = new AndGate("Eins", checkList, false, null, 0, 1);
+
+        GateReport report = gate.evaluate(build, null, listener);
+
+        assertEquals(NOT_BUILT, report.getResult());
+        assertEquals(FAILURE, report.getStepReports().get(0).getResult());
+        assertTrue(report.getStepReports().get(0).getReason()
+                .contains("gate exceeded its time limit"));
+        assertEquals(NOT_BUILT, report.getStepReports().get(1).getResult());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStepExceedingItsTimeLimitIsReportedWithItsTiming() {
+        checkList.add(this.getHangingCheckMock(new CountDownLatch(1)));
+        gate = new AndGate("Eins", checkList, false, null, 1, 0);
+
+        GateStepReport stepReport = gate.evaluate(build, null, listener)
+                .getStepReports().get(0);
+
+        assertEquals(FAILURE, stepReport.getResult());
+        assertNotNull(stepReport.getTiming());
+        assertTrue(stepReport.getTiming().getWallTime() >= TimeUnit.SECONDS
+                .toNanos(1));
+    }
+
+    @Test
+    public void testThreadOfStepIgnoringItsTimeLimitIsReplaced()
+            throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        checkList.add(this.getStubbornCheckMock(release));
+        checkList.add(this.getCheckMockWithResult(SUCCESS));
+        gate = new AndGate("Eins", checkList, true, null, 1, 0);
+        int abandonedThreads = TimedStepExecutor.getNumberOfAbandonedThreads();
+
+        GateReport report = gate.evaluate(build, null, listener);
+
+        assertEquals(FAILURE, report.getStepReports().get(0).getResult());
+        assertEquals(SUCCESS, report.getStepReports().get(1).getResult());
+        assertEquals(abandonedThreads + 1,
+                TimedStepExecutor.getNumberOfAbandonedThreads());
+        release.countDown();
+        for (int i = 0; i < 50
+                && TimedStepExecutor.getNumberOfAbandonedThreads() != abandonedThreads; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(abandonedThreads,
+                TimedStepExecutor.getNumberOfAbandonedThreads());
+    }
+
+    private GateStep getStubbornCheckMock(final CountDownLatch release) {
+        GateStep check = mock(GateStep.class);
+        when(
+                check.step(any(AbstractBuild.class), any(BuildListener.class),
+                        any(Launcher.class))).thenAnswer(
+                new Answer<GateStepReport>() {
+                    public GateStepReport answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        while (true) {
+                            try {
+                                release.await();
+                                return null;
+                            } catch (InterruptedException e) {
+                                continue;
+                            }
+                        }
+                    }
+                });
+        when(check.createEmptyGateStepReport()).thenReturn(
+                new GateStepReport(check));
+        return check;
+    }
+
+    private GateStep getHangingCheckMock(final CountDownLatch interrupted) {
+        GateStep check = mock(GateStep.class);
+        when(
+                check.step(any(AbstractBuild.class), any(BuildListener.class),
+                        any(Launcher.class))).thenAnswer(
+                new Answer<GateStepReport>() {
+                    public GateStepReport answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        try {
+                            Thread.sleep(60000);
+                        } catch (InterruptedException e) {
+                            interrupted.countDown();
+                        }
+                        return null;
+                    }
+                });
+        when(check.createEmptyGateStepReport()).thenReturn(
+                new GateStepReport(check));
+        return check;
+    }
+
+    private GateStepReport getReportWithResult(GateStep check, Result result) {
+        GateStepReport stepReport = new GateStepReport(check);
+        stepReport.setResult(result, "Former Result");
+        return stepReport;
+    }
+
+    private GateStep getSlowCheckMock(final AtomicInteger finishedSteps) {
+        GateStep check = mock(GateStep.class);
+        final GateStepReport checkReport = new GateStepReport(check);
+        checkReport.setResult(SUCCESS);
+        when(
+                check.step(any(AbstractBuild.class), any(BuildListener.class),
+                        any(Launcher.class))).thenAnswer(
+                new Answer<GateStepReport>() {
+                    public GateStepReport answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        Thread.sleep(50);
+                        finishedSteps.incrementAndGet();
+                        return checkReport;
+                    }
+                });
+        when(check.createEmptyGateStepReport()).thenReturn(checkReport);
+        return check;
+    }
+
+    private GateStep getSequentialCheckMock(final AtomicInteger finishedSteps,
+            final AtomicInteger finishedStepsSeen) {
+        GateStep check = mock(GateStep.class);
+        final GateStepReport checkReport = new GateStepReport(check);
+        checkReport.setResult(SUCCESS);
+        when(check.isSequentialOnly()).thenReturn(true);
+        when(
+                check.step(any(AbstractBuild.class), any(BuildListener.class),
+                        any(Launcher.class))).thenAnswer(
+                new Answer<GateStepReport>() {
+                    public GateStepReport answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        finishedStepsSeen.set(finishedSteps.get());
+                        return checkReport;
+                    }
+                });
+        when(check.createEmptyGateStepReport()).thenReturn(checkReport);
+        return check;
+    }
+
     private void buildGateWithTwoSuccessfullChecks() {
         checkList.add(this.getCheckMockWithResult(SUCCESS));
         checkList.add(this.getCheckMockWithResult(SUCCESS));
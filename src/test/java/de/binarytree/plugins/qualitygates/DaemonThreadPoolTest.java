@@ -0,0 +1,62 @@
+package de.binarytree.plugins.qualitygates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class DaemonThreadPoolTest {
+
+    private static final class SizedOwner {
+    }
+
+    @Test
+    public void testPoolIsCreatedOnFirstUseOnly() {
+        DaemonThreadPool pool = new DaemonThreadPool(DaemonThreadPoolTest.class, 2, "Test pool");
+        assertNull(pool.getIfCreated());
+        assertSame(pool.get(), pool.get());
+        assertSame(pool.get(), pool.getIfCreated());
+        pool.get().shutdown();
+    }
+
+    @Test
+    public void testEveryUseHasPoolOfItsOwn() {
+        DaemonThreadPool pool = new DaemonThreadPool(DaemonThreadPoolTest.class, 1, "Test pool");
+        DaemonThreadPool otherPool = new DaemonThreadPool(DaemonThreadPoolTest.class, 1, "Other test pool");
+        assertNotSame(pool.get(), otherPool.get());
+        pool.get().shutdown();
+        otherPool.get().shutdown();
+    }
+
+    @Test
+    public void testThreadsAreNamedDaemons() throws Exception {
+        DaemonThreadPool pool = new DaemonThreadPool(DaemonThreadPoolTest.class, 1, "Test pool");
+        Thread thread = pool.get().submit(new Callable<Thread>() {
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        }).get();
+        assertTrue(thread.isDaemon());
+        assertTrue(thread.getName().startsWith("Test pool"));
+        pool.get().shutdown();
+    }
+
+    @Test
+    public void testSizeIsReadFromPropertyOfOwner() {
+        System.setProperty(SizedOwner.class.getName() + ".poolSize", "3");
+        try {
+            DaemonThreadPool pool = new DaemonThreadPool(SizedOwner.class, 1, "Test pool");
+            assertEquals(3, pool.getSize());
+            assertEquals(3, pool.get().getMaximumPoolSize());
+            pool.get().shutdown();
+        } finally {
+            System.clearProperty(SizedOwner.class.getName() + ".poolSize");
+        }
+        assertEquals(1, new DaemonThreadPool(SizedOwner.class, 0, "Test pool").getSize());
+    }
+}
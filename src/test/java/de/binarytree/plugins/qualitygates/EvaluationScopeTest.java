@@ -0,0 +1,71 @@
+package de.binarytree.plugins.qualitygates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import hudson.model.AbstractBuild;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EvaluationScopeTest {
+
+    private AbstractBuild<?, ?> build;
+
+    @Before
+    public void setUp() {
+        build = mock(AbstractBuild.class);
+    }
+
+    @Test
+    public void testBuildHasNoScopeOutsideOfEvaluation() {
+        assertNull(EvaluationScope.of(build));
+    }
+
+    @Test
+    public void testScopeIsAvailableUntilClosed() {
+        EvaluationScope scope = EvaluationScope.open(build);
+        assertSame(scope, EvaluationScope.of(build));
+        scope.close();
+        assertNull(EvaluationScope.of(build));
+    }
+
+    @Test
+    public void testScopesAreSeparatedByBuild() {
+        AbstractBuild<?, ?> otherBuild = mock(AbstractBuild.class);
+        EvaluationScope scope = EvaluationScope.open(build);
+        assertNull(EvaluationScope.of(otherBuild));
+        scope.close();
+    }
+
+    @Test
+    public void testNestedEvaluationJoinsScope() {
+        EvaluationScope outer = EvaluationScope.open(build);
+        EvaluationScope inner = EvaluationScope.open(build);
+        assertSame(outer, inner);
+        inner.close();
+        assertSame(outer, EvaluationScope.of(build));
+        outer.close();
+        assertNull(EvaluationScope.of(build));
+    }
+
+    @Test
+    public void testFirstAttachmentWins() {
+        EvaluationScope scope = EvaluationScope.open(build);
+        assertNull(scope.getAttachment(String.class));
+        assertEquals("first", scope.attachIfAbsent(String.class, "first"));
+        assertEquals("first", scope.attachIfAbsent(String.class, "second"));
+        assertEquals("first", scope.getAttachment(String.class));
+        scope.close();
+    }
+
+    @Test
+    public void testAttachmentsAreDiscardedWithScope() {
+        EvaluationScope scope = EvaluationScope.open(build);
+        scope.attachIfAbsent(String.class, "attached");
+        scope.close();
+        assertNull(EvaluationScope.open(build).getAttachment(String.class));
+        EvaluationScope.of(build).close();
+    }
+}
@@ -1,12 +1,15 @@
 package de.binarytree.plugins.qualitygates;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import hudson.Launcher;
 import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
+import java.io.IOException;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -44,6 +47,37 @@ public class GateStepTest {
         }
     }
 
+    class CachedCheck extends MockCheck {
+        private final String input;
+
+        private int numberOfEvaluations;
+
+        CachedCheck(String input) {
+            this.input = input;
+        }
+
+        @Override
+        public void doStep(AbstractBuild<?, ?> build, Launcher launcher,
+                BuildListener listener, GateStepReport checkReport) {
+            numberOfEvaluations++;
+            if (input.startsWith("broken")) {
+                super.doStep(build, launcher, listener, checkReport);
+            } else if (input.startsWith("unreadable")) {
+                failStepWithExceptionAsReason(checkReport, new IOException(
+                        "Channel is closed"));
+                return;
+            } else if (input.startsWith("interrupted")) {
+                Thread.currentThread().interrupt();
+            }
+            checkReport.setResult(Result.UNSTABLE, "Evaluated " + input);
+        }
+
+        @Override
+        protected String getResultCacheKey(AbstractBuild<?, ?> build) {
+            return GateStepTest.class.getName() + "\n" + input;
+        }
+    }
+
     private MockCheck check;
     private AbstractBuild<?, ?> build;
     private BuildListener listener;
@@ -64,4 +98,79 @@ public class GateStepTest {
         assertTrue(report.getReason().contains(exceptionMessage));
 
     }
+
+    @Test
+    public void testResultOfUnchangedInputIsTakenFromCache() {
+        StepResultCache.getDefault().clear();
+        CachedCheck cachedCheck = new CachedCheck("report");
+        check.step(build, listener, launcher);
+        cachedCheck.step(build, listener, launcher);
+        GateStepReport report = cachedCheck.step(build, listener, launcher);
+        assertEquals(1, cachedCheck.numberOfEvaluations);
+        assertEquals(Result.UNSTABLE, report.getResult());
+        assertEquals("Evaluated report", report.getReason());
+        assertNotNull(report.getTiming());
+
+        CachedCheck changedCheck = new CachedCheck("changed report");
+        changedCheck.step(build, listener, launcher);
+        assertEquals(1, changedCheck.numberOfEvaluations);
+    }
+
+    @Test
+    public void testResultOfFailingStepIsNotCached() {
+        StepResultCache.getDefault().clear();
+        CachedCheck cachedCheck = new CachedCheck("broken report");
+        cachedCheck.step(build, listener, launcher);
+        GateStepReport report = cachedCheck.step(build, listener, launcher);
+        assertEquals(2, cachedCheck.numberOfEvaluations);
+        assertEquals(Result.FAILURE, report.getResult());
+        assertEquals(0, StepResultCache.getDefault().size());
+    }
+
+    @Test
+    public void testResultOfCaughtExceptionIsNotCached() {
+        StepResultCache.getDefault().clear();
+        CachedCheck cachedCheck = new CachedCheck("unreadable report");
+        cachedCheck.step(build, listener, launcher);
+        GateStepReport report = cachedCheck.step(build, listener, launcher);
+        assertEquals(2, cachedCheck.numberOfEvaluations);
+        assertEquals(Result.FAILURE, report.getResult());
+        assertTrue(report.getReason().contains("Channel is closed"));
+        assertEquals(0, StepResultCache.getDefault().size());
+    }
+
+    @Test
+    public void testResultOfInterruptedStepIsNotCached() {
+        StepResultCache.getDefault().clear();
+        CachedCheck cachedCheck = new CachedCheck("interrupted report");
+        try {
+            cachedCheck.step(build, listener, launcher);
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(0, StepResultCache.getDefault().size());
+    }
+
+    @Test
+    public void testResultAfterDeadlineIsNotCached() {
+        StepResultCache.getDefault().clear();
+        CachedCheck cachedCheck = new CachedCheck("late report");
+        GateStep.setDeadlineOfCurrentThread(System.nanoTime() - 1);
+        try {
+            cachedCheck.step(build, listener, launcher);
+        } finally {
+            GateStep.setDeadlineOfCurrentThread(null);
+        }
+        assertEquals(0, StepResultCache.getDefault().size());
+        cachedCheck.step(build, listener, launcher);
+        assertEquals(1, StepResultCache.getDefault().size());
+    }
+
+    @Test
+    public void testTimingIsRecordedEvenIfStepFails() {
+        GateStepReport report = check.step(build, listener, launcher);
+        assertNotNull(report.getTiming());
+        assertTrue(report.getTiming().getWallTime() >= 0);
+        assertEquals(0, report.getTiming().getBytesRead());
+    }
 }
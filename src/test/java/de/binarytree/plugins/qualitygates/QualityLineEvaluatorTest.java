@@ -1,14 +1,23 @@
 package de.binarytree.plugins.qualitygates;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import hudson.Launcher;
 import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,6 +40,7 @@ public class QualityLineEvaluatorTest {
         build = mock(AbstractBuild.class);
         launcher = mock(Launcher.class);
         listener = mock(BuildListener.class);
+        when(listener.getLogger()).thenReturn(mock(PrintStream.class));
     }
 
     @Test
@@ -92,6 +102,142 @@ public class QualityLineEvaluatorTest {
 
     }
 
+    @Test
+    public void testFailureSkipsOnlyDependentGates() {
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGate(Result.FAILURE, "Gate 0"));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 0"));
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 1"));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 0, Gate 2"));
+
+        QualityLineReport report = this.evaluate();
+
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.FAILURE, Result.SUCCESS, Result.SUCCESS,
+                Result.NOT_BUILT, Result.SUCCESS });
+        assertEquals("Gate 4", report.getGateReports().get(4).getGateName());
+    }
+
+    @Test
+    public void testUnbuildableGateSkipsOnlyDependentGates() {
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGate(Result.NOT_BUILT, "Gate 0"));
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 0"));
+
+        QualityLineReport report = this.evaluate();
+
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.NOT_BUILT, Result.NOT_BUILT, Result.SUCCESS });
+    }
+
+    @Test
+    public void testGateDependingOnUnknownGateIsSkipped() {
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 0, Unknown Gate"));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 0"));
+
+        QualityLineReport report = this.evaluate();
+
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.NOT_BUILT, Result.SUCCESS });
+    }
+
+    @Test
+    public void testGateMayNotDependOnSucceedingGate() {
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 1"));
+        gateList.add(this.getGate(Result.SUCCESS));
+
+        QualityLineReport report = this.evaluate();
+
+        this.assertSequence(report, new Result[] { Result.NOT_BUILT,
+                Result.NOT_BUILT });
+    }
+
+    @Test
+    public void testIndependentGatesAreEvaluatedConcurrently() {
+        CountDownLatch bothGatesStarted = new CountDownLatch(2);
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGateAwaiting(bothGatesStarted, "Gate 0"));
+        gateList.add(this.getGateAwaiting(bothGatesStarted, "Gate 0"));
+
+        QualityLineReport report = this.evaluate();
+
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.SUCCESS, Result.SUCCESS });
+    }
+
+    @Test
+    public void testConcurrentlyEvaluatedGatesAreAddedToReportOnce() {
+        final List<Gate> executedGates = Collections.synchronizedList(new LinkedList<Gate>());
+        CountDownLatch bothGatesStarted = new CountDownLatch(2);
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(this.getGateAwaiting(bothGatesStarted, "Gate 0"));
+        gateList.add(this.getGateAwaiting(bothGatesStarted, "Gate 0"));
+        QualityLineReport lineReport = new QualityLineReport();
+        QualityLineEvaluator gateEvaluator = new QualityLineEvaluator(gateList, lineReport) {
+            @Override
+            protected GateReport executeGateAndAddToReport(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener, Gate gate) {
+                executedGates.add(gate);
+                return super.executeGateAndAddToReport(build, launcher, listener, gate);
+            }
+        };
+
+        QualityLineReport report = gateEvaluator.evaluate(build, launcher, listener);
+
+        assertEquals(3, executedGates.size());
+        assertEquals(3, new HashSet<Gate>(executedGates).size());
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.SUCCESS, Result.SUCCESS });
+    }
+
+    @Test
+    public void testReevaluationSkipsGatesDependingOnFormerFailure() {
+        gateList.add(this.getGate(Result.FAILURE));
+        gateList.add(this.getGate(Result.SUCCESS, "Gate 0"));
+        QualityLineEvaluator gateEvaluator = new QualityLineEvaluator(
+                this.gateList);
+        gateEvaluator.evaluate(build, launcher, listener);
+        QualityLineReport report = gateEvaluator.evaluate(build, launcher,
+                listener);
+        this.assertSequence(report, new Result[] { Result.FAILURE,
+                Result.NOT_BUILT });
+    }
+
+    @Test
+    public void testReevaluationResumesFormerEvaluationOfUnbuiltGate() {
+        final AtomicReference<GateReport> resumedReport = new AtomicReference<GateReport>();
+        gateList.add(this.getGate(Result.SUCCESS));
+        gateList.add(new Gate("Resumable Gate") {
+            @Override
+            public void doEvaluation(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener, GateReport gateReport) {
+                gateReport.setResult(Result.FAILURE);
+            }
+
+            @Override
+            void doResumedEvaluation(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener, GateReport gateReport, GateReport formerReport) {
+                gateReport.setResult(resumedReport.getAndSet(formerReport) == null ? Result.NOT_BUILT
+                        : Result.SUCCESS);
+            }
+        });
+        QualityLineEvaluator gateEvaluator = new QualityLineEvaluator(
+                this.gateList);
+        QualityLineReport report = gateEvaluator.evaluate(build, launcher,
+                listener);
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.NOT_BUILT });
+        GateReport formerReport = report.getGateReports().get(1);
+
+        report = gateEvaluator.evaluate(build, launcher, listener);
+        assertSame(formerReport, resumedReport.get());
+        this.assertSequence(report, new Result[] { Result.SUCCESS,
+                Result.SUCCESS });
+    }
+
     public void addGateSequence(Result... results) {
         for (int i = 0; i < results.length; i++) {
             gateList.add(this.getGate(results[i]));
@@ -116,10 +262,13 @@ public class QualityLineEvaluatorTest {
     }
 
     public Gate getGate(final Result result) {
+        return getGate(result, null);
+    }
+
+    public Gate getGate(final Result result, String dependsOn) {
         String name = "Gate " + gateCounter++;
 
-        LinkedList<GateStep> checkList = new LinkedList<GateStep>();
-        return new Gate(name) {
+        return new Gate(name, dependsOn) {
             @Override
             public void doEvaluation(AbstractBuild<?, ?> build, Launcher launcher,
                     BuildListener listener, GateReport gateReport) {
@@ -130,4 +279,26 @@ public class QualityLineEvaluatorTest {
 
     }
 
+    public Gate getGateAwaiting(final CountDownLatch latch, String dependsOn) {
+        String name = "Gate " + gateCounter++;
+
+        return new Gate(name, dependsOn) {
+            @Override
+            public void doEvaluation(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener, GateReport gateReport) {
+                latch.countDown();
+                try {
+                    if (latch.await(5, TimeUnit.SECONDS)) {
+                        gateReport.setResult(Result.SUCCESS);
+                    } else {
+                        gateReport.setResult(Result.FAILURE);
+                    }
+                } catch (InterruptedException e) {
+                    gateReport.setResult(Result.FAILURE);
+                }
+            }
+
+        };
+    }
+
 }
@@ -5,9 +5,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import hudson.Launcher;
 import hudson.XmlFile;
-import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.tasks.BuildStepMonitor;
@@ -23,17 +23,21 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import de.binarytree.plugins.qualitygates.QualityLine.DescriptorImpl;
+import de.binarytree.plugins.qualitygates.result.BuildResultAction;
+import de.binarytree.plugins.qualitygates.result.QualityLineReport;
 
 public class QualityLineTest {
 
     class MockQualityLine extends QualityLine {
 
         QualityLineEvaluator evaluatorMock;
+
+        BuildResultAction savedAction;
         public MockQualityLine(String name, Collection<Gate> gates)
                 throws IOException {
             super(name, gates);
             this.evaluatorMock = mock(QualityLineEvaluator.class);
-            ;
+            when(this.evaluatorMock.getLatestResults()).thenReturn(new QualityLineReport());
         }
 
         @Override
@@ -46,6 +50,11 @@ public class QualityLineTest {
             return this.evaluatorMock;
         }
 
+        @Override
+        protected void saveResults(BuildResultAction action, BuildListener listener) {
+            this.savedAction = action;
+        }
+
         public void verifyEvaluatorMock() {
             Mockito.verify(this.evaluatorMock).evaluate(
                     any(AbstractBuild.class), any(Launcher.class),
@@ -98,7 +107,7 @@ public class QualityLineTest {
         BuildListener listener = TestHelper.getListenerMock(); 
         boolean buildMayContinue = line.perform(build, launcher, listener);
         line.verifyEvaluatorMock();
-        Mockito.verify(build).addAction(any(Action.class)); 
+        Mockito.verify(build).addAction(line.savedAction); 
         assertTrue(buildMayContinue); 
     }
 
@@ -0,0 +1,46 @@
+package de.binarytree.plugins.qualitygates;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ReadCounterTest {
+
+    @Test
+    public void testBytesReadFromCountedStreamAreAdded() throws IOException {
+        long before = ReadCounter.getBytesReadByCurrentThread();
+        InputStream stream = ReadCounter.count(new ByteArrayInputStream(new byte[1000]));
+        stream.read();
+        stream.read(new byte[99]);
+        IOUtils.toByteArray(stream);
+        assertEquals(1000, ReadCounter.getBytesReadByCurrentThread() - before);
+        assertEquals(-1, stream.read());
+        assertEquals(1000, ReadCounter.getBytesReadByCurrentThread() - before);
+    }
+
+    @Test
+    public void testReportedReadsAreAdded() {
+        long before = ReadCounter.getBytesReadByCurrentThread();
+        ReadCounter.countRead(4096);
+        assertEquals(4096, ReadCounter.getBytesReadByCurrentThread() - before);
+    }
+
+    @Test
+    public void testReadsOfOtherThreadsAreNotAdded() throws Exception {
+        long before = ReadCounter.getBytesReadByCurrentThread();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                ReadCounter.countRead(4096);
+            }
+        };
+        reader.start();
+        reader.join();
+        assertEquals(before, ReadCounter.getBytesReadByCurrentThread());
+    }
+}
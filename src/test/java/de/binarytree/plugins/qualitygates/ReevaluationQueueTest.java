@@ -0,0 +1,144 @@
+package de.binarytree.plugins.qualitygates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.ReevaluationQueue.State;
+import de.binarytree.plugins.qualitygates.ReevaluationQueue.Ticket;
+
+public class ReevaluationQueueTest {
+
+    private ReevaluationQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new ReevaluationQueue();
+    }
+
+    @Test
+    public void testReevaluationIsPerformedInBackground() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Ticket ticket = queue.submit(new Callable<Void>() {
+            public Void call() throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        });
+        assertTrue(queue.isBusy());
+        assertFalse(ticket.isDone());
+        release.countDown();
+        awaitIdleQueue();
+        assertEquals(State.FINISHED, ticket.getState());
+        assertNull(ticket.getReason());
+    }
+
+    @Test
+    public void testReevaluationsArePerformedOneAfterAnother() throws Exception {
+        final AtomicInteger runningReevaluations = new AtomicInteger();
+        final AtomicInteger maximumOfRunningReevaluations = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            queue.submit(new Callable<Void>() {
+                public Void call() throws InterruptedException {
+                    int running = runningReevaluations.incrementAndGet();
+                    if (running > maximumOfRunningReevaluations.get()) {
+                        maximumOfRunningReevaluations.set(running);
+                    }
+                    Thread.sleep(20);
+                    runningReevaluations.decrementAndGet();
+                    return null;
+                }
+            });
+        }
+        awaitIdleQueue();
+        assertEquals(1, maximumOfRunningReevaluations.get());
+        assertEquals(0, queue.getNumberOfPendingReevaluations());
+    }
+
+    @Test
+    public void testFailedReevaluationIsDocumentedAndDoesNotBlockQueue() throws Exception {
+        Ticket failedTicket = queue.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                throw new IOException("Log file cannot be written");
+            }
+        });
+        Ticket ticket = queue.submit(new Callable<Void>() {
+            public Void call() {
+                return null;
+            }
+        });
+        awaitIdleQueue();
+        assertEquals(State.FAILED, failedTicket.getState());
+        assertTrue(failedTicket.getReason().contains("Log file cannot be written"));
+        assertEquals(State.FINISHED, ticket.getState());
+    }
+
+    @Test
+    public void testReevaluationFailingWithErrorIsDocumentedAndDoesNotBlockQueue() throws Exception {
+        Ticket failedTicket = queue.submit(new Callable<Void>() {
+            public Void call() {
+                throw new AssertionError("Evaluator is broken");
+            }
+        });
+        Ticket ticket = queue.submit(new Callable<Void>() {
+            public Void call() {
+                return null;
+            }
+        });
+        awaitIdleQueue();
+        assertEquals(State.FAILED, failedTicket.getState());
+        assertNotNull(failedTicket.getReason());
+        assertEquals(State.FINISHED, ticket.getState());
+    }
+
+    @Test
+    public void testIdleQueuesOfBuildsAreReleased() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ReevaluationQueue busyQueue = ReevaluationQueue.ofBuild("busy#1", true);
+        busyQueue.submit(new Callable<Void>() {
+            public Void call() throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        });
+        ReevaluationQueue idleQueue = ReevaluationQueue.ofBuild("idle#1", true);
+        assertSame(idleQueue, ReevaluationQueue.ofBuild("idle#1", false));
+        for (int i = 0; i < 100; i++) {
+            ReevaluationQueue.ofBuild("other#" + i, true);
+        }
+        assertNull(ReevaluationQueue.ofBuild("idle#1", false));
+        assertSame(busyQueue, ReevaluationQueue.ofBuild("busy#1", false));
+        release.countDown();
+    }
+
+    @Test
+    public void testTicketsCanBeFoundById() throws Exception {
+        Ticket ticket = queue.submit(new Callable<Void>() {
+            public Void call() {
+                return null;
+            }
+        });
+        assertSame(ticket, queue.getTicket(ticket.getId()));
+        assertNull(queue.getTicket(ticket.getId() + 1));
+        awaitIdleQueue();
+    }
+
+    private void awaitIdleQueue() throws InterruptedException {
+        for (int i = 0; i < 100 && queue.isBusy(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(queue.isBusy());
+    }
+}
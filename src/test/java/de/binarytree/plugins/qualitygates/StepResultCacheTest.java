@@ -0,0 +1,91 @@
+package de.binarytree.plugins.qualitygates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import hudson.model.Result;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.result.GateStepReport;
+
+public class StepResultCacheTest {
+
+    private StepResultCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new StepResultCache(2);
+    }
+
+    private GateStepReport createReport(Result result, String reason) {
+        GateStepReport report = createEmptyReport();
+        report.setResult(result, reason);
+        return report;
+    }
+
+    private GateStepReport createEmptyReport() {
+        return new GateStepReport(mock(GateStep.class));
+    }
+
+    @Test
+    public void testStoredResultIsRestored() {
+        cache.store("key", createReport(Result.UNSTABLE, "2 violations"));
+        GateStepReport report = createEmptyReport();
+
+        assertTrue(cache.restore("key", report));
+        assertEquals(Result.UNSTABLE, report.getResult());
+        assertEquals("2 violations", report.getReason());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testUnknownKeyIsNotRestored() {
+        GateStepReport report = createEmptyReport();
+
+        assertFalse(cache.restore("key", report));
+        assertEquals(Result.NOT_BUILT, report.getResult());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        cache.store("first", createReport(Result.SUCCESS, null));
+        cache.store("second", createReport(Result.SUCCESS, null));
+        cache.restore("first", createEmptyReport());
+        cache.store("third", createReport(Result.SUCCESS, null));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.restore("first", createEmptyReport()));
+        assertFalse(cache.restore("second", createEmptyReport()));
+        assertTrue(cache.restore("third", createEmptyReport()));
+    }
+
+    @Test
+    public void testCacheOfSizeZeroKeepsNothing() {
+        cache = new StepResultCache(0);
+        cache.store("key", createReport(Result.SUCCESS, null));
+
+        assertFalse(cache.isEnabled());
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSizeIsRejected() {
+        new StepResultCache(-1);
+    }
+
+    @Test
+    public void testClearDropsResultsAndCounters() {
+        cache.store("key", createReport(Result.SUCCESS, null));
+        cache.restore("key", createEmptyReport());
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertFalse(cache.restore("key", createEmptyReport()));
+    }
+}
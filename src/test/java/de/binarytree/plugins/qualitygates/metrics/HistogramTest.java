@@ -0,0 +1,38 @@
+package de.binarytree.plugins.qualitygates.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    private Histogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new Histogram();
+    }
+
+    @Test
+    public void testObservationsAreCountedCumulatively() {
+        histogram.observe(500000); // 0.5 ms
+        histogram.observe(1000000); // exactly 1 ms
+        histogram.observe(7000000); // 7 ms
+
+        assertEquals(2, histogram.getCumulativeCount(0));
+        assertEquals(2, histogram.getCumulativeCount(1));
+        assertEquals(3, histogram.getCumulativeCount(2));
+        assertEquals(3, histogram.getCumulativeCount(Histogram.BOUNDS_IN_MILLISECONDS.length - 1));
+        assertEquals(3, histogram.getCount());
+        assertEquals(8500000, histogram.getSum());
+    }
+
+    @Test
+    public void testObservationAboveAllBoundsIsOnlyCounted() {
+        histogram.observe(600L * 1000 * 1000 * 1000);
+
+        assertEquals(0, histogram.getCumulativeCount(Histogram.BOUNDS_IN_MILLISECONDS.length - 1));
+        assertEquals(1, histogram.getCount());
+    }
+}
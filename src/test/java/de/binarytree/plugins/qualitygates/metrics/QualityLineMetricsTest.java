@@ -0,0 +1,110 @@
+package de.binarytree.plugins.qualitygates.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import hudson.model.Result;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.GateStep;
+import de.binarytree.plugins.qualitygates.StepResultCache;
+import de.binarytree.plugins.qualitygates.result.Timing;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathExpressionCache;
+
+public class QualityLineMetricsTest {
+
+    private QualityLineMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new QualityLineMetrics();
+    }
+
+    private String write() throws IOException {
+        StringWriter writer = new StringWriter();
+        metrics.writeTo(writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void testStepsAreRecordedByTypeAndResult() throws IOException {
+        GateStep step = mock(GateStep.class);
+        metrics.recordStep(step, Result.SUCCESS, new Timing(3000000, Timing.UNKNOWN, 0));
+        metrics.recordStep(step, Result.FAILURE, new Timing(2000000000, Timing.UNKNOWN, 0));
+
+        String text = write();
+        String label = "step=\"" + step.getClass().getSimpleName() + "\"";
+        assertTrue(text.contains("# TYPE qualitygates_step_duration_seconds histogram\n"));
+        assertTrue(text.contains("qualitygates_step_duration_seconds_bucket{" + label + ",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("qualitygates_step_duration_seconds_bucket{" + label + ",le=\"5.0\"} 2\n"));
+        assertTrue(text.contains("qualitygates_step_duration_seconds_bucket{" + label + ",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("qualitygates_step_duration_seconds_sum{" + label + "} 2.003\n"));
+        assertTrue(text.contains("qualitygates_step_duration_seconds_count{" + label + "} 2\n"));
+        assertTrue(text.contains("qualitygates_step_results_total{result=\"SUCCESS\"} 1\n"));
+        assertTrue(text.contains("qualitygates_step_results_total{result=\"FAILURE\"} 1\n"));
+    }
+
+    @Test
+    public void testPendingApprovalsAreCountedOncePerRequest() {
+        metrics.manualApprovalRequested("project#1", "hash1");
+        metrics.manualApprovalRequested("project#1", "hash1");
+        metrics.manualApprovalGiven("hash1");
+        metrics.manualApprovalGiven("hash1");
+        metrics.manualApprovalGiven("unknown");
+        assertEquals(0, metrics.getPendingManualApprovals());
+    }
+
+    @Test
+    public void testPendingApprovalsOfDeletedBuildsAreNotCounted() {
+        metrics.manualApprovalRequested("project#1", "hash1");
+        metrics.manualApprovalRequested("project#1", "hash2");
+        metrics.manualApprovalRequested("project#2", "hash3");
+        metrics.buildDeleted("project#1");
+        assertEquals(1, metrics.getPendingManualApprovals());
+    }
+
+    @Test
+    public void testParsedBytesAndPendingApprovalsAreWritten() throws IOException {
+        metrics.getBytesParsedFromXml().add(1024);
+        metrics.getBytesParsedFromBuildLogs().add(20);
+        metrics.getBytesParsedFromBuildLogs().increment();
+        metrics.manualApprovalRequested("project#1", "hash1");
+        metrics.manualApprovalRequested("project#2", "hash2");
+        metrics.manualApprovalGiven("hash1");
+
+        String text = write();
+        assertTrue(text.contains("qualitygates_parsed_bytes_total{parser=\"XMLCheck\"} 1024\n"));
+        assertTrue(text.contains("qualitygates_parsed_bytes_total{parser=\"BuildLogFileParser\"} 21\n"));
+        assertTrue(text.contains("# TYPE qualitygates_pending_manual_approvals gauge\n"));
+        assertTrue(text.contains("qualitygates_pending_manual_approvals 1\n"));
+    }
+
+    @Test
+    public void testHitsAndMissesOfStepResultCacheAreWritten() throws IOException {
+        String text = write();
+        assertTrue(text.contains("# TYPE qualitygates_step_result_cache_hits_total counter\n"));
+        assertTrue(text.contains("qualitygates_step_result_cache_hits_total "
+                + StepResultCache.getDefault().getHits() + "\n"));
+        assertTrue(text.contains("qualitygates_step_result_cache_misses_total "
+                + StepResultCache.getDefault().getMisses() + "\n"));
+    }
+
+    @Test
+    public void testHitsAndMissesOfXPathCacheAreWritten() throws Exception {
+        XPathExpressionCache.getDefault().compile("/project/version");
+        XPathExpressionCache.getDefault().compile("/project/version");
+
+        String text = write();
+        assertTrue(text.contains("# TYPE qualitygates_xpath_cache_hits_total counter\n"));
+        assertTrue(text.contains("qualitygates_xpath_cache_hits_total " + XPathExpressionCache.getDefault().getHits()
+                + "\n"));
+        assertTrue(text.contains("qualitygates_xpath_cache_misses_total "
+                + XPathExpressionCache.getDefault().getMisses() + "\n"));
+        assertTrue(XPathExpressionCache.getDefault().getHits() > 0);
+    }
+}
@@ -3,15 +3,31 @@ package de.binarytree.plugins.qualitygates.result;
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.eq;
 import hudson.Launcher;
 import hudson.model.BuildListener;
+import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -90,6 +106,13 @@ public class BuildResultActionTest {
         mCheck2.setHash("Hash2");
     }
 
+    static class SavedManualCheck extends ManualCheck {
+        @Override
+        public DescriptorImpl getDescriptor() {
+            return new ManualCheck.DescriptorImpl();
+        }
+    }
+
     private QualityLineEvaluator getGateEvaluatorFromGates(Gate... gates) {
         LinkedList<Gate> gateList = new LinkedList<Gate>(); for (Gate gate : gates) {
             gateList.add(gate);
@@ -150,4 +173,175 @@ public class BuildResultActionTest {
         assertTrue(mCheck1.isDisapproved()); // Check toggles after reevaluation back to false
     }
 
+    @Test
+    public void testManualApprovalReevaluatesInBackground() throws Exception {
+        StaplerRequest req = prepareFakedStaplerRequest();
+        StaplerResponse res = prepareFakedStaplerResponse();
+        action.doApprove(req, res);
+        verify(res).setHeader(eq(BuildResultAction.STATUS_HEADER), anyString());
+        verify(res).sendRedirect(".");
+        awaitReevaluation();
+        verify(fakeEvaluator).evaluate(any(AbstractBuild.class), any(Launcher.class), any(BuildListener.class));
+    }
+
+    @Test
+    public void testStatusIsReportedAsJson() throws Exception {
+        StaplerRequest req = mock(StaplerRequest.class);
+        StaplerResponse res = prepareFakedStaplerResponse();
+        StringWriter status = new StringWriter();
+        when(res.getWriter()).thenReturn(new PrintWriter(status));
+        action.doStatus(req, res);
+        verify(res).setContentType("application/json;charset=UTF-8");
+        assertTrue(status.toString().contains("\"busy\":false"));
+    }
+
+    @Test
+    public void testStatusOfUnknownTicketIsNotFound() throws Exception {
+        StaplerRequest req = mock(StaplerRequest.class);
+        StaplerResponse res = prepareFakedStaplerResponse();
+        when(req.hasParameter("ticket")).thenReturn(true);
+        when(req.getParameter("ticket")).thenReturn("unknown");
+        action.doStatus(req, res);
+        verify(res).sendError(404);
+    }
+
+    @Test
+    public void testConcurrentApprovalsReevaluateOnlyOnce() throws Exception {
+        final int numberOfThreads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<Void>> requests = new LinkedList<Future<Void>>();
+            for (int i = 0; i < numberOfThreads; i++) {
+                final boolean approve = i % 2 == 0;
+                final StaplerRequest req = prepareFakedStaplerRequest();
+                final StaplerResponse res = prepareFakedStaplerResponse();
+                requests.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        start.await();
+                        if (approve) {
+                            action.doApprove(req, res);
+                        } else {
+                            action.doDisapprove(req, res);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> request : requests) {
+                request.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        awaitReevaluation();
+        assertTrue(mCheck1.isApproved() ^ mCheck1.isDisapproved());
+        verify(fakeEvaluator, times(1)).evaluate(any(AbstractBuild.class), any(Launcher.class),
+                any(BuildListener.class));
+    }
+
+    @Test
+    public void testSummaryIsAvailableWithoutReport() {
+        QualityLineSummary summary = action.getSummary();
+        QualityLineReport report = gateEvaluator.getLatestResults();
+        assertEquals(2, summary.getNumberOfGates());
+        assertEquals(report.getNumberOfSuccessfulGates(), summary.getNumberOfSuccessfulGates());
+        assertEquals(report.getReasonsOfTermination(), summary.getReasonsOfTermination());
+    }
+
+    @Test
+    public void testActionsOfTheSameBuildShareTheirReevaluations() throws Exception {
+        final CountDownLatch finish = new CountDownLatch(1);
+        QualityLineEvaluator blockingEvaluator = new QualityLineEvaluator(new LinkedList<Gate>()) {
+            @Override
+            public QualityLineReport getLatestResults() {
+                return gateEvaluator.getLatestResults();
+            }
+
+            @Override
+            public QualityLineReport evaluate(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
+                try {
+                    finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return getLatestResults();
+            }
+        };
+        AbstractBuild<?, ?> build = mock(AbstractBuild.class);
+        when(build.getExternalizableId()).thenReturn("project#1");
+        BuildResultAction evaluatedAction = createUnsavedAction(build, blockingEvaluator);
+        BuildResultAction loadedAction = createUnsavedAction(build, blockingEvaluator);
+
+        evaluatedAction.doApprove(prepareFakedStaplerRequest(), prepareFakedStaplerResponse());
+
+        assertTrue(loadedAction.isReevaluationInProgress());
+        finish.countDown();
+        awaitReevaluation(loadedAction);
+    }
+
+    @Test
+    public void testManualCheckCanBeApprovedAfterResultsHaveBeenSaved() throws Exception {
+        File rootDir = File.createTempFile("qualitygates-build", "");
+        assertTrue(rootDir.delete() && rootDir.mkdir());
+        AbstractBuild<?, ?> build = mock(AbstractBuild.class);
+        when(build.getExternalizableId()).thenReturn("project#2");
+        when(build.getRootDir()).thenReturn(rootDir);
+        when(build.getLogFile()).thenReturn(new File(rootDir, "log"));
+        LinkedList<GateStep> checks = new LinkedList<GateStep>();
+        checks.add(new SavedManualCheck());
+        LinkedList<Gate> gates = new LinkedList<Gate>();
+        gates.add(new AndGate("Gate", checks));
+        QualityLineEvaluator evaluator = new QualityLineEvaluator(gates);
+        evaluator.evaluate(build, TestHelper.getLauncherMock(), TestHelper.getListenerMock());
+        final Launcher launcher = TestHelper.getLauncherMock();
+        BuildResultAction savedAction = new BuildResultAction(build, evaluator) {
+            @Override
+            public Launcher getLauncher(BuildListener listener) {
+                return launcher;
+            }
+        };
+        savedAction.save();
+        Matcher link = Pattern.compile("approve\\?id=([^']+)'").matcher(getReportOfCheck(savedAction).getReason());
+        assertTrue(link.find());
+        StaplerRequest req = prepareFakedStaplerRequest();
+        when(req.getParameter("id")).thenReturn(link.group(1));
+        when(req.findAncestorObject(AbstractBuild.class)).thenReturn(build);
+
+        savedAction.doApprove(req, prepareFakedStaplerResponse());
+
+        awaitReevaluation(savedAction);
+        assertEquals(Result.SUCCESS, getReportOfCheck(savedAction).getResult());
+    }
+
+    private GateStepReport getReportOfCheck(BuildResultAction action) {
+        return action.getQualityLineReport().getGateReports().get(0).getStepReports().get(0);
+    }
+
+    private BuildResultAction createUnsavedAction(AbstractBuild<?, ?> build, QualityLineEvaluator evaluator) {
+        final Launcher launcher = TestHelper.getLauncherMock();
+        return new BuildResultAction(build, evaluator) {
+            @Override
+            public void save() {
+            }
+
+            @Override
+            public Launcher getLauncher(BuildListener listener) {
+                return launcher;
+            }
+        };
+    }
+
+    private void awaitReevaluation() throws InterruptedException {
+        awaitReevaluation(action);
+    }
+
+    private void awaitReevaluation(BuildResultAction action) throws InterruptedException {
+        for (int i = 0; i < 100 && action.isReevaluationInProgress(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(action.isReevaluationInProgress());
+    }
+
 }
@@ -2,6 +2,8 @@ package de.binarytree.plugins.qualitygates.result;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -26,6 +28,30 @@ public class ListContainerTest {
         }
     }
 
+    class Item {
+        private final Object key;
+
+        Item(Object key) {
+            this.key = key;
+        }
+    }
+
+    class KeyedListContainerImpl extends ListContainerImpl<Item> {
+        @Override
+        protected boolean isSameItem(Item a, Item b) {
+            return a.key == b.key;
+        }
+
+        @Override
+        protected Object keyOf(Item item) {
+            return item.key;
+        }
+
+        public Item getItem(Object key) {
+            return this.getItemWithKey(key);
+        }
+    }
+
     private ListContainerImpl<String> container;
     private String string;
 
@@ -69,6 +95,50 @@ public class ListContainerTest {
 
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void testItemsCannotBeModifiedDirectly() {
+        container.addItem(string);
+        container.getList().clear();
+    }
+
+    @Test
+    public void testKeyedItemsAreReplacedAtTheirFormerPosition() {
+        KeyedListContainerImpl keyedContainer = new KeyedListContainerImpl();
+        Object[] keys = new Object[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+            keyedContainer.addItem(new Item(keys[i]));
+        }
+        Item replacement = new Item(keys[42]);
+        keyedContainer.addItem(replacement);
+        assertEquals(keys.length, keyedContainer.getList().size());
+        assertSame(replacement, keyedContainer.getList().get(42));
+        assertSame(replacement, keyedContainer.getItem(keys[42]));
+        for (int i = 0; i < keys.length; i++) {
+            assertSame(keys[i], keyedContainer.getList().get(i).key);
+        }
+    }
+
+    @Test
+    public void testKeysAreComparedByIdentity() {
+        KeyedListContainerImpl keyedContainer = new KeyedListContainerImpl();
+        keyedContainer.addItem(new Item(new String("key")));
+        keyedContainer.addItem(new Item(new String("key")));
+        assertEquals(2, keyedContainer.getList().size());
+        assertNull(keyedContainer.getItem("another key"));
+    }
+
+    @Test
+    public void testItemsWithoutKeyAreComparedToAllItems() {
+        KeyedListContainerImpl keyedContainer = new KeyedListContainerImpl();
+        keyedContainer.addItem(new Item(new Object()));
+        keyedContainer.addItem(new Item(null));
+        Item replacement = new Item(null);
+        keyedContainer.addItem(replacement);
+        assertEquals(2, keyedContainer.getList().size());
+        assertSame(replacement, keyedContainer.getList().get(1));
+    }
+
     private void addArbitraryString(int count, String prefix) {
         for (int i = 0; i < count; i++) {
             container.addItem(prefix + " " + i);
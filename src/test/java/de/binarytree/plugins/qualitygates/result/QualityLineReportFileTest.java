@@ -0,0 +1,199 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import hudson.model.AbstractBuild;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.AndGate;
+import de.binarytree.plugins.qualitygates.GateStep;
+
+public class QualityLineReportFileTest {
+
+    private File file;
+
+    private QualityLineReportFile reportFile;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("qualitygates-report", ".bin");
+        file.delete();
+        reportFile = new QualityLineReportFile(file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testWrittenReportIsReadAgain() throws IOException {
+        QualityLineReport report = new QualityLineReport();
+        GateReport gateReport = new GateReport("Gate \u00e4", Result.UNSTABLE);
+        gateReport.appendItem(new GateStepReport("Step", "Checks something", Result.SUCCESS, null));
+        gateReport.appendItem(new GateStepReport("Step", "Checks something", Result.UNSTABLE, "2 violations"));
+        report.appendItem(gateReport);
+        report.appendItem(new GateReport("Empty Gate", Result.NOT_BUILT));
+
+        assertFalse(reportFile.exists());
+        reportFile.write(report);
+        assertTrue(reportFile.exists());
+        QualityLineReport readReport = reportFile.read();
+
+        assertEquals(2, readReport.getNumberOfGates());
+        GateReport readGateReport = readReport.getGateReports().get(0);
+        assertEquals("Gate \u00e4", readGateReport.getGateName());
+        assertEquals(Result.UNSTABLE, readGateReport.getResult());
+        List<GateStepReport> stepReports = readGateReport.getStepReports();
+        assertEquals(2, stepReports.size());
+        assertEquals("Step", stepReports.get(0).getStepName());
+        assertEquals("Checks something", stepReports.get(0).getDescription());
+        assertEquals(Result.SUCCESS, stepReports.get(0).getResult());
+        assertNull(stepReports.get(0).getReason());
+        assertNull(stepReports.get(0).getStep());
+        assertEquals(Result.UNSTABLE, stepReports.get(1).getResult());
+        assertEquals("2 violations", stepReports.get(1).getReason());
+        assertEquals("Empty Gate", readReport.getGateReports().get(1).getGateName());
+        assertEquals(0, readReport.getGateReports().get(1).getNumberOfSteps());
+    }
+
+    @Test
+    public void testTimingsAreReadAgain() throws IOException {
+        QualityLineReport report = new QualityLineReport();
+        GateReport gateReport = new GateReport("Gate", Result.SUCCESS);
+        gateReport.setTiming(new Timing(540000000000L, Timing.UNKNOWN, 5L * 1024 * 1024 * 1024));
+        GateStepReport stepReport = new GateStepReport("Step", "Checks something", Result.SUCCESS, null);
+        stepReport.setTiming(new Timing(1500000, 1200000, 0));
+        gateReport.appendItem(stepReport);
+        gateReport.appendItem(new GateStepReport("Step", "Not measured", Result.NOT_BUILT, null));
+        report.appendItem(gateReport);
+
+        reportFile.write(report);
+        GateReport readGateReport = reportFile.read().getGateReports().get(0);
+
+        assertEquals(540000000000L, readGateReport.getTiming().getWallTime());
+        assertEquals(Timing.UNKNOWN, readGateReport.getTiming().getCpuTime());
+        assertEquals(5L * 1024 * 1024 * 1024, readGateReport.getTiming().getBytesRead());
+        Timing stepTiming = readGateReport.getStepReports().get(0).getTiming();
+        assertEquals(1500000, stepTiming.getWallTime());
+        assertEquals(1200000, stepTiming.getCpuTime());
+        assertNull(readGateReport.getStepReports().get(1).getTiming());
+    }
+
+    @Test
+    public void testReportWithoutTimingsIsRead() throws IOException {
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        output.writeInt(0x51474c52);
+        output.writeByte(1);
+        output.write(new byte[] { 1, 1, 4 }); // one gate named by string 1
+        output.write("Gate".getBytes("UTF-8"));
+        output.write(new byte[] { 2, 7 }); // result is string 2
+        output.write("SUCCESS".getBytes("UTF-8"));
+        output.write(new byte[] { 0 }); // no steps
+        output.close();
+
+        QualityLineReport report = reportFile.read();
+        assertEquals(1, report.getNumberOfGates());
+        assertEquals("Gate", report.getGateReports().get(0).getGateName());
+        assertEquals(Result.SUCCESS, report.getGateReports().get(0).getResult());
+        assertNull(report.getGateReports().get(0).getTiming());
+    }
+
+    @Test
+    public void testGateResumesFromReadReport() throws IOException {
+        CountingStep first = new CountingStep("first", Result.SUCCESS);
+        CountingStep second = new CountingStep("second", Result.UNSTABLE);
+        CountingStep waiting = new CountingStep("waiting", Result.NOT_BUILT);
+        CountingStep last = new CountingStep("last", Result.SUCCESS);
+        AndGate gate = new AndGate("Gate", Arrays.<GateStep> asList(first, second, waiting, last));
+        BuildListener listener = mock(BuildListener.class);
+        when(listener.getLogger()).thenReturn(new PrintStream(new ByteArrayOutputStream()));
+        QualityLineReport report = new QualityLineReport();
+        report.appendItem(gate.evaluate(null, null, listener));
+        reportFile.write(report);
+
+        waiting.result = Result.SUCCESS;
+        GateReport formerReport = reportFile.read().getGateReports().get(0);
+        GateReport resumedReport = gate.evaluate(null, null, listener, formerReport);
+
+        assertEquals(Result.UNSTABLE, resumedReport.getResult());
+        assertEquals(1, first.performed);
+        assertEquals(1, second.performed);
+        assertEquals(2, waiting.performed);
+        assertEquals(2, last.performed);
+    }
+
+    static class CountingStep extends GateStep {
+        private final String description;
+
+        private Result result;
+
+        private int performed;
+
+        CountingStep(String description, Result result) {
+            this.description = description;
+            this.result = result;
+        }
+
+        @Override
+        public void doStep(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener,
+                GateStepReport checkReport) {
+            this.performed++;
+            checkReport.setResult(this.result, "Performed " + this.performed + " times");
+        }
+
+        @Override
+        public String getDescription() {
+            return this.description;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Counting Step";
+        }
+    }
+
+    @Test
+    public void testWritingReplacesPreviousReport() throws IOException {
+        QualityLineReport report = new QualityLineReport();
+        report.appendItem(new GateReport("Gate", Result.FAILURE));
+        reportFile.write(report);
+        reportFile.write(new QualityLineReport());
+
+        assertEquals(0, reportFile.read().getNumberOfGates());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testFileWithoutReportIsRejected() throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        output.write("<build/>".getBytes("UTF-8"));
+        output.close();
+        try {
+            reportFile.read();
+            fail("A file without report must not be read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(file.getName()));
+        }
+    }
+}
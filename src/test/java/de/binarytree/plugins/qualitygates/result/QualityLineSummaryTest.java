@@ -0,0 +1,53 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.model.Result;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class QualityLineSummaryTest {
+
+    private GateReport gateReport(String name, Result result, String reason) {
+        GateReport gateReport = new GateReport(name, result);
+        gateReport.appendItem(new GateStepReport("Step", "Step of " + name, result, reason));
+        return gateReport;
+    }
+
+    @Test
+    public void testSummaryOfSuccessfulQualityLine() {
+        QualityLineReport report = new QualityLineReport();
+        report.appendItem(gateReport("Gate 1", Result.SUCCESS, null));
+        report.appendItem(gateReport("Gate 2", Result.SUCCESS, null));
+
+        QualityLineSummary summary = new QualityLineSummary(report);
+        assertEquals(Result.SUCCESS, summary.getResult());
+        assertEquals(2, summary.getNumberOfGates());
+        assertEquals(2, summary.getNumberOfSuccessfulGates());
+        assertTrue(summary.getReasonsOfTermination().isEmpty());
+    }
+
+    @Test
+    public void testSummaryOfTerminatedQualityLine() {
+        QualityLineReport report = new QualityLineReport();
+        report.appendItem(gateReport("Gate 1", Result.UNSTABLE, "2 violations"));
+        report.appendItem(gateReport("Gate 2", Result.FAILURE, "Build failed"));
+        report.appendItem(gateReport("Gate 3", Result.NOT_BUILT, null));
+
+        QualityLineSummary summary = new QualityLineSummary(report);
+        assertEquals(Result.FAILURE, summary.getResult());
+        assertEquals(3, summary.getNumberOfGates());
+        assertEquals(1, summary.getNumberOfSuccessfulGates());
+        assertEquals(Arrays.asList("Build failed"), summary.getReasonsOfTermination());
+    }
+
+    @Test
+    public void testSummaryOfEmptyQualityLine() {
+        QualityLineSummary summary = new QualityLineSummary(new QualityLineReport());
+        assertEquals(Result.SUCCESS, summary.getResult());
+        assertEquals(0, summary.getNumberOfGates());
+        assertTrue(summary.getReasonsOfTermination().isEmpty());
+    }
+}
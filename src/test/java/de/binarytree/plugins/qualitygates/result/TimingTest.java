@@ -0,0 +1,57 @@
+package de.binarytree.plugins.qualitygates.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.model.Result;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.ReadCounter;
+
+public class TimingTest {
+
+    private GateStepReport stepReport(Timing timing) {
+        GateStepReport stepReport = new GateStepReport("Step", "Step", Result.SUCCESS, null);
+        stepReport.setTiming(timing);
+        return stepReport;
+    }
+
+    @Test
+    public void testMeasurementCountsBytesReadMeanwhile() {
+        ReadCounter.countRead(10);
+        Timing.Measurement measurement = Timing.start();
+        ReadCounter.countRead(2048);
+        Timing timing = measurement.stop();
+        assertEquals(2048, timing.getBytesRead());
+        assertTrue(timing.getWallTime() >= 0);
+        assertTrue(timing.getCpuTime() >= 0 || timing.getCpuTime() == Timing.UNKNOWN);
+    }
+
+    @Test
+    public void testTimingOfGateSumsUpItsSteps() {
+        Timing timing = Timing.ofSteps(5000000000L, Arrays.asList(stepReport(new Timing(3, 1000, 100)),
+                stepReport(null), stepReport(new Timing(4, 2000, 200))));
+        assertEquals(5000000000L, timing.getWallTime());
+        assertEquals(3000, timing.getCpuTime());
+        assertEquals(300, timing.getBytesRead());
+    }
+
+    @Test
+    public void testUnknownCpuTimeOfOneStepMakesCpuTimeOfGateUnknown() {
+        Timing timing = Timing.ofSteps(10, Arrays.asList(stepReport(new Timing(3, Timing.UNKNOWN, 100)),
+                stepReport(new Timing(4, 2000, 200))));
+        assertEquals(Timing.UNKNOWN, timing.getCpuTime());
+        assertEquals(300, timing.getBytesRead());
+    }
+
+    @Test
+    public void testTimingIsFormattedForDisplay() {
+        assertEquals("1.500 s, CPU 0.250 s, 2.0 MB read",
+                new Timing(1500000000L, 250000000L, 2 * 1024 * 1024).toString());
+        assertEquals("0.000 s, CPU 0.000 s", Timing.ofSteps(0, Collections.<GateStepReport> emptyList()).toString());
+        assertEquals("0.002 s, 512 B read", new Timing(2000000L, Timing.UNKNOWN, 512).toString());
+    }
+}
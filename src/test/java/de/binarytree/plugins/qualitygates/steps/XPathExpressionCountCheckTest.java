@@ -1,25 +1,34 @@
 package de.binarytree.plugins.qualitygates.steps;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import hudson.FilePath;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.xml.sax.SAXException;
 
+import de.binarytree.plugins.qualitygates.EvaluationScope;
 import de.binarytree.plugins.qualitygates.GateStepDescriptor;
+import de.binarytree.plugins.qualitygates.StepResultCache;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
 import de.binarytree.plugins.qualitygates.steps.XPathExpressionCountCheck.DescriptorImpl;
+import de.binarytree.plugins.qualitygates.steps.xpath.XMLDocumentCache;
+import de.binarytree.plugins.qualitygates.steps.xpath.XPathLookup;
 
 public class XPathExpressionCountCheckTest {
 
@@ -197,6 +206,89 @@ public class XPathExpressionCountCheckTest {
         assertEquals(Result.SUCCESS, report.getResult());
     }
 
+    @Test
+    public void testIdenticalTargetFilesOfDifferentBuildsShareOneCacheEntry() throws Exception {
+        XPathExpressionCountCheck realCheck = new XPathExpressionCountCheck(name, this.filePath, this.expression,
+                this.successThreshold, this.warningThreshold) {
+            @Override
+            public GateStepDescriptor getDescriptor() {
+                return descriptor;
+            }
+        };
+        AbstractBuild<?, ?> firstBuild = buildWithTargetFile(getXMLforNumberOfViolations(2));
+        AbstractBuild<?, ?> secondBuild = buildWithTargetFile(getXMLforNumberOfViolations(2));
+        AbstractBuild<?, ?> changedBuild = buildWithTargetFile(getXMLforNumberOfViolations(3));
+        String firstKey = realCheck.getResultCacheKey(firstBuild);
+        String secondKey = realCheck.getResultCacheKey(secondBuild);
+
+        StepResultCache cache = new StepResultCache(4);
+        GateStepReport report = new GateStepReport(realCheck);
+        report.setResult(Result.UNSTABLE, "2 violations");
+        cache.store(firstKey, report);
+        GateStepReport restoredReport = new GateStepReport(realCheck);
+
+        assertTrue(cache.restore(secondKey, restoredReport));
+        assertEquals(Result.UNSTABLE, restoredReport.getResult());
+        assertEquals(1, cache.size());
+        assertFalse(firstKey.equals(realCheck.getResultCacheKey(changedBuild)));
+    }
+
+    @Test
+    public void testAnnouncedLookupsInFileOnAgentArePerformedAtOnce() throws Exception {
+        AbstractBuild<?, ?> buildOnAgent = buildWithTargetFile(getXMLforNumberOfViolations(2));
+        XPathExpressionCountCheck countCheck = new XPathExpressionCountCheck(name, this.filePath, this.expression,
+                this.successThreshold, this.warningThreshold) {
+            @Override
+            protected boolean shouldEvaluateOnAgent(AbstractBuild<?, ?> build) {
+                return true;
+            }
+
+            @Override
+            public GateStepDescriptor getDescriptor() {
+                return descriptor;
+            }
+        };
+        XPathExpressionCheck contentCheck = new XPathExpressionCheck(this.filePath, "/pmd/file/@name", true) {
+            @Override
+            protected boolean shouldEvaluateOnAgent(AbstractBuild<?, ?> build) {
+                return true;
+            }
+
+            @Override
+            public GateStepDescriptor getDescriptor() {
+                return new XPathExpressionCheck.DescriptorImpl();
+            }
+        };
+        FilePath target = buildOnAgent.getModuleRoot().child(this.filePath);
+        EvaluationScope scope = EvaluationScope.open(buildOnAgent);
+        try {
+            countCheck.announce(buildOnAgent);
+            contentCheck.announce(buildOnAgent);
+            assertEquals(Result.UNSTABLE, countCheck.step(buildOnAgent, null, null).getResult());
+
+            assertEquals("file.txt", XMLDocumentCache.forBuild(buildOnAgent).getResult(target.getRemote(),
+                    target.lastModified(), XPathLookup.textContent("/pmd/file/@name")));
+            GateStepReport contentReport = contentCheck.step(buildOnAgent, null, null);
+            assertEquals(Result.SUCCESS, contentReport.getResult());
+            assertEquals("Content: file.txt", contentReport.getReason());
+        } finally {
+            scope.close();
+        }
+    }
+
+    private AbstractBuild<?, ?> buildWithTargetFile(String content) throws IOException {
+        File moduleRoot = File.createTempFile("workspace", "");
+        moduleRoot.delete();
+        moduleRoot.mkdir();
+        moduleRoot.deleteOnExit();
+        File targetFile = new File(moduleRoot, this.filePath);
+        targetFile.deleteOnExit();
+        FileUtils.writeStringToFile(targetFile, content);
+        AbstractBuild<?, ?> buildWithWorkspace = mock(AbstractBuild.class);
+        when(buildWithWorkspace.getModuleRoot()).thenReturn(new FilePath(moduleRoot));
+        return buildWithWorkspace;
+    }
+
     public String getXMLforNumberOfViolations(int violations) {
         return this.getXMLforNumberOfViolationsInFiles(violations, 1);
     }
@@ -0,0 +1,162 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.TestHelper;
+import de.binarytree.plugins.qualitygates.result.GateStepReport;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.BannedDependencyCheck.DescriptorImpl;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.AbstractParserTestUtils;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
+
+public class BannedDependencyCheckTest {
+
+    private static final String ENFORCER_SECTION = "Found Banned Dependency: org.springframework:spring-tx:jar:2.5.6\n"
+            + "Found Banned Dependency: org.springframework:spring-core:jar:2.5.6\n"
+            + "Found Banned Dependency: org.springframework:spring-aop:jar:2.5.6\n";
+
+    class MockBannedDependencyCheck extends BannedDependencyCheck {
+        private BuildLogFileParser logFileParser;
+
+        public MockBannedDependencyCheck(int successThreshold, int warningThreshold) {
+            super(successThreshold, warningThreshold);
+            logFileParser = mock(BuildLogFileParser.class);
+        }
+
+        @Override
+        protected BuildLogFileParser createLogFileParser() {
+            return this.logFileParser;
+        }
+
+        @Override
+        public DescriptorImpl getDescriptor() {
+            return new BannedDependencyCheck.DescriptorImpl();
+        }
+    }
+
+    private AbstractBuild<?, ?> build;
+
+    private BuildListener listener;
+
+    private Launcher launcher;
+
+    private MockBannedDependencyCheck check;
+
+    private GateStepReport report;
+
+    @Before
+    public void setUp() throws Exception {
+        build = TestHelper.getBuildMock();
+        listener = TestHelper.getListenerMock();
+        launcher = TestHelper.getLauncherMock();
+        check = new MockBannedDependencyCheck(1, 3);
+        report = new GateStepReport(check);
+    }
+
+    @Test
+    public void testResultIsFailureIfBuildFailed() {
+        when(build.getResult()).thenReturn(Result.FAILURE);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.FAILURE, report.getResult());
+    }
+
+    @Test
+    public void testResultIsFailureWhenExceptionHappens() throws IOException {
+        setBuildResultToSuccess();
+        BuildLogFileParser parser = check.createLogFileParser();
+        doThrow(new IOException("xxxmessagexxx")).when(parser).parseLogFile(any(File.class));
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.FAILURE, report.getResult());
+        assertTrue(report.getReason().toLowerCase().contains("xxxmessagexxx"));
+    }
+
+    @Test
+    public void testResultIsUnstableIfEnforcerSectionIsMissing() {
+        setBuildResultToSuccess();
+        letParserReturn(check.createLogFileParser(), null);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.UNSTABLE, report.getResult());
+        assertTrue(report.getReason().contains("enforcer:enforce"));
+    }
+
+    @Test
+    public void testResultIsSuccessIfNoBannedDependenciesAreFound() {
+        setBuildResultToSuccess();
+        letParserReturn(check.createLogFileParser(), "");
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.SUCCESS, report.getResult());
+        assertTrue(report.getReason().startsWith("0 banned"));
+    }
+
+    @Test
+    public void testResultIsUnstableIfBannedDependenciesExceedSuccessThreshold() {
+        setBuildResultToSuccess();
+        letParserReturn(check.createLogFileParser(), ENFORCER_SECTION);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.UNSTABLE, report.getResult());
+        assertTrue(report.getReason().contains("3 banned"));
+        assertTrue(report.getReason().contains("org.springframework:spring-aop:jar:2.5.6"));
+        assertTrue(report.getReason().contains("at least 2 to be successful"));
+    }
+
+    @Test
+    public void testResultIsFailureIfBannedDependenciesExceedWarningThreshold() {
+        check = new MockBannedDependencyCheck(0, 1);
+        setBuildResultToSuccess();
+        letParserReturn(check.createLogFileParser(), ENFORCER_SECTION);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.FAILURE, report.getResult());
+        assertTrue(report.getReason().contains("at least 2 to improve"));
+    }
+
+    @Test
+    public void testBannedDependenciesInRealLogFileAreCounted() throws Exception {
+        setBuildResultToSuccess();
+        when(build.getLogFile()).thenReturn(
+                AbstractParserTestUtils.getFile("log_build_with_banned_dependencies"));
+        BannedDependencyCheck check = new BannedDependencyCheck(10, 20);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.UNSTABLE, report.getResult());
+        assertTrue(report.getReason().contains("15 banned"));
+    }
+
+    @Test
+    public void testThresholdsAreInclusive() {
+        assertTrue(check.countIsSuccess(1));
+        assertTrue(!check.countIsSuccess(2));
+        assertTrue(check.countIsWarning(3));
+        assertTrue(!check.countIsWarning(4));
+        assertEquals(1, check.getSuccessThreshold());
+        assertEquals(3, check.getWarningThreshold());
+    }
+
+    @Test
+    public void testDescriptionContainsBannedDependency() {
+        DescriptorImpl descriptor = new BannedDependencyCheck.DescriptorImpl();
+        assertTrue(descriptor.getDisplayName().toLowerCase().contains("banned dependency"));
+        assertTrue(check.getDescription().toLowerCase().contains("banned dependency"));
+    }
+
+    private void letParserReturn(BuildLogFileParser parser, String returnValue) {
+        when(parser.getContentOfSectionFor(Goal.BANNED_DEPENDENCY_ANALYSE)).thenReturn(returnValue);
+    }
+
+    private void setBuildResultToSuccess() {
+        when(build.getResult()).thenReturn(Result.SUCCESS);
+    }
+}
@@ -0,0 +1,119 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.binarytree.plugins.qualitygates.TestHelper;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser;
+import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
+
+public class BuildLogSectionsTest {
+
+    private static final String ANALYZE_HEADER = "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n";
+
+    private static final String ENFORCER_HEADER = "[INFO] --- maven-enforcer-plugin:1.2:enforce (enforce-banned) @ projectone ---\n";
+
+    class CountingDependencyCheck extends DependencyDeclarationCheck {
+        private int numberOfParsedLogFiles;
+
+        @Override
+        protected BuildLogFileParser createLogFileParser() {
+            numberOfParsedLogFiles++;
+            return super.createLogFileParser();
+        }
+    }
+
+    private AbstractBuild<?, ?> build;
+
+    private File logFile;
+
+    @Before
+    public void setUp() throws IOException {
+        build = TestHelper.getBuildMock();
+        logFile = File.createTempFile("log_build_with_sections", ".log");
+        write(ANALYZE_HEADER + "[WARNING] Unused declared dependencies found:\n" + ENFORCER_HEADER
+                + "Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n", false);
+        when(build.getLogFile()).thenReturn(logFile);
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    @Test
+    public void testChecksOfSameBuildShareParsedSections() throws IOException {
+        CountingDependencyCheck firstCheck = new CountingDependencyCheck();
+        CountingDependencyCheck secondCheck = new CountingDependencyCheck();
+        Map<Goal, String> sections = firstCheck.obtainSectionsOfBuildLog(build);
+        assertSame(sections, secondCheck.obtainSectionsOfBuildLog(build));
+        assertSame(sections, firstCheck.obtainSectionsOfBuildLog(build));
+        assertEquals(1, firstCheck.numberOfParsedLogFiles + secondCheck.numberOfParsedLogFiles);
+        assertEquals("[WARNING] Unused declared dependencies found:\n", sections.get(Goal.DEPENDENCY_ANALYSE));
+        assertEquals("Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n",
+                sections.get(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testLinesAppendedToLogFileAreParsedWithoutParsingItAgain() throws IOException {
+        CountingDependencyCheck check = new CountingDependencyCheck();
+        check.obtainSectionsOfBuildLog(build);
+        write("Found Banned Dependency: log4j:log4j:jar:1.2.17\n" + ANALYZE_HEADER
+                + "[WARNING] Used undeclared dependencies found:\n", true);
+        Map<Goal, String> sections = check.obtainSectionsOfBuildLog(build);
+        assertEquals(1, check.numberOfParsedLogFiles);
+        assertEquals("[WARNING] Unused declared dependencies found:\n[WARNING] Used undeclared dependencies found:\n",
+                sections.get(Goal.DEPENDENCY_ANALYSE));
+        assertEquals("Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n"
+                + "Found Banned Dependency: log4j:log4j:jar:1.2.17\n", sections.get(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testTruncatedLogFileIsParsedAgain() throws IOException {
+        CountingDependencyCheck check = new CountingDependencyCheck();
+        Map<Goal, String> sections = check.obtainSectionsOfBuildLog(build);
+        write(ANALYZE_HEADER, false);
+        Map<Goal, String> changedSections = check.obtainSectionsOfBuildLog(build);
+        assertNotSame(sections, changedSections);
+        assertEquals(2, check.numberOfParsedLogFiles);
+        assertEquals("", changedSections.get(Goal.DEPENDENCY_ANALYSE));
+        assertNull(changedSections.get(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testSectionsOfDifferentBuildsAreNotShared() throws IOException {
+        AbstractBuild<?, ?> otherBuild = TestHelper.getBuildMock();
+        File otherLogFile = File.createTempFile("log_build_without_sections", ".log");
+        try {
+            when(otherBuild.getLogFile()).thenReturn(otherLogFile);
+            CountingDependencyCheck check = new CountingDependencyCheck();
+            check.obtainSectionsOfBuildLog(build);
+            assertNull(check.obtainSectionOfBuildLog(otherBuild, Goal.DEPENDENCY_ANALYSE));
+            assertEquals(2, check.numberOfParsedLogFiles);
+        } finally {
+            otherLogFile.delete();
+        }
+    }
+
+    private void write(String content, boolean append) throws IOException {
+        FileWriter writer = new FileWriter(logFile, append);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
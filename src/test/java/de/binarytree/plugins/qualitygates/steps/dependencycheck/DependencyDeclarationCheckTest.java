@@ -12,6 +12,7 @@ import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 
 import org.junit.Before;
@@ -170,6 +171,38 @@ public class DependencyDeclarationCheckTest {
         assertTrue(report.getReason().contains("4 unused"));
     }
 
+    @Test
+    public void testModulesOfReactorWithViolationsAreListed() throws Exception {
+        setBuildResultToSuccess();
+        File logFile = File.createTempFile("log_build_of_reactor", ".log");
+        FileWriter writer = new FileWriter(logFile);
+        try {
+            for (String module : new String[] { "core", "api", "web", "cli" }) {
+                writer.write("[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ " + module + " ---\n");
+                if (!"api".equals(module)) {
+                    writer.write("[WARNING] Used undeclared dependencies found:\n");
+                    writer.write("[WARNING]    org.apache.maven:maven-model:jar:2.0.2:compile\n");
+                }
+            }
+            writer.write("[WARNING] Unused declared dependencies found:\n");
+            writer.write("[WARNING]    org.apache.maven:maven-artifact:jar:2.0:compile\n");
+        } finally {
+            writer.close();
+        }
+        try {
+            when(build.getLogFile()).thenReturn(logFile);
+            DependencyDeclarationCheck check = new DependencyDeclarationCheck();
+            check.doStep(build, launcher, listener, report);
+            assertEquals(Result.UNSTABLE, report.getResult());
+            assertTrue(report.getReason().startsWith("1 undeclared and 1 unused"));
+            assertTrue(report.getReason().contains("core (1 undeclared, 0 unused)"));
+            assertTrue(report.getReason().contains("cli (1 undeclared, 1 unused)"));
+            assertTrue(!report.getReason().contains("api"));
+        } finally {
+            logFile.delete();
+        }
+    }
+
     @Test
     public void testResultIsSuccessIfNoViolationsAreFoundButBuildIsUnstable() {
         when(build.getResult()).thenReturn(Result.UNSTABLE);
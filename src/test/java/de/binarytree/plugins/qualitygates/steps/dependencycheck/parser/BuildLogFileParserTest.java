@@ -1,18 +1,25 @@
 package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.binarytree.plugins.qualitygates.ReadCounter;
 import de.binarytree.plugins.qualitygates.steps.dependencycheck.parser.BuildLogFileParser.Goal;
 
 public class BuildLogFileParserTest extends AbstractParserTestUtils {
@@ -182,4 +189,176 @@ public class BuildLogFileParserTest extends AbstractParserTestUtils {
         Assert.assertEquals("Wrong number of line returned, ", 15, lines.size());
 
     }
+
+    @Test
+    public void testSectionsOfGoalsNotRequestedAreSkipped() throws Exception {
+        File file = getFile("log_build_with_banned_dependencies");
+        parser = new BuildLogFileParser(Goal.DEPENDENCY_ANALYSE);
+
+        parser.parseLogFile(file);
+
+        assertNotNull(parser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE));
+        assertNull(parser.getContentOfSectionFor(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testSectionDirectlyFollowingAnotherSectionIsFound() throws Exception {
+        File file = File.createTempFile("log_build_with_adjacent_sections", ".log");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write("[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n");
+            writer.write("[WARNING] Unused declared dependencies found:\n");
+            writer.write("[INFO] --- maven-enforcer-plugin:1.2:enforce (enforce-banned) @ projectone ---\n");
+            writer.write("Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n");
+            writer.write("[INFO] ------------------------------------------------------------------------\n");
+        } finally {
+            writer.close();
+        }
+
+        parser.parseLogFile(file);
+
+        assertEquals("[WARNING] Unused declared dependencies found:\n",
+                parser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE));
+        assertEquals("Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n",
+                parser.getContentOfSectionFor(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testMemoryMappedParsingFindsSameSectionsAsParsingLineByLine() throws Exception {
+        String[] logFiles = { "log_build_with_unused", "log_build_with_colors", "log_build_with_banned_dependencies",
+                "log_build_with_dependency_analyze_only_with_pretext",
+                "log_build_with_empty_dependency_analyze_with_execution_id" };
+        for (String logFile : logFiles) {
+            BuildLogFileParser lineByLineParser = new BuildLogFileParser();
+            lineByLineParser.parseLogFile(getFile(logFile), false);
+            BuildLogFileParser memoryMappedParser = new BuildLogFileParser();
+            memoryMappedParser.parseLogFile(getFile(logFile), true);
+            for (Goal goal : Goal.values()) {
+                assertEquals(logFile + " " + goal, lineByLineParser.getContentOfSectionFor(goal),
+                        memoryMappedParser.getContentOfSectionFor(goal));
+            }
+        }
+    }
+
+    @Test
+    public void testParsingIsContinuedInSectionOpenAtEndOfLogFile() throws Exception {
+        File file = File.createTempFile("log_build_growing", ".log");
+        file.deleteOnExit();
+        write(file, "[INFO] --- maven-enforcer-plugin:1.2:enforce (enforce-banned) @ projectone ---\n"
+                + "Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n", false);
+        parser.parseLogFile(file, true);
+        write(file, "Found Banned Dependency: log4j:log4j:jar:1.2.17\n"
+                + "[INFO] ------------------------------------------------------------------------\n"
+                + "Found Banned Dependency: junit:junit:jar:4.11\n", true);
+
+        assertTrue(parser.continueParsingLogFile(file));
+
+        assertEquals("Found Banned Dependency: commons-logging:commons-logging:jar:1.1.1\n"
+                + "Found Banned Dependency: log4j:log4j:jar:1.2.17\n",
+                parser.getContentOfSectionFor(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testIncompleteLastLineIsParsedAgainWhenContinuing() throws Exception {
+        File file = File.createTempFile("log_build_growing", ".log");
+        file.deleteOnExit();
+        write(file, "[INFO] Scanning for projects...\n[INFO] --- maven-dependency", false);
+        parser.parseLogFile(file, true);
+        assertNull(parser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE));
+        write(file, "-plugin:2.1:analyze (default-cli) @ projectone ---\n"
+                + "[WARNING] Unused declared dependencies found:\n", true);
+
+        assertTrue(parser.continueParsingLogFile(file));
+
+        assertEquals("[WARNING] Unused declared dependencies found:\n",
+                parser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testTruncatedLogFileIsParsedFromStart() throws Exception {
+        File file = File.createTempFile("log_build_truncated", ".log");
+        file.deleteOnExit();
+        write(file, "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n"
+                + "[WARNING] Unused declared dependencies found:\n", false);
+        parser.parseLogFile(file, true);
+        write(file, "[INFO] BUILD SUCCESS\n", false);
+
+        Assert.assertFalse(parser.continueParsingLogFile(file));
+
+        assertNull(parser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testSectionsAreKeptPerModule() throws Exception {
+        File file = File.createTempFile("log_build_of_reactor", ".log");
+        file.deleteOnExit();
+        write(file, "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n"
+                + "[WARNING] Unused declared dependencies found:\n"
+                + "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projecttwo ---\n"
+                + "[WARNING] Used undeclared dependencies found:\n"
+                + "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli)\n"
+                + "[INFO] No dependency problems found\n"
+                + "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n"
+                + "[WARNING]    junit:junit:jar:4.11:test\n", false);
+
+        parser.parseLogFile(file);
+
+        Map<String, String> sections = parser.getContentOfSectionsPerModuleFor(Goal.DEPENDENCY_ANALYSE);
+        assertEquals(Arrays.asList("projectone", "projecttwo", BuildLogFileParser.UNKNOWN_MODULE),
+                Arrays.asList(sections.keySet().toArray()));
+        assertEquals("[WARNING] Unused declared dependencies found:\n[WARNING]    junit:junit:jar:4.11:test\n",
+                sections.get("projectone"));
+        assertEquals("[WARNING] Used undeclared dependencies found:\n", sections.get("projecttwo"));
+        assertEquals("[INFO] No dependency problems found\n", sections.get(BuildLogFileParser.UNKNOWN_MODULE));
+        assertEquals(sections.get("projectone") + sections.get("projecttwo")
+                + sections.get(BuildLogFileParser.UNKNOWN_MODULE),
+                parser.getContentOfSectionFor(Goal.DEPENDENCY_ANALYSE));
+        assertNull(parser.getContentOfSectionsPerModuleFor(Goal.BANNED_DEPENDENCY_ANALYSE));
+    }
+
+    @Test
+    public void testParsingIsContinuedInModuleOpenAtEndOfLogFile() throws Exception {
+        File file = File.createTempFile("log_build_of_reactor_growing", ".log");
+        file.deleteOnExit();
+        write(file, "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n"
+                + "[WARNING] Unused declared dependencies found:\n"
+                + "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projecttwo ---\n", false);
+        parser.parseLogFile(file, true);
+        write(file, "[WARNING] Used undeclared dependencies found:\n", true);
+
+        assertTrue(parser.continueParsingLogFile(file));
+
+        Map<String, String> sections = parser.getContentOfSectionsPerModuleFor(Goal.DEPENDENCY_ANALYSE);
+        assertEquals("[WARNING] Unused declared dependencies found:\n", sections.get("projectone"));
+        assertEquals("[WARNING] Used undeclared dependencies found:\n", sections.get("projecttwo"));
+    }
+
+    @Test
+    public void testOnlyScannedBytesAreCountedAsRead() throws Exception {
+        File file = File.createTempFile("log_build_growing", ".log");
+        file.deleteOnExit();
+        write(file, "[INFO] Scanning for projects...\n"
+                + "[INFO] --- maven-dependency-plugin:2.1:analyze (default-cli) @ projectone ---\n", false);
+        long bytesReadBefore = ReadCounter.getBytesReadByCurrentThread();
+        parser.parseLogFile(file, true);
+        assertEquals(file.length(), ReadCounter.getBytesReadByCurrentThread() - bytesReadBefore);
+        long lengthBeforeAppending = file.length();
+        write(file, "[WARNING] Unused declared dependencies found:\n", true);
+
+        bytesReadBefore = ReadCounter.getBytesReadByCurrentThread();
+        assertTrue(parser.continueParsingLogFile(file));
+
+        assertEquals(file.length() - lengthBeforeAppending, ReadCounter.getBytesReadByCurrentThread()
+                - bytesReadBefore);
+    }
+
+    private void write(File file, String content, boolean append) throws IOException {
+        FileWriter writer = new FileWriter(file, append);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CombinedPatternTest {
+
+    private Map<String, String> regexes;
+
+    @Before
+    public void setUp() {
+        regexes = new LinkedHashMap<String, String>();
+        regexes.put("analyze", "(maven-dependency-plugin):[^:]+:analyze(-only| )");
+        regexes.put("enforce", "maven-(enforcer)-plugin:[^:]+:enforce");
+        regexes.put("any", "[a-z-]+(:)");
+    }
+
+    @Test
+    public void testKeyIsFoundDespiteGroupsOfPrefixAndOtherPatterns() {
+        CombinedPattern<String> pattern = new CombinedPattern<String>("^(\\[)?(INFO|WARNING)(\\]|:)? --- ", regexes);
+        assertEquals("analyze", pattern.classify("[INFO] --- maven-dependency-plugin:2.1:analyze-only (default)"));
+        assertEquals("enforce", pattern.classify("INFO: --- maven-enforcer-plugin:1.2:enforce (default) @ one ---"));
+        assertEquals("any", pattern.classify("[WARNING] --- maven-jar-plugin:2.4:jar (default-jar) @ one ---"));
+    }
+
+    @Test
+    public void testFirstKeyWinsAtSamePosition() {
+        CombinedPattern<String> pattern = new CombinedPattern<String>("^", regexes);
+        assertEquals("analyze", pattern.classify("maven-dependency-plugin:2.1:analyze "));
+        assertEquals("any", pattern.classify("maven-dependency-plugin:2.1:tree "));
+    }
+
+    @Test
+    public void testNullIsReturnedIfNoPatternOccurs() {
+        CombinedPattern<String> pattern = new CombinedPattern<String>("^\\[INFO\\] --- ", regexes);
+        assertNull(pattern.classify("[WARNING] --- maven-dependency-plugin:2.1:analyze (default-cli)"));
+        assertNull(pattern.classify(" [INFO] --- maven-dependency-plugin:2.1:analyze (default-cli)"));
+        assertNull(pattern.classify(""));
+    }
+
+    @Test
+    public void testPatternsWithoutAnchoringPrefixMayOccurAnywhere() {
+        Map<String, String> headlines = new LinkedHashMap<String, String>();
+        headlines.put("unused", "Unused declared");
+        headlines.put("undeclared", "Used undeclared");
+        CombinedPattern<String> pattern = new CombinedPattern<String>("", headlines);
+        assertEquals("undeclared", pattern.classify("[WARNING] Used undeclared dependencies found:"));
+        assertEquals("unused", pattern.classify("[WARNING] Unused declared dependencies found:"));
+        assertNull(pattern.classify("[WARNING]    org.apache.maven:maven-model:jar:2.0.2:compile"));
+    }
+
+    @Test
+    public void testOnlyRegionOfMatcherIsClassified() {
+        Map<String, String> headlines = new LinkedHashMap<String, String>();
+        headlines.put("unused", "Unused declared");
+        CombinedPattern<String> pattern = new CombinedPattern<String>("^\\[WARNING\\] ", headlines);
+        String content = "[INFO] Unused declared\n[WARNING] Unused declared\n";
+        Matcher matcher = pattern.matcher(content);
+        assertNull(pattern.classify(matcher.region(0, 22)));
+        assertEquals("unused", pattern.classify(matcher.region(23, content.length() - 1)));
+    }
+}
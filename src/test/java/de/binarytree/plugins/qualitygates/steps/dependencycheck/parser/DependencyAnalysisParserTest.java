@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -146,4 +147,22 @@ public class DependencyAnalysisParserTest extends AbstractParserTestUtils {
                 list.contains(UNDECLARED_DEPENDENCY_2));
     }
 
+    @Test
+    public void testParseSectionGivenAsCharSequenceWithWindowsLineEndings() throws Exception {
+        StringBuilder section = new StringBuilder();
+        section.append("[WARNING] Used undeclared dependencies found:\r\n");
+        section.append("[WARNING]    ").append(UNDECLARED_DEPENDENCY_1).append("\r\n");
+        section.append("[WARNING] Unused declared dependencies found:\r\n");
+        section.append("[WARNING]    ").append(UNUSED_DEPENDENCY_1).append(" \r\n");
+        section.append("   \r\n");
+        section.append("[WARNING]    ").append(UNUSED_DEPENDENCY_1).append("\r\n");
+
+        Map<DependencyProblemType, List<String>> result = DependencyAnalysisParser.parseDependencyAnalyzeSection(
+                section).getMapOfViolations();
+
+        verifyNumberOfProblemTypes(result, 2);
+        assertEquals(Arrays.asList(UNDECLARED_DEPENDENCY_1), result.get(DependencyProblemType.UNDECLARED));
+        assertEquals(Arrays.asList(UNUSED_DEPENDENCY_1), result.get(DependencyProblemType.UNUSED));
+    }
+
 }
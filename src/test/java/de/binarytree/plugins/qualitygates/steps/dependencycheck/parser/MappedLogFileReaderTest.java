@@ -0,0 +1,119 @@
+package de.binarytree.plugins.qualitygates.steps.dependencycheck.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MappedLogFileReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte[] MARKER = { '-', '-', '-', ' ' };
+
+    private File file;
+
+    private MappedLogFileReader reader;
+
+    @After
+    public void tearDown() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLinesAreReadOneAfterAnother() throws Exception {
+        openReaderFor("first\nsecond\n\nfourth", 1024);
+        assertEquals("first", reader.readLine());
+        assertEquals("second", reader.readLine());
+        assertEquals("", reader.readLine());
+        assertEquals("fourth", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testLinesAreTerminatedLikeByBufferedReader() throws Exception {
+        openReaderFor("first\r\nsecond\rthird\n", 1024);
+        assertEquals("first", reader.readLine());
+        assertEquals("second", reader.readLine());
+        assertEquals("third", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testLinesCrossingTheWindowAreReadCompletely() throws Exception {
+        openReaderFor("first line\r\nsecond line\r\nthird line\r\n", 16);
+        assertEquals("first line", reader.readLine());
+        assertEquals("second line", reader.readLine());
+        assertEquals("third line", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testLinesLongerThanTheWindowAreSplit() throws Exception {
+        openReaderFor("0123456789\nend", 8);
+        assertEquals("01234567", reader.readLine());
+        assertEquals("89", reader.readLine());
+        assertEquals("end", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testNonAsciiCharactersAreDecoded() throws Exception {
+        openReaderFor("Gr\u00f6\u00dfe\n\u00dcbersicht\n", 1024);
+        assertEquals("Gr\u00f6\u00dfe", reader.readLine());
+        assertEquals("\u00dcbersicht", reader.readLine());
+    }
+
+    @Test
+    public void testLinesWithoutMarkerAreSkipped() throws Exception {
+        openReaderFor("[INFO] Scanning\n[INFO] --- goal ---\nBuilding\n[INFO] --- other ---", 1024);
+        assertEquals("[INFO] --- goal ---", reader.readLineContaining(MARKER));
+        assertEquals("[INFO] --- other ---", reader.readLineContaining(MARKER));
+        assertNull(reader.readLineContaining(MARKER));
+    }
+
+    @Test
+    public void testReadingContinuesAfterLineContainingMarker() throws Exception {
+        openReaderFor("skipped\n[INFO] --- goal ---\nsection\n", 1024);
+        assertEquals("[INFO] --- goal ---", reader.readLineContaining(MARKER));
+        assertEquals("section", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testMarkerCrossingTheWindowIsFound() throws Exception {
+        openReaderFor("skipped line\n[INFO] --- goal ---\nskipped\n[INFO] --- other ---\n", 24);
+        assertEquals("[INFO] --- goal ---", reader.readLineContaining(MARKER));
+        assertEquals("[INFO] --- other ---", reader.readLineContaining(MARKER));
+        assertNull(reader.readLineContaining(MARKER));
+    }
+
+    @Test
+    public void testNoLineIsFoundWithoutMarker() throws Exception {
+        openReaderFor("[INFO] ----------\n[INFO] BUILD SUCCESS\n", 8);
+        assertNull(reader.readLineContaining(MARKER));
+        assertNull(reader.readLine());
+    }
+
+    private void openReaderFor(String content, int windowSize) throws IOException {
+        file = File.createTempFile("mapped_log", ".log");
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes(UTF8));
+        } finally {
+            output.close();
+        }
+        reader = new MappedLogFileReader(file, UTF8, windowSize);
+    }
+}
@@ -1,6 +1,13 @@
 package de.binarytree.plugins.qualitygates.steps.dependencycheck.result;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -51,4 +58,44 @@ public class MavenDependencyAnalysisResultTest {
         assertEquals(1, analysis.getNumberOfUnusedDependencies());
     }
 
+    @Test
+    public void testViolationsKeepOrderOfFirstOccurrence() {
+        analysis.addViolation(DependencyProblemType.UNUSED, violation2);
+        analysis.addViolation(DependencyProblemType.UNUSED, violation);
+        analysis.addViolation(DependencyProblemType.UNUSED, violation2);
+        assertEquals(Arrays.asList(violation2, violation), analysis.getUnusedDependencies());
+        assertNull(analysis.getUndeclaredDependencies());
+    }
+
+    @Test
+    public void testViolationsCanBeInitializedFromMap() {
+        Map<DependencyProblemType, List<String>> violations = new HashMap<DependencyProblemType, List<String>>();
+        violations.put(DependencyProblemType.UNDECLARED, Arrays.asList(violation, violation2, violation));
+        analysis = new MavenDependencyAnalysisResult(violations);
+        assertEquals(2, analysis.getNumberOfUndeclaredDependencies());
+        assertEquals(Arrays.asList(violation, violation2),
+                analysis.getMapOfViolations().get(DependencyProblemType.UNDECLARED));
+    }
+
+    @Test
+    public void testResultsOfModulesAreMergedWithoutDuplicates() {
+        MavenDependencyAnalysisResult resultOfFirstModule = new MavenDependencyAnalysisResult();
+        resultOfFirstModule.addViolation(DependencyProblemType.UNUSED, violation);
+        resultOfFirstModule.addViolation(DependencyProblemType.UNDECLARED, violation2);
+        MavenDependencyAnalysisResult resultOfSecondModule = new MavenDependencyAnalysisResult();
+        resultOfSecondModule.addViolation(DependencyProblemType.UNUSED, violation2);
+        resultOfSecondModule.addViolation(DependencyProblemType.UNUSED, violation);
+
+        analysis.addResultOfModule("first", resultOfFirstModule);
+        analysis.addResultOfModule("second", resultOfSecondModule);
+
+        assertEquals(Arrays.asList(violation, violation2), analysis.getUnusedDependencies());
+        assertEquals(1, analysis.getNumberOfUndeclaredDependencies());
+        Map<String, MavenDependencyAnalysisResult> resultsOfModules = analysis.getResultsOfModules();
+        assertEquals(Arrays.asList("first", "second"), Arrays.asList(resultsOfModules.keySet().toArray()));
+        assertSame(resultOfSecondModule, resultsOfModules.get("second"));
+        assertEquals(2, resultsOfModules.get("second").getNumberOfUnusedDependencies());
+        assertEquals(0, resultsOfModules.get("second").getNumberOfUndeclaredDependencies());
+    }
+
 }
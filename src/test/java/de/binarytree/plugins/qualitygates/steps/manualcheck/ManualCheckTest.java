@@ -5,14 +5,27 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import hudson.Launcher;
 import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
 import de.binarytree.plugins.qualitygates.result.GateStepReport;
 import de.binarytree.plugins.qualitygates.steps.manualcheck.ManualCheck.DescriptorImpl;
 
@@ -60,6 +73,28 @@ public class ManualCheckTest {
         assertApprovalReset();
     }
 
+    @Test
+    public void testCheckIsPendingUntilApproved() {
+        QualityLineMetrics metrics = QualityLineMetrics.getInstance();
+        int pendingBefore = metrics.getPendingManualApprovals();
+        check.doStep(build, launcher, listener, new GateStepReport(check));
+        check.doStep(build, launcher, listener, new GateStepReport(check));
+        assertEquals(pendingBefore + 1, metrics.getPendingManualApprovals());
+        check.approve();
+        assertEquals(pendingBefore, metrics.getPendingManualApprovals());
+        check.doStep(build, launcher, listener, new GateStepReport(check));
+        assertEquals(pendingBefore, metrics.getPendingManualApprovals());
+    }
+
+    @Test
+    public void testDecisionOfUncountedRequestDoesNotChangePendingApprovals() {
+        QualityLineMetrics metrics = QualityLineMetrics.getInstance();
+        int pendingBefore = metrics.getPendingManualApprovals();
+        ManualCheck reloadedCheck = new MockManualCheck("savedHash", unknownUser);
+        assertTrue(reloadedCheck.approve("savedHash"));
+        assertEquals(pendingBefore, metrics.getPendingManualApprovals());
+    }
+
     @Test
     public void testCheckBeingManuallyApprovedLeadsToSuccess() {
         GateStepReport report = new GateStepReport(check);
@@ -91,6 +126,145 @@ public class ManualCheckTest {
         assertApprovalReset();
     }
 
+    @Test
+    public void testCheckCannotBeDecidedTwiceBeforeEvaluation() {
+        assertTrue(check.approve());
+        assertFalse(check.disapprove());
+        assertFalse(check.approve());
+        assertTrue(check.isApproved());
+        check.doStep(build, launcher, listener, new GateStepReport(check));
+        assertFalse(check.disapprove());
+        check.doStep(build, launcher, listener, new GateStepReport(check));
+        assertTrue(check.disapprove());
+    }
+
+    @Test
+    public void testConsumedRequestCannotBeDecidedAgain() {
+        String hash = requestDecision(check);
+        assertTrue(check.approve(hash));
+        GateStepReport report = new GateStepReport(check);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.SUCCESS, report.getResult());
+        assertFalse(check.approve(hash));
+        assertFalse(check.disapprove(hash));
+        assertApprovalReset();
+    }
+
+    @Test
+    public void testDecisionIsOnlyConsumedByRequestingBuild() {
+        AbstractBuild<?, ?> requestingBuild = mock(AbstractBuild.class);
+        when(requestingBuild.getExternalizableId()).thenReturn("project#1");
+        AbstractBuild<?, ?> otherBuild = mock(AbstractBuild.class);
+        when(otherBuild.getExternalizableId()).thenReturn("project#2");
+        GateStepReport report = new GateStepReport(check);
+        check.doStep(requestingBuild, launcher, listener, report);
+        assertTrue(check.approve(hashOf(report)));
+        report = new GateStepReport(check);
+        check.doStep(otherBuild, launcher, listener, report);
+        assertEquals(Result.NOT_BUILT, report.getResult());
+    }
+
+    @Test
+    public void testLateDecisionsDoNotReArmConsumedRequest() throws Exception {
+        final int numberOfThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads + 1);
+        try {
+            for (int round = 0; round < 50; round++) {
+                final ManualCheck contendedCheck = new MockManualCheck(unknownUser);
+                final String hash = requestDecision(contendedCheck);
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> decisions = new LinkedList<Future<Boolean>>();
+                for (int i = 0; i < numberOfThreads; i++) {
+                    final boolean approve = i % 2 == 0;
+                    decisions.add(executor.submit(new Callable<Boolean>() {
+                        public Boolean call() throws InterruptedException {
+                            start.await();
+                            return approve ? contendedCheck.approve(hash) : contendedCheck.disapprove(hash);
+                        }
+                    }));
+                }
+                final GateStepReport report = new GateStepReport(contendedCheck);
+                Future<?> evaluation = executor.submit(new Callable<Void>() {
+                    public Void call() throws InterruptedException {
+                        start.await();
+                        contendedCheck.doStep(build, launcher, listener, report);
+                        return null;
+                    }
+                });
+                start.countDown();
+                evaluation.get(5, TimeUnit.SECONDS);
+                int successfulDecisions = 0;
+                for (Future<Boolean> decision : decisions) {
+                    if (decision.get(5, TimeUnit.SECONDS)) {
+                        successfulDecisions++;
+                    }
+                }
+                boolean consumed = !Result.NOT_BUILT.equals(report.getResult());
+                assertEquals(consumed ? 1 : 0, successfulDecisions);
+                assertFalse(contendedCheck.isApproved() || contendedCheck.isDisapproved());
+                assertFalse(contendedCheck.approve(hash));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String requestDecision(ManualCheck manualCheck) {
+        GateStepReport report = new GateStepReport(manualCheck);
+        manualCheck.doStep(build, launcher, listener, report);
+        return hashOf(report);
+    }
+
+    private String hashOf(GateStepReport report) {
+        Matcher matcher = Pattern.compile("approve\\?id=([^']+)'").matcher(report.getReason());
+        assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    @Test
+    public void testApprovalIsConsumedByOneEvaluationOnly() {
+        check.approve();
+        GateStepReport report = new GateStepReport(check);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.SUCCESS, report.getResult());
+        report = new GateStepReport(check);
+        check.doStep(build, launcher, listener, report);
+        assertEquals(Result.NOT_BUILT, report.getResult());
+    }
+
+    @Test
+    public void testExactlyOneOfConcurrentDecisionsSucceeds() throws Exception {
+        final int numberOfThreads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                final ManualCheck contendedCheck = new MockManualCheck(unknownUser);
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> decisions = new LinkedList<Future<Boolean>>();
+                for (int i = 0; i < numberOfThreads; i++) {
+                    final boolean approve = i % 2 == 0;
+                    decisions.add(executor.submit(new Callable<Boolean>() {
+                        public Boolean call() throws InterruptedException {
+                            start.await();
+                            return approve ? contendedCheck.approve() : contendedCheck.disapprove();
+                        }
+                    }));
+                }
+                start.countDown();
+                int successfulDecisions = 0;
+                for (Future<Boolean> decision : decisions) {
+                    if (decision.get(5, TimeUnit.SECONDS)) {
+                        successfulDecisions++;
+                    }
+                }
+                assertEquals(1, successfulDecisions);
+                assertTrue(contendedCheck.isApproved() ^ contendedCheck.isDisapproved());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testEqualsTrue() {
         ManualCheck check1 = new MockManualCheck("hash", "user1");
@@ -0,0 +1,89 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public class StreamingPathExpressionTest {
+
+    private String checkstyleReport = "<checkstyle version='5.0'>" + "<file name='A.java'>"
+            + "<error line='1' severity='error'/><error line='2' severity='warning'/></file>"
+            + "<file name='B.java'><violation line='3'/><error line='4'/></file>" + "</checkstyle>";
+
+    private String nestedReport = "<root><a><b/><c><b/></c></a><b/></root>";
+
+    private int count(String expression, String document) throws XMLStreamException {
+        StreamingPathExpression compiled = StreamingPathExpression.compile(expression);
+        assertNotNull(compiled);
+        return compiled.countMatches(new ByteArrayInputStream(document.getBytes()));
+    }
+
+    @Test
+    public void testPredefinedExpressionsAreStreamable() {
+        assertTrue(StreamingPathExpression.isStreamable("/BugCollection/BugInstance"));
+        assertTrue(StreamingPathExpression.isStreamable("/pmd/file/violation"));
+        assertTrue(StreamingPathExpression.isStreamable("/checkstyle/file/violation | checkstyle/file/error"));
+    }
+
+    @Test
+    public void testExpressionsWithPredicatesOrFunctionsAreNotStreamable() {
+        assertFalse(StreamingPathExpression
+                .isStreamable("/project/dependencies/dependency/version[contains(.,'SNAPSHOT')]"));
+        assertFalse(StreamingPathExpression.isStreamable("count(/pmd/file)"));
+        assertFalse(StreamingPathExpression.isStreamable("/pmd/file/@name"));
+        assertFalse(StreamingPathExpression.isStreamable("/pmd/file/text()"));
+        assertFalse(StreamingPathExpression.isStreamable("/pmd/"));
+        assertFalse(StreamingPathExpression.isStreamable("/"));
+        assertFalse(StreamingPathExpression.isStreamable(""));
+        assertNull(StreamingPathExpression.compile(null));
+    }
+
+    @Test
+    public void testCountsChildPaths() throws XMLStreamException {
+        assertEquals(3, count("/checkstyle/file/error", checkstyleReport));
+        assertEquals(1, count("/checkstyle/file/violation", checkstyleReport));
+        assertEquals(2, count("/checkstyle/file", checkstyleReport));
+        assertEquals(0, count("/pmd/file", checkstyleReport));
+    }
+
+    @Test
+    public void testRelativePathIsEvaluatedAgainstDocument() throws XMLStreamException {
+        assertEquals(3, count("checkstyle/file/error", checkstyleReport));
+    }
+
+    @Test
+    public void testUnionCountsEveryElementOnce() throws XMLStreamException {
+        assertEquals(4, count("/checkstyle/file/violation | checkstyle/file/error", checkstyleReport));
+        assertEquals(3, count("/checkstyle/file/error | /checkstyle/*/error", checkstyleReport));
+    }
+
+    @Test
+    public void testCountsDescendantPaths() throws XMLStreamException {
+        assertEquals(3, count("//b", nestedReport));
+        assertEquals(2, count("/root/a//b", nestedReport));
+        assertEquals(1, count("/root/*/*/b", nestedReport));
+    }
+
+    @Test
+    public void testMatchesElementPath() {
+        StreamingPathExpression expression = StreamingPathExpression.compile("/a//c/d");
+        assertTrue(expression.matches(Arrays.asList("a", "c", "d")));
+        assertTrue(expression.matches(Arrays.asList("a", "b", "c", "d")));
+        assertFalse(expression.matches(Arrays.asList("a", "c", "x", "d")));
+        assertFalse(expression.matches(Arrays.asList("x", "c", "d")));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testMalformedDocumentIsReported() throws XMLStreamException {
+        count("/a/b", "<a><b></a>");
+    }
+}
@@ -0,0 +1,104 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import hudson.model.AbstractBuild;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import de.binarytree.plugins.qualitygates.EvaluationScope;
+
+public class XMLDocumentCacheTest {
+
+    private XMLDocumentCache cache;
+
+    private CountingParser parser;
+
+    class CountingParser implements XMLDocumentCache.DocumentParser {
+
+        private int numberOfParses;
+
+        private boolean fail;
+
+        public Document parse() throws ParserConfigurationException, SAXException, IOException {
+            numberOfParses++;
+            if (fail) {
+                throw new IOException("unreadable");
+            }
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new ByteArrayInputStream("<a/>".getBytes()));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        cache = new XMLDocumentCache();
+        parser = new CountingParser();
+    }
+
+    @Test
+    public void testDocumentIsParsedOnce() throws Exception {
+        Document first = cache.getDocument("report.xml", 1L, parser);
+        Document second = cache.getDocument("report.xml", 1L, parser);
+        assertSame(first, second);
+        assertEquals(1, parser.numberOfParses);
+        assertTrue(cache.hasDocument("report.xml", 1L));
+    }
+
+    @Test
+    public void testModifiedDocumentIsParsedAgain() throws Exception {
+        Document first = cache.getDocument("report.xml", 1L, parser);
+        Document second = cache.getDocument("report.xml", 2L, parser);
+        assertNotSame(first, second);
+        assertEquals(2, parser.numberOfParses);
+    }
+
+    @Test
+    public void testFailedParseIsNotCached() throws Exception {
+        parser.fail = true;
+        try {
+            cache.getDocument("report.xml", 1L, parser);
+        } catch (IOException e) {
+            assertEquals("unreadable", e.getMessage());
+        }
+        assertFalse(cache.hasDocument("report.xml", 1L));
+        parser.fail = false;
+        assertNotNull(cache.getDocument("report.xml", 1L, parser));
+        assertEquals(2, parser.numberOfParses);
+    }
+
+    @Test
+    public void testCountsAreKeyedByFileAndExpression() {
+        cache.putCount("report.xml", 1L, "/a", 5);
+        assertEquals(Integer.valueOf(5), cache.getCount("report.xml", 1L, "/a"));
+        assertNull(cache.getCount("report.xml", 1L, "/b"));
+        assertNull(cache.getCount("report.xml", 2L, "/a"));
+    }
+
+    @Test
+    public void testCacheIsBoundToEvaluationOfBuild() {
+        AbstractBuild<?, ?> build = mock(AbstractBuild.class);
+        assertNull(XMLDocumentCache.forBuild(build));
+        EvaluationScope scope = EvaluationScope.open(build);
+        XMLDocumentCache cacheOfBuild = XMLDocumentCache.forBuild(build);
+        assertNotNull(cacheOfBuild);
+        assertSame(cacheOfBuild, XMLDocumentCache.forBuild(build));
+        scope.close();
+        assertNull(XMLDocumentCache.forBuild(build));
+    }
+}
@@ -0,0 +1,175 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import hudson.FilePath;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import de.binarytree.plugins.qualitygates.ReadCounter;
+import de.binarytree.plugins.qualitygates.metrics.QualityLineMetrics;
+
+public class XPathEvaluationTest {
+
+    private String pomString = "<project>" + "<dependencies>"
+            + "<dependency><name>a</name><version>1.0</version></dependency>"
+            + "<dependency><name>b</name><version>1.0</version></dependency>"
+            + "<dependency><name>c</name><version>1.0-SNAPSHOT</version></dependency>" + "</dependencies>"
+            + "</project>";
+
+    private String snapshotExpression = "/project/dependencies/dependency/version[contains(.,'SNAPSHOT')]";
+
+    private File pom;
+
+    @Before
+    public void setUp() throws IOException {
+        pom = File.createTempFile("pom", ".xml");
+        OutputStream out = new FileOutputStream(pom);
+        try {
+            out.write(pomString.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        pom.delete();
+    }
+
+    private ByteArrayInputStream pomStream() {
+        return new ByteArrayInputStream(pomString.getBytes());
+    }
+
+    @Test
+    public void testStreamingAndDomCountsAreEqual() throws Exception {
+        String expression = "/project/dependencies/dependency";
+        int streamed = XPathEvaluation.countMatchingNodes(pomStream(), expression,
+                StreamingPathExpression.compile(expression));
+        int parsed = XPathEvaluation.countMatchingNodes(pomStream(), expression, null);
+        assertEquals(3, streamed);
+        assertEquals(streamed, parsed);
+    }
+
+    @Test
+    public void testCountOnAgentEqualsCountOnMaster() throws Exception {
+        for (String expression : new String[] { "/project/dependencies/dependency", snapshotExpression }) {
+            int onMaster = XPathEvaluation.countMatchingNodes(pomStream(), expression,
+                    StreamingPathExpression.compile(expression));
+            int onAgent = (Integer) lookUpOnAgent(XPathLookup.count(expression));
+            assertEquals(onMaster, onAgent);
+        }
+    }
+
+    @Test
+    public void testTextContentOnAgentEqualsTextContentOnMaster() throws Exception {
+        String onMaster = XPathEvaluation.getTextContentOfFirstMatchingNode(XPathEvaluation.parse(pomStream()),
+                snapshotExpression);
+        String onAgent = (String) lookUpOnAgent(XPathLookup.textContent(snapshotExpression));
+        assertEquals("1.0-SNAPSHOT", onMaster);
+        assertEquals(onMaster, onAgent);
+    }
+
+    @Test
+    public void testMissingMatchYieldsEmptyText() throws Exception {
+        assertEquals("", lookUpOnAgent(XPathLookup.textContent("/project/parent")));
+    }
+
+    @Test
+    public void testBytesReadOnAgentAreCountedOnMaster() throws Exception {
+        XPathEvaluation.RemoteResult<HashMap<XPathLookup, Serializable>> result = new XPathEvaluation.EvaluateLookups(
+                Collections.singletonList(XPathLookup.count(snapshotExpression))).invoke(pom, null);
+        assertEquals(pom.length(), result.getBytesRead());
+
+        long bytesReadBefore = ReadCounter.getBytesReadByCurrentThread();
+        long bytesParsedBefore = QualityLineMetrics.getInstance().getBytesParsedFromXml().get();
+        assertEquals(result.getValue(), result.countBytesRead());
+        assertEquals(bytesReadBefore + pom.length(), ReadCounter.getBytesReadByCurrentThread());
+        assertEquals(bytesParsedBefore + pom.length(), QualityLineMetrics.getInstance().getBytesParsedFromXml().get());
+    }
+
+    @Test
+    public void testLookupsOfOneFileAreAnsweredByReadingItOnce() throws Exception {
+        XPathLookup streamableCount = XPathLookup.count("/project/dependencies/dependency");
+        XPathLookup count = XPathLookup.count(snapshotExpression);
+        XPathLookup textContent = XPathLookup.textContent(snapshotExpression);
+        XPathEvaluation.RemoteResult<HashMap<XPathLookup, Serializable>> result = new XPathEvaluation.EvaluateLookups(
+                Arrays.asList(streamableCount, count, textContent)).invoke(pom, null);
+
+        assertEquals(3, result.getValue().get(streamableCount));
+        assertEquals(1, result.getValue().get(count));
+        assertEquals("1.0-SNAPSHOT", result.getValue().get(textContent));
+        assertEquals(pom.length(), result.getBytesRead());
+    }
+
+    @Test
+    public void testInvalidExpressionOnlyFailsItsOwnLookup() throws Exception {
+        XPathLookup invalid = XPathLookup.count("/project/[");
+        XPathLookup valid = XPathLookup.textContent(snapshotExpression);
+        Map<XPathLookup, Serializable> results = new XPathEvaluation.EvaluateLookups(Arrays.asList(invalid, valid))
+                .invoke(pom, null).getValue();
+
+        assertEquals("1.0-SNAPSHOT", XPathEvaluation.valueOf(results.get(valid)));
+        try {
+            XPathEvaluation.valueOf(results.get(invalid));
+            fail("The invalid expression has to be reported");
+        } catch (XPathExpressionException e) {
+            assertNotNull(e);
+        }
+    }
+
+    @Test
+    public void testInvalidDocumentIsReportedLikeOnMaster() throws Exception {
+        writeInvalidDocument();
+        SAXException onMaster = null;
+        try {
+            XPathEvaluation.parse(new FileInputStream(pom));
+        } catch (SAXException e) {
+            onMaster = e;
+        }
+        try {
+            XPathEvaluation.lookUp(new FilePath(pom), Collections.singletonList(XPathLookup.textContent("/project")));
+            fail("The invalid document has to be reported");
+        } catch (SAXException onAgent) {
+            assertEquals(onMaster.getMessage(), onAgent.getMessage());
+        }
+    }
+
+    private Object lookUpOnAgent(XPathLookup lookup) throws Exception {
+        return XPathEvaluation.valueOf(new XPathEvaluation.EvaluateLookups(Collections.singletonList(lookup)).invoke(
+                pom, null).getValue().get(lookup));
+    }
+
+    private void writeInvalidDocument() throws IOException {
+        OutputStream out = new FileOutputStream(pom);
+        try {
+            out.write("<project>".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidDocumentIsReportedAsIOException() throws Exception {
+        writeInvalidDocument();
+        new XPathEvaluation.EvaluateLookups(Collections.singletonList(XPathLookup.count("/project"))).invoke(pom, null);
+    }
+}
@@ -0,0 +1,93 @@
+package de.binarytree.plugins.qualitygates.steps.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class XPathExpressionCacheTest {
+
+    private XPathExpressionCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new XPathExpressionCache(2);
+    }
+
+    @Test
+    public void testRepeatedExpressionIsCompiledOnce() throws XPathExpressionException {
+        XPathExpression first = cache.compile("/pmd/file");
+        XPathExpression second = cache.compile("/pmd/file");
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedExpressionIsEvicted() throws XPathExpressionException {
+        XPathExpression first = cache.compile("/a");
+        cache.compile("/b");
+        cache.compile("/a");
+        cache.compile("/c");
+        assertSame(first, cache.compile("/a"));
+        cache.compile("/b");
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void testThreadsDoNotShareCompiledExpressions() throws Exception {
+        final XPathExpression compiledHere = cache.compile("/a");
+        final AtomicReference<XPathExpression> compiledThere = new AtomicReference<XPathExpression>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    compiledThere.set(cache.compile("/a"));
+                } catch (XPathExpressionException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotSame(compiledHere, compiledThere.get());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidExpressionIsNotCached() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.compile("/a[");
+            } catch (XPathExpressionException e) {
+                // expected
+            }
+        }
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testClearResetsCounters() throws XPathExpressionException {
+        cache.compile("/a");
+        cache.compile("/a");
+        cache.clear();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        cache.compile("/a");
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaximumSizeMustBePositive() {
+        new XPathExpressionCache(0);
+    }
+}